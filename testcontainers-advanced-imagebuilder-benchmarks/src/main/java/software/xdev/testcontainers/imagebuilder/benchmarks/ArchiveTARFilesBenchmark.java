@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import software.xdev.testcontainers.imagebuilder.temp.TempResourceManager;
+import software.xdev.testcontainers.imagebuilder.transfer.DefaultTransferFilesCreator;
+import software.xdev.testcontainers.imagebuilder.transfer.TransferArchiveTARCompressor;
+
+
+/**
+ * Archives the (already determined) files of the tree.
+ */
+public class ArchiveTARFilesBenchmark extends AbstractTreeBenchmark
+{
+	protected Map<Path, String> filesToTransfer;
+	protected File lastArchive;
+	
+	@Setup
+	public void setup()
+	{
+		this.filesToTransfer = new DefaultTransferFilesCreator(
+			SyntheticTree.materialize(this.fileCount),
+			Paths.get(".gitignore"))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false);
+	}
+	
+	@Benchmark
+	public File archiveTARFiles()
+	{
+		this.lastArchive = new TransferArchiveTARCompressor().archiveTARFiles(this.filesToTransfer, "benchmark");
+		return this.lastArchive;
+	}
+	
+	@TearDown(Level.Invocation)
+	public void deleteArchive()
+	{
+		if(this.lastArchive != null)
+		{
+			TempResourceManager.instance().release(this.lastArchive);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+
+import software.xdev.testcontainers.imagebuilder.transfer.DefaultTransferFilesCreator;
+
+
+/**
+ * Walks the tree and determines the files that should be transferred.
+ */
+public class DetermineFilesToTransferBenchmark extends AbstractTreeBenchmark
+{
+	protected Path baseDir;
+	
+	@Setup
+	public void setup()
+	{
+		this.baseDir = SyntheticTree.materialize(this.fileCount);
+	}
+	
+	@Benchmark
+	public Map<Path, String> determineFilesToTransfer()
+	{
+		return new DefaultTransferFilesCreator(this.baseDir, Paths.get(".gitignore"))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false);
+	}
+}
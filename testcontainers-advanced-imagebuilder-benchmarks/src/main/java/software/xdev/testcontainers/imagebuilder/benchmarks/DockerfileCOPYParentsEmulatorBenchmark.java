@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import software.xdev.testcontainers.imagebuilder.compat.DockerfileCOPYParentsEmulator;
+
+
+public class DockerfileCOPYParentsEmulatorBenchmark extends AbstractTreeBenchmark
+{
+	protected static final List<String> DOCKERFILE = List.of(
+		"# syntax=docker/dockerfile:1-labs",
+		"FROM alpine:3",
+		"WORKDIR /app",
+		"COPY --parents **/pom.xml ./",
+		"COPY --parents module-*/src/main/java/pkg1/** ./",
+		"COPY --parents module-1/src/main/java/**/Class1*.java ./",
+		"COPY --parents module-*/target/classes/pkg?/*.class ./",
+		"RUN ls");
+	
+	@Param({"FILE", "DIRECTORY"})
+	protected DockerfileCOPYParentsEmulator.EmulationMode emulationMode;
+	
+	protected Set<String> relativeFiles;
+	
+	@Setup
+	public void setup()
+	{
+		this.relativeFiles = new HashSet<>(SyntheticTree.relativePaths(this.fileCount));
+	}
+	
+	@Benchmark
+	public List<String> modify()
+	{
+		return new DockerfileCOPYParentsEmulator()
+			.withEmulationMode(this.emulationMode)
+			.modify(DOCKERFILE, this.relativeFiles);
+	}
+}
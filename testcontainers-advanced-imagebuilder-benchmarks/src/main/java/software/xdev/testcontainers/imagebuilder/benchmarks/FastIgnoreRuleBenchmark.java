@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import software.xdev.testcontainers.imagebuilder.jgit.errors.InvalidPatternException;
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.FastIgnoreRule;
+
+
+public class FastIgnoreRuleBenchmark extends AbstractTreeBenchmark
+{
+	protected List<String> ignoreLines;
+	
+	@Setup
+	public void setup()
+	{
+		this.ignoreLines = SyntheticTree.ignoreLines(this.fileCount)
+			.stream()
+			.filter(l -> !l.startsWith("#"))
+			.toList();
+	}
+	
+	@Benchmark
+	public void parse(final Blackhole blackhole)
+	{
+		for(final String line : this.ignoreLines)
+		{
+			blackhole.consume(parse(line));
+		}
+	}
+	
+	static FastIgnoreRule parse(final String pattern)
+	{
+		try
+		{
+			final FastIgnoreRule rule = new FastIgnoreRule();
+			rule.parse(pattern);
+			return rule;
+		}
+		catch(final InvalidPatternException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
+	}
+}
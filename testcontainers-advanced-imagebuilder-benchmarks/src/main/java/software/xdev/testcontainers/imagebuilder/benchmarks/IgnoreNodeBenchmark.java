@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+
+
+public class IgnoreNodeBenchmark extends AbstractTreeBenchmark
+{
+	protected IgnoreNode ignoreNode;
+	protected List<String> relativePaths;
+	
+	@Setup
+	public void setup()
+	{
+		this.ignoreNode = new IgnoreNode(SyntheticTree.ignoreLines(this.fileCount)
+			.stream()
+			.filter(l -> !l.startsWith("#"))
+			.map(FastIgnoreRuleBenchmark::parse)
+			.toList());
+		this.relativePaths = SyntheticTree.relativePaths(this.fileCount);
+	}
+	
+	@Benchmark
+	public void isIgnored(final Blackhole blackhole)
+	{
+		for(final String relativePath : this.relativePaths)
+		{
+			blackhole.consume(this.ignoreNode.isIgnored(relativePath, false));
+		}
+	}
+}
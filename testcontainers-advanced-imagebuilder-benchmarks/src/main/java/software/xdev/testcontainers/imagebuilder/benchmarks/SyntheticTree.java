@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import software.xdev.testcontainers.imagebuilder.testfixtures.SyntheticMonorepoGenerator;
+
+
+/**
+ * Provides the deterministic synthetic trees (created by {@link SyntheticMonorepoGenerator}) for the benchmarks.
+ */
+public final class SyntheticTree
+{
+	private SyntheticTree()
+	{
+	}
+	
+	public static SyntheticMonorepoGenerator generator(final int fileCount)
+	{
+		return new SyntheticMonorepoGenerator().withFileCount(fileCount);
+	}
+	
+	/**
+	 * @return the relative paths of all entries (without the <code>.gitignore</code>)
+	 */
+	public static List<String> relativePaths(final int fileCount)
+	{
+		return generator(fileCount).plan()
+			.stream()
+			.map(SyntheticMonorepoGenerator.Entry::relativePath)
+			.toList();
+	}
+	
+	public static List<String> ignoreLines(final int fileCount)
+	{
+		return generator(fileCount).ignoreLines();
+	}
+	
+	/**
+	 * Writes the tree (including a <code>.gitignore</code>) to disk.
+	 * <p>
+	 * The tree is cached in the temp directory and only written again if it's incomplete. The marker for a complete
+	 * tree is located next to the root, so that it's not part of the tree.
+	 * </p>
+	 */
+	public static Path materialize(final int fileCount)
+	{
+		final Path root = FileUtils.getTempDirectory().toPath().resolve("tcaib-benchmark-monorepo-" + fileCount);
+		final Path completeMarker = root.resolveSibling(root.getFileName() + ".complete");
+		if(Files.exists(completeMarker))
+		{
+			return root;
+		}
+		
+		try
+		{
+			FileUtils.deleteDirectory(root.toFile());
+			generator(fileCount).generate(root);
+			Files.createFile(completeMarker);
+			return root;
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+}
@@ -19,8 +19,10 @@ import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -46,7 +48,12 @@ import org.testcontainers.utility.ImageNameSubstitutor;
 import org.testcontainers.utility.LazyFuture;
 import org.testcontainers.utility.ResourceReaper;
 
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
 import software.xdev.testcontainers.imagebuilder.concurrent.ImageBuilderExecutorServiceHolder;
+import software.xdev.testcontainers.imagebuilder.jfr.CleanupEvent;
+import software.xdev.testcontainers.imagebuilder.jfr.DependencyPullEvent;
+import software.xdev.testcontainers.imagebuilder.metrics.ImageBuilderMetrics;
+import software.xdev.testcontainers.imagebuilder.metrics.ImageBuilderMetricsHolder;
 import software.xdev.testcontainers.imagebuilder.transfer.DockerFileLineModifier;
 import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
 import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferInfo;
@@ -79,6 +86,14 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 	
 	protected boolean createTransferFilesCache;
 	protected FilesToTransferInfo transferFileCache;
+	/**
+	 * Indicates that {@link #transferFileCache} is a reference owned by this builder that is no longer needed after
+	 * the build, e.g. for copies created by {@link #copyForExactRebuild(String)}.
+	 */
+	protected boolean releaseTransferFileCacheAfterBuild;
+	
+	protected volatile BuildReport.Recorder buildReportRecorder;
+	protected volatile BuildReport lastBuildReport;
 	
 	@SuppressWarnings("checkstyle:MagicNumber")
 	protected AbstractImageFromDockerfile()
@@ -124,6 +139,7 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 		if(this.transferFileCache != null)
 		{
 			this.log().info("Using cached transfer files InputStream");
+			this.recordBuildReport(r -> r.context(this.transferFileCache.statistics().orElse(null), true));
 			return this.transferFileCache;
 		}
 		
@@ -132,7 +148,9 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 				this.log(),
 				baseDir,
 				this.optDockerFilePath.orElseGet(() -> Path.of("Dockerfile")),
-				!this.createTransferFilesCache);
+				!this.createTransferFilesCache,
+				this.dockerImageName);
+		this.recordBuildReport(r -> r.context(fti.statistics().orElse(null), false));
 		if(this.createTransferFilesCache)
 		{
 			this.transferFileCache = fti;
@@ -155,9 +173,26 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 		return labels;
 	}
 	
+	protected AdvancedParsedDockerfile parseDockerfile(final Path dockerFile)
+	{
+		return AdvancedParsedDockerfileCache.instance().get(dockerFile);
+	}
+	
+	/**
+	 * @return the (fully resolved) names of the external images the Dockerfile depends on
+	 */
+	public Set<String> getDependencyImageNames()
+	{
+		return this.optBaseDir
+			.map(this::dockerFilePathOrDefault)
+			.or(() -> this.optDockerFilePath)
+			.map(this::fullyResolveDependencyImages)
+			.orElseGet(Set::of);
+	}
+	
 	protected Set<String> fullyResolveDependencyImages(final Path dockerFile)
 	{
-		final AdvancedParsedDockerfile parsedDockerFile = new AdvancedParsedDockerfile(dockerFile);
+		final AdvancedParsedDockerfile parsedDockerFile = this.parseDockerfile(dockerFile);
 		return this.fullyResolveDependencyImages(
 			parsedDockerFile.getExternalImageNames(),
 			parsedDockerFile.getArguments());
@@ -215,9 +250,27 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 							"Pre-emptively checking local images for '{}', referenced via a Dockerfile."
 								+ " If not available, it will be pulled.",
 							imageName);
-						new RemoteDockerImage(DockerImageName.parse(imageName))
-							.withImageNameSubstitutor(ImageNameSubstitutor.noop())
-							.get(10, TimeUnit.MINUTES);
+						final BuildAdmissionController.Permit permit =
+							this.admissionController().acquire(BuildAdmissionController.Operation.PULL);
+						final long startNanos = System.nanoTime();
+						final DependencyPullEvent event = new DependencyPullEvent();
+						event.begin();
+						boolean success = false;
+						try
+						{
+							new RemoteDockerImage(DockerImageName.parse(imageName))
+								.withImageNameSubstitutor(ImageNameSubstitutor.noop())
+								.get(10, TimeUnit.MINUTES);
+							success = true;
+						}
+						finally
+						{
+							permit.close();
+							event.finish(this.dockerImageName, imageName, success);
+							final Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+							this.metrics().onPull(imageName, duration, success);
+							this.recordBuildReport(r -> r.pull(imageName, duration));
+						}
 					}
 					catch(final Exception e)
 					{
@@ -244,11 +297,160 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 		}
 	}
 	
+	/**
+	 * Builds multiple targets (stages) of the Dockerfile.
+	 * <p>
+	 * The build context is only created once and the dependency images are only pulled once. The targets are built
+	 * in the order in which they are declared inside the Dockerfile (a stage can only depend on previously declared
+	 * stages), so that later targets can reuse the layers of the previously built ones.
+	 * </p>
+	 * <p>
+	 * Note that this does not build the image of this builder.
+	 * </p>
+	 *
+	 * @return the names of the built images (in the order of the given targets)
+	 */
+	public List<String> buildTargets(final List<BuildTarget> targets, final Duration timeoutPerTarget)
+	{
+		final Path baseDir = this.optBaseDir.orElseThrow(() -> new IllegalStateException("baseDir is required"));
+		
+		if(!this.disablePull)
+		{
+			this.prePullDependencyImages(this.fullyResolveDependencyImages(this.dockerFilePathOrDefault(baseDir)));
+		}
+		
+		// Seed the cache (if not already present) so that the context is only created once for all targets
+		final boolean seedTransferFilesCache = this.transferFileCache == null;
+		final boolean originalCreateTransferFilesCache = this.createTransferFilesCache;
+		if(seedTransferFilesCache)
+		{
+			this.createTransferFilesCache = true;
+			this.calcFileTransferInfo(baseDir);
+		}
+		
+		try
+		{
+			for(final BuildTarget target : this.sortByStageOrder(targets, baseDir))
+			{
+				this.log().info(
+					"Building target '{}' as image[name='{}']",
+					target.target(),
+					target.dockerImageName());
+				this.copyForExactRebuild(target.dockerImageName())
+					.withTarget(target.target())
+					.build(timeoutPerTarget);
+			}
+		}
+		finally
+		{
+			if(seedTransferFilesCache)
+			{
+				this.cleanCreatedTransferFilesCache();
+				this.createTransferFilesCache = originalCreateTransferFilesCache;
+			}
+		}
+		
+		return targets.stream()
+			.map(BuildTarget::dockerImageName)
+			.toList();
+	}
+	
+	/**
+	 * Starts collecting the data for the {@link BuildReport} of the current build.
+	 */
+	protected void startBuildReport()
+	{
+		this.buildReportRecorder = new BuildReport.Recorder();
+	}
+	
+	/**
+	 * Records data for the {@link BuildReport} of the current build (if one is running).
+	 */
+	protected void recordBuildReport(final Consumer<BuildReport.Recorder> action)
+	{
+		final BuildReport.Recorder recorder = this.buildReportRecorder;
+		if(recorder != null)
+		{
+			action.accept(recorder);
+		}
+	}
+	
+	/**
+	 * Completes the {@link BuildReport} of the current build, which is afterwards available using
+	 * {@link #getLastBuildReport()}.
+	 */
+	protected void finishBuildReport()
+	{
+		final BuildReport.Recorder recorder = this.buildReportRecorder;
+		if(recorder != null)
+		{
+			this.lastBuildReport = recorder.finish(this.dockerImageName);
+			this.buildReportRecorder = null;
+			if(this.log().isDebugEnabled())
+			{
+				this.log().debug("{}", this.lastBuildReport.format());
+			}
+		}
+	}
+	
+	/**
+	 * @return the report (phase timings, context sizes, cache hits) of the last build
+	 */
+	public Optional<BuildReport> getLastBuildReport()
+	{
+		return Optional.ofNullable(this.lastBuildReport);
+	}
+	
+	protected Path dockerFilePathOrDefault(final Path baseDir)
+	{
+		return this.optDockerFilePath.orElseGet(() -> baseDir.resolve("Dockerfile"));
+	}
+	
+	/**
+	 * Sorts the targets in the order in which their stages are declared inside the Dockerfile.
+	 * <p>
+	 * Unknown targets are put at the end.
+	 * </p>
+	 */
+	protected List<BuildTarget> sortByStageOrder(final List<BuildTarget> targets, final Path baseDir)
+	{
+		final List<String> stageNames = this.parseDockerfile(this.dockerFilePathOrDefault(baseDir))
+			.getStageNames()
+			.stream()
+			.map(s -> s.toLowerCase(Locale.ROOT))
+			.toList();
+		
+		final Map<BuildTarget, Integer> stageIndexes = new HashMap<>();
+		for(final BuildTarget target : targets)
+		{
+			final int index = stageNames.indexOf(target.target().toLowerCase(Locale.ROOT));
+			if(index == -1)
+			{
+				this.log().warn("Unable to find target '{}' inside Dockerfile", target.target());
+			}
+			stageIndexes.put(target, index != -1 ? index : Integer.MAX_VALUE);
+		}
+		
+		return targets.stream()
+			.sorted(Comparator.comparingInt(stageIndexes::get))
+			.toList();
+	}
+	
 	protected ExecutorService executorService()
 	{
 		return ImageBuilderExecutorServiceHolder.instance();
 	}
 	
+	protected ImageBuilderMetrics metrics()
+	{
+		return ImageBuilderMetricsHolder.instance();
+	}
+	
+	protected BuildAdmissionController admissionController()
+	{
+		return BuildAdmissionController.instance();
+	}
+	
 	protected boolean canImageNameBePulled(final String imageName)
 	{
 		// scratch is reserved
@@ -263,12 +465,39 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 	@Override
 	protected abstract String resolve();
 	
+	/**
+	 * Releases the {@link #transferFileCache} if it's no longer needed after the build.
+	 *
+	 * @see #releaseTransferFileCacheAfterBuild
+	 */
+	protected void releaseTransferFileCacheAfterBuild()
+	{
+		if(this.releaseTransferFileCacheAfterBuild && this.transferFileCache != null)
+		{
+			final CleanupEvent event = new CleanupEvent();
+			event.begin();
+			this.transferFileCache.close();
+			this.transferFileCache = null;
+			event.finish(this.dockerImageName, "transfer-files-cache");
+		}
+	}
+	
 	/**
 	 * Creates a copy of the image-builder that will build the exact same image.
 	 * <p>
 	 * NOTE: Requires {@link #createTransferFilesCache} to be set to <code>true</code> and an initial build, so that
 	 * {@link #transferFileCache} is seeded.
 	 * </p>
+	 * <p>
+	 * The copy holds its own reference to the {@link #transferFileCache} (if supported) which is released after the
+	 * copy was built. The files are freed up when all references have been released.
+	 * If the {@link #transferFileCache} doesn't support references it's shared with the copy (and not released after
+	 * the copy was built).
+	 * </p>
+	 * <p>
+	 * The copy uses the same {@link #filesToTransferHandler}, so that it's able to recompute the same files if the
+	 * {@link #transferFileCache} was already released.
+	 * </p>
 	 */
 	public abstract S copyForExactRebuild(final String dockerImageName);
 	
@@ -284,11 +513,30 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 			throw new IllegalStateException("No transferFileCache. Did you build this image?");
 		}
 		
+		final Optional<FilesToTransferInfo> optRetainedTransferFileCache = this.transferFileCache.retain(false);
+		final FilesToTransferInfo copyTransferFileCache;
+		if(optRetainedTransferFileCache.isPresent())
+		{
+			copyTransferFileCache = optRetainedTransferFileCache.get();
+		}
+		else if(!this.transferFileCache.isReleased())
+		{
+			// References are not supported (e.g. custom implementation) -> Share it like before
+			copyTransferFileCache = this.transferFileCache;
+		}
+		else
+		{
+			this.log().debug("transferFileCache was already released; Copy will recompute the files to transfer");
+			copyTransferFileCache = null;
+		}
+		
 		final S image = createNewFunc.apply(dockerImageName, this.deleteOnExit)
 			.withBuildArgs(this.buildArgs)
+			.withFilesToTransferHandler(this.filesToTransferHandler)
 			.withCreateTransferFilesCache(false)
-			.withTransferFileCache(this.transferFileCache)
+			.withTransferFileCache(copyTransferFileCache)
 			.withDisablePull(true);
+		image.releaseTransferFileCacheAfterBuild = optRetainedTransferFileCache.isPresent();
 		
 		this.optDockerFilePath.ifPresent(image::withDockerFilePath);
 		this.optBaseDir.ifPresent(image::withBaseDir);
@@ -299,7 +547,8 @@ public abstract class AbstractImageFromDockerfile<S extends AbstractImageFromDoc
 	
 	public void cleanCreatedTransferFilesCache()
 	{
-		if(this.createTransferFilesCache && this.transferFileCache != null)
+		if((this.createTransferFilesCache || this.releaseTransferFileCacheAfterBuild)
+			&& this.transferFileCache != null)
 		{
 			this.transferFileCache.close();
 			this.transferFileCache = null;
@@ -16,25 +16,33 @@
 package software.xdev.testcontainers.imagebuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
 import org.slf4j.Logger;
 import org.testcontainers.DockerClientFactory;
 import org.testcontainers.images.builder.Transferable;
@@ -48,7 +56,12 @@ import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.BuildImageCmd;
 import com.github.dockerjava.api.command.BuildImageResultCallback;
 
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
+import software.xdev.testcontainers.imagebuilder.jfr.DaemonBuildEvent;
 import software.xdev.testcontainers.imagebuilder.log.LoggingBuildImageResultCallback;
+import software.xdev.testcontainers.imagebuilder.log.steps.BuildStepListener;
+import software.xdev.testcontainers.imagebuilder.log.steps.BuildStepReport;
+import software.xdev.testcontainers.imagebuilder.log.steps.ClassicBuildStreamParser;
 import software.xdev.testcontainers.imagebuilder.transfer.FastFilePathRelativizer;
 import software.xdev.testcontainers.imagebuilder.transfer.TransferFilesCreator;
 
@@ -77,6 +90,9 @@ public class AdvancedImageFromDockerFile
 {
 	protected final Map<String, Transferable> explicitTransferables = new HashMap<>();
 	protected final Set<Consumer<BuildImageCmd>> buildImageCmdModifiers = new LinkedHashSet<>();
+	protected final List<BuildStepListener> buildStepListeners = new ArrayList<>();
+	protected BuildStepReport lastBuildStepReport;
+	protected Consumer<LoggingBuildImageResultCallback> buildImageResultCallbackCustomizer;
 	
 	public AdvancedImageFromDockerFile()
 	{
@@ -108,6 +124,7 @@ public class AdvancedImageFromDockerFile
 		final DockerClient dockerClient = DockerClientFactory.instance().client();
 		
 		this.log().info("Starting resolving image[name='{}']", this.dockerImageName);
+		this.startBuildReport();
 		
 		try
 		{
@@ -131,19 +148,66 @@ public class AdvancedImageFromDockerFile
 			this.log().info("Starting building image[name='{}']", this.dockerImageName);
 			final long buildStartTime = System.currentTimeMillis();
 			
-			final BuildImageResultCallback exec = buildImageCmd.exec(
-				this.getBuildImageResultCallback(this.calcLoggerForBuild()));
-			
-			final long bytesToDockerDaemon = this.getBytesToDockerDaemon(out);
-			
-			if(this.log().isDebugEnabled())
+			final BuildAdmissionController.Permit permit =
+				this.admissionController().acquire(BuildAdmissionController.Operation.BUILD);
+			final long buildStartNanos = System.nanoTime();
+			final DaemonBuildEvent buildEvent = new DaemonBuildEvent();
+			buildEvent.begin();
+			boolean success = false;
+			try
 			{
-				this.log().debug(
-					"Transferred {} manually (not actually) to Docker daemon",
-					FileUtils.byteCountToDisplaySize(bytesToDockerDaemon));
+				final BuildImageResultCallback exec = buildImageCmd.exec(
+					this.getBuildImageResultCallback(this.calcLoggerForBuild()));
+				
+				final long bytesToDockerDaemon;
+				if(this.optBaseDir.isEmpty())
+				{
+					// The explicit transferables are the context that is uploaded
+					final long uploadStartNanos = System.nanoTime();
+					final BuildAdmissionController.Permit uploadPermit =
+						this.admissionController().acquire(BuildAdmissionController.Operation.UPLOAD);
+					try
+					{
+						bytesToDockerDaemon = this.getBytesToDockerDaemon(out);
+					}
+					finally
+					{
+						uploadPermit.close();
+					}
+					this.recordBuildReport(r -> r.upload(
+						Duration.ofNanos(System.nanoTime() - uploadStartNanos),
+						bytesToDockerDaemon));
+				}
+				else
+				{
+					// The context is uploaded from the TAR input stream
+					// -> admission is controlled by UploadMeasuringInputStream
+					bytesToDockerDaemon = this.getBytesToDockerDaemon(out);
+				}
+				
+				if(this.log().isDebugEnabled())
+				{
+					this.log().debug(
+						"Transferred {} manually (not actually) to Docker daemon",
+						FileUtils.byteCountToDisplaySize(bytesToDockerDaemon));
+				}
+				
+				exec.awaitImageId();
+				success = true;
+			}
+			finally
+			{
+				permit.close();
+				final Duration buildDuration = Duration.ofNanos(System.nanoTime() - buildStartNanos);
+				this.metrics().onBuild(this.dockerImageName, buildDuration, success);
+				this.recordBuildReport(r -> r.build(buildDuration));
+				final List<BuildStepReport.BuildStep> steps = this.getLastBuildStepReport()
+					.map(BuildStepReport::steps)
+					.orElse(List.of());
+				final int cachedSteps = (int)steps.stream().filter(BuildStepReport.BuildStep::cached).count();
+				this.recordBuildReport(r -> r.steps(steps.size(), cachedSteps));
+				buildEvent.finish(this.dockerImageName, "docker", steps.size(), cachedSteps, success);
 			}
-			
-			exec.awaitImageId();
 			
 			this.log().info(
 				"Building of image[name='{}'] was done in {}ms",
@@ -156,6 +220,11 @@ public class AdvancedImageFromDockerFile
 		{
 			throw new UncheckedIOException(e);
 		}
+		finally
+		{
+			this.releaseTransferFileCacheAfterBuild();
+			this.finishBuildReport();
+		}
 	}
 	
 	protected long getBytesToDockerDaemon(final PipedOutputStream out) throws IOException
@@ -181,7 +250,27 @@ public class AdvancedImageFromDockerFile
 	
 	protected BuildImageResultCallback getBuildImageResultCallback(final Logger logger)
 	{
-		return new LoggingBuildImageResultCallback(logger);
+		final BuildStepReport report = new BuildStepReport();
+		this.lastBuildStepReport = report;
+		
+		final List<BuildStepListener> listeners = new ArrayList<>(this.buildStepListeners);
+		listeners.add(report);
+		final LoggingBuildImageResultCallback callback = new LoggingBuildImageResultCallback(
+			logger,
+			new ClassicBuildStreamParser(BuildStepListener.all(listeners)));
+		if(this.buildImageResultCallbackCustomizer != null)
+		{
+			this.buildImageResultCallbackCustomizer.accept(callback);
+		}
+		return callback;
+	}
+	
+	/**
+	 * @return the steps (timings, cache hits) of the last build
+	 */
+	public Optional<BuildStepReport> getLastBuildStepReport()
+	{
+		return Optional.ofNullable(this.lastBuildStepReport);
 	}
 	
 	protected ConfigurationState configure(final BuildImageCmd buildImageCmd)
@@ -201,7 +290,10 @@ public class AdvancedImageFromDockerFile
 		});
 		
 		this.optBaseDir.ifPresent(baseDir -> {
-			buildImageCmd.withTarInputStream(this.calcFileTransferInfo(baseDir).filesToTransfer());
+			buildImageCmd.withTarInputStream(new UploadMeasuringInputStream(
+				this.calcFileTransferInfo(baseDir).filesToTransfer(),
+				this.admissionController(),
+				this::recordUpload));
 			buildImageCmd.withBaseDirectory(baseDir.toFile());
 		});
 		
@@ -212,11 +304,97 @@ public class AdvancedImageFromDockerFile
 		return state;
 	}
 	
+	protected void recordUpload(final Duration duration, final long bytes)
+	{
+		this.recordBuildReport(r -> r.upload(duration, bytes));
+	}
+	
 	protected ConfigurationState createNewConfigurationState()
 	{
 		return new ConfigurationState();
 	}
 	
+	/**
+	 * Measures how long it takes to transfer the build context to the Docker daemon (from the first read until EOF).
+	 * <p>
+	 * The upload is admitted by the {@link BuildAdmissionController} on the first read and the permit is released on
+	 * EOF or when the stream is closed.
+	 * </p>
+	 */
+	protected static class UploadMeasuringInputStream extends ProxyInputStream
+	{
+		protected final BuildAdmissionController admissionController;
+		protected final BiConsumer<Duration, Long> onCompleted;
+		protected final AtomicBoolean completed = new AtomicBoolean();
+		protected volatile BuildAdmissionController.Permit uploadPermit;
+		protected long startNanos = -1;
+		protected long bytes;
+		
+		public UploadMeasuringInputStream(
+			final InputStream in,
+			final BuildAdmissionController admissionController,
+			final BiConsumer<Duration, Long> onCompleted)
+		{
+			super(in);
+			this.admissionController = admissionController;
+			this.onCompleted = onCompleted;
+		}
+		
+		@Override
+		protected void beforeRead(final int n)
+		{
+			if(this.startNanos == -1 && !this.completed.get())
+			{
+				if(this.admissionController != null)
+				{
+					this.uploadPermit = this.admissionController.acquire(BuildAdmissionController.Operation.UPLOAD);
+					if(this.completed.get())
+					{
+						// Closed concurrently
+						this.uploadPermit.close();
+					}
+				}
+				this.startNanos = System.nanoTime();
+			}
+		}
+		
+		@Override
+		protected void afterRead(final int n)
+		{
+			if(n == IOUtils.EOF)
+			{
+				this.complete();
+			}
+			else
+			{
+				this.bytes += n;
+			}
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			this.complete();
+			super.close();
+		}
+		
+		protected void complete()
+		{
+			if(this.completed.compareAndSet(false, true))
+			{
+				final BuildAdmissionController.Permit permit = this.uploadPermit;
+				if(permit != null)
+				{
+					permit.close();
+				}
+				if(this.startNanos != -1)
+				{
+					this.onCompleted.accept(Duration.ofNanos(System.nanoTime() - this.startNanos), this.bytes);
+				}
+			}
+		}
+	}
+	
 	protected static class ConfigurationState
 	{
 		protected Set<String> externalDependencyImageNames = Set.of();
@@ -243,7 +421,7 @@ public class AdvancedImageFromDockerFile
 			return;
 		}
 		
-		final AdvancedParsedDockerfile parsedDockerFile = new AdvancedParsedDockerfile(dockerFile);
+		final AdvancedParsedDockerfile parsedDockerFile = this.parseDockerfile(dockerFile);
 		
 		this.log().info("Resolving dependency images...");
 		final Set<String> externalDependencyImageNames = this.fullyResolveDependencyImages(
@@ -273,7 +451,9 @@ public class AdvancedImageFromDockerFile
 	{
 		return super.copyForExactRebuild(createNewFunc, dockerImageName)
 			.withExplicitTransferables(this.explicitTransferables)
-			.withBuildImageCmdModifiers(this.buildImageCmdModifiers);
+			.withBuildImageCmdModifiers(this.buildImageCmdModifiers)
+			.withBuildStepListeners(this.buildStepListeners)
+			.withBuildImageResultCallbackCustomizer(this.buildImageResultCallbackCustomizer);
 	}
 	
 	/**
@@ -329,5 +509,28 @@ public class AdvancedImageFromDockerFile
 		return this;
 	}
 	
+	public AdvancedImageFromDockerFile withBuildStepListeners(final Collection<BuildStepListener> listeners)
+	{
+		this.buildStepListeners.addAll(listeners);
+		return this;
+	}
+	
+	/**
+	 * Customizes how the build output is logged, e.g.
+	 * {@link LoggingBuildImageResultCallback#withOnlyLogLastLinesOnFailure(int)}.
+	 */
+	public AdvancedImageFromDockerFile withBuildImageResultCallbackCustomizer(
+		final Consumer<LoggingBuildImageResultCallback> customizer)
+	{
+		this.buildImageResultCallbackCustomizer = customizer;
+		return this;
+	}
+	
+	public AdvancedImageFromDockerFile withBuildStepListener(final BuildStepListener listener)
+	{
+		this.buildStepListeners.add(listener);
+		return this;
+	}
+	
 	// endregion
 }
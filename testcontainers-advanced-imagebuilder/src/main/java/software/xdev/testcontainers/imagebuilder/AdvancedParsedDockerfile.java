@@ -59,6 +59,7 @@ public class AdvancedParsedDockerfile
 	protected Set<String> dependencyImageNames = Collections.emptySet();
 	protected Set<String> internalDependencyImageNames = Collections.emptySet();
 	protected Set<String> externalImageNames = Collections.emptySet();
+	protected List<String> stageNames = Collections.emptyList();
 	protected final Map<String, Optional<String>> arguments = new HashMap<>();
 	
 	public AdvancedParsedDockerfile(final Path dockerFilePath)
@@ -96,17 +97,19 @@ public class AdvancedParsedDockerfile
 		// FROM
 		this.dependencyImageNames = matchedFromLines.stream()
 			.map(matcher -> matcher.group("image"))
-			.collect(Collectors.toSet());
+			.collect(Collectors.toUnmodifiableSet());
 		
 		if(!this.dependencyImageNames.isEmpty())
 		{
 			LOG.debug("Found dependency images in Dockerfile {}: {}", this.dockerFilePath, this.dependencyImageNames);
 		}
 		
-		this.internalDependencyImageNames = matchedFromLines.stream()
+		this.stageNames = matchedFromLines.stream()
 			.map(m -> m.group("as"))
 			.filter(Objects::nonNull)
-			.collect(Collectors.toSet());
+			.toList();
+		
+		this.internalDependencyImageNames = Set.copyOf(this.stageNames);
 		
 		if(!this.internalDependencyImageNames.isEmpty())
 		{
@@ -118,7 +121,7 @@ public class AdvancedParsedDockerfile
 		
 		this.externalImageNames = this.dependencyImageNames.stream()
 			.filter(i -> !this.internalDependencyImageNames.contains(i))
-			.collect(Collectors.toSet());
+			.collect(Collectors.toUnmodifiableSet());
 		
 		// ARG
 		final Properties properties = new Properties();
@@ -164,8 +167,16 @@ public class AdvancedParsedDockerfile
 		return this.externalImageNames;
 	}
 	
+	/**
+	 * @return the names of all (named) stages in the order they are declared in the Dockerfile
+	 */
+	public List<String> getStageNames()
+	{
+		return this.stageNames;
+	}
+	
 	public Map<String, Optional<String>> getArguments()
 	{
-		return this.arguments;
+		return Collections.unmodifiableMap(this.arguments);
 	}
 }
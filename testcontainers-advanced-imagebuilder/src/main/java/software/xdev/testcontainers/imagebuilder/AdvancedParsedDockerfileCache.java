@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * JVM-wide cache for {@link AdvancedParsedDockerfile}s.
+ * <p>
+ * A Dockerfile is only read and parsed again when its last modified time or size changed.
+ * </p>
+ * <p>
+ * This is useful when a lot of image-builders are created for the same few Dockerfiles.
+ * </p>
+ */
+public class AdvancedParsedDockerfileCache
+{
+	private static AdvancedParsedDockerfileCache instance;
+	
+	public static AdvancedParsedDockerfileCache instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new AdvancedParsedDockerfileCache();
+	}
+	
+	public static void setInstance(final AdvancedParsedDockerfileCache instance)
+	{
+		AdvancedParsedDockerfileCache.instance = instance;
+	}
+	
+	protected final Map<Path, CachedParsedDockerfile> cache = new ConcurrentHashMap<>();
+	
+	public AdvancedParsedDockerfile get(final Path dockerFilePath)
+	{
+		final Path normalizedPath = dockerFilePath.toAbsolutePath().normalize();
+		
+		final BasicFileAttributes attributes;
+		try
+		{
+			attributes = Files.readAttributes(normalizedPath, BasicFileAttributes.class);
+		}
+		catch(final IOException ioe)
+		{
+			// e.g. the file doesn't exist (anymore) -> don't cache
+			this.cache.remove(normalizedPath);
+			return this.parse(dockerFilePath);
+		}
+		
+		return this.cache.compute(
+				normalizedPath,
+				(p, existing) -> existing != null && existing.isUpToDate(attributes)
+					? existing
+					: new CachedParsedDockerfile(
+						attributes.lastModifiedTime(),
+						attributes.size(),
+						this.parse(dockerFilePath)))
+			.parsedDockerfile();
+	}
+	
+	protected AdvancedParsedDockerfile parse(final Path dockerFilePath)
+	{
+		return new AdvancedParsedDockerfile(dockerFilePath);
+	}
+	
+	public void clear()
+	{
+		this.cache.clear();
+	}
+	
+	protected record CachedParsedDockerfile(
+		FileTime lastModifiedTime,
+		long size,
+		AdvancedParsedDockerfile parsedDockerfile)
+	{
+		boolean isUpToDate(final BasicFileAttributes attributes)
+		{
+			return this.lastModifiedTime.equals(attributes.lastModifiedTime())
+				&& this.size == attributes.size();
+		}
+	}
+}
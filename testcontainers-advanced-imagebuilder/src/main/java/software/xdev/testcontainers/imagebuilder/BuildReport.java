@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.commons.io.FileUtils;
+
+import software.xdev.testcontainers.imagebuilder.transfer.ContextStatistics;
+
+
+/**
+ * Summary of the phases of an image build.
+ *
+ * @param imageName      name of the built image
+ * @param totalDuration  duration of the whole build (including context creation and pulls)
+ * @param context        statistics of the build context; <code>null</code> if unknown
+ * @param contextReused  if an already existing (cached) build context was reused
+ * @param pullDurations  duration of the pull of each dependency image
+ * @param uploadDuration duration of transferring the build context to the builder; <code>null</code> if unknown
+ * @param uploadedBytes  number of bytes transferred to the builder; <code>-1</code> if unknown
+ * @param buildDuration  duration of the build inside the daemon/builder; <code>null</code> if unknown
+ * @param steps          number of executed build steps
+ * @param cachedSteps    number of build steps that were cached
+ */
+public record BuildReport(
+	String imageName,
+	Duration totalDuration,
+	ContextStatistics context,
+	boolean contextReused,
+	Map<String, Duration> pullDurations,
+	Duration uploadDuration,
+	long uploadedBytes,
+	Duration buildDuration,
+	int steps,
+	int cachedSteps)
+{
+	public BuildReport
+	{
+		pullDurations = Collections.unmodifiableMap(new LinkedHashMap<>(pullDurations));
+	}
+	
+	public Optional<ContextStatistics> optContext()
+	{
+		return Optional.ofNullable(this.context);
+	}
+	
+	public Duration totalPullDuration()
+	{
+		return this.pullDurations.values().stream().reduce(Duration.ZERO, Duration::plus);
+	}
+	
+	/**
+	 * @return ratio (0-1) of the steps that were cached; <code>0</code> if there are no steps
+	 */
+	public double cacheHitRatio()
+	{
+		return this.steps > 0 ? (double)this.cachedSteps / this.steps : 0;
+	}
+	
+	/**
+	 * @return a human readable summary with one line per phase
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public String format()
+	{
+		final StringBuilder sb = new StringBuilder()
+			.append("Build of image[name='").append(this.imageName).append("'] took ")
+			.append(this.totalDuration.toMillis()).append("ms");
+		if(this.context != null)
+		{
+			final ContextStatistics.Walk walk = this.context.walk();
+			if(walk != null)
+			{
+				sb.append("\n  Walk:   ").append(walk.walkDuration().toMillis()).append("ms, ")
+					.append(walk.walkedFiles()).append(" files")
+					.append("\n  Ignore: ").append(walk.ignoreMatchDuration().toMillis()).append("ms, ")
+					.append(walk.transferredFiles()).append(" transferred / ")
+					.append(walk.ignoredFiles()).append(" ignored files");
+			}
+			final ContextStatistics.Tar tar = this.context.tar();
+			sb.append("\n  TAR:    ").append(tar.duration().toMillis()).append("ms, ")
+				.append(tar.entries()).append(" entries, ")
+				.append(FileUtils.byteCountToDisplaySize(tar.uncompressedBytes())).append(" -> ")
+				.append(FileUtils.byteCountToDisplaySize(tar.writtenBytes()));
+		}
+		if(this.contextReused)
+		{
+			sb.append("\n  Context: reused");
+		}
+		this.pullDurations.forEach((image, duration) ->
+			sb.append("\n  Pull:   ").append(duration.toMillis()).append("ms ").append(image));
+		if(this.uploadDuration != null)
+		{
+			sb.append("\n  Upload: ").append(this.uploadDuration.toMillis()).append("ms");
+			if(this.uploadedBytes >= 0)
+			{
+				sb.append(", ").append(FileUtils.byteCountToDisplaySize(this.uploadedBytes));
+			}
+		}
+		if(this.buildDuration != null)
+		{
+			sb.append("\n  Build:  ").append(this.buildDuration.toMillis()).append("ms, ")
+				.append(this.steps).append(" steps, cache hit ratio ")
+				.append(Math.round(this.cacheHitRatio() * 100)).append('%');
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.format();
+	}
+	
+	/**
+	 * Collects the data for a {@link BuildReport} while a build is running.
+	 * <p>
+	 * This class is thread-safe as e.g. pulls are executed in parallel.
+	 * </p>
+	 */
+	public static class Recorder
+	{
+		protected final long startNanos = System.nanoTime();
+		protected final Map<String, Duration> pullDurations = new LinkedHashMap<>();
+		protected ContextStatistics context;
+		protected boolean contextReused;
+		protected Duration uploadDuration;
+		protected long uploadedBytes = -1;
+		protected Duration buildDuration;
+		protected int steps;
+		protected int cachedSteps;
+		
+		public synchronized Recorder context(final ContextStatistics context, final boolean reused)
+		{
+			this.context = context;
+			this.contextReused = reused;
+			return this;
+		}
+		
+		public synchronized Recorder pull(final String imageName, final Duration duration)
+		{
+			this.pullDurations.put(imageName, duration);
+			return this;
+		}
+		
+		public synchronized Recorder upload(final Duration duration, final long bytes)
+		{
+			this.uploadDuration = duration;
+			this.uploadedBytes = bytes;
+			return this;
+		}
+		
+		public synchronized Recorder build(final Duration duration)
+		{
+			this.buildDuration = duration;
+			return this;
+		}
+		
+		public synchronized Recorder steps(final int steps, final int cachedSteps)
+		{
+			this.steps = steps;
+			this.cachedSteps = cachedSteps;
+			return this;
+		}
+		
+		public synchronized BuildReport finish(final String imageName)
+		{
+			return new BuildReport(
+				imageName,
+				Duration.ofNanos(System.nanoTime() - this.startNanos),
+				this.context,
+				this.contextReused,
+				this.pullDurations,
+				this.uploadDuration,
+				this.uploadedBytes,
+				this.buildDuration,
+				this.steps,
+				this.cachedSteps);
+		}
+	}
+}
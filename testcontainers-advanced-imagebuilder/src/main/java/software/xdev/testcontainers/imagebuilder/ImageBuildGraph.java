@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.utility.DockerImageName;
+
+import software.xdev.testcontainers.imagebuilder.concurrent.ImageBuilderExecutorServiceHolder;
+
+
+/**
+ * Builds multiple images that depend on each other (e.g. a base image and multiple images that are built
+ * <code>FROM</code> it).
+ * <p>
+ * The dependencies are inferred by matching the {@link AbstractImageFromDockerfile#getDependencyImageNames()
+ * dependency images} of a builder against the {@link AbstractImageFromDockerfile#getDockerImageName() image names}
+ * of the other builders. Images whose dependencies have been built are built concurrently (limited by
+ * {@link #parallelism}).
+ * </p>
+ * <p>
+ * If a build fails all running builds are cancelled and no further builds are started.
+ * </p>
+ */
+public class ImageBuildGraph
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ImageBuildGraph.class);
+	
+	protected final List<AbstractImageFromDockerfile<?>> images = new ArrayList<>();
+	protected int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+	protected Duration timeoutPerImage = Duration.ofMinutes(5);
+	
+	/**
+	 * Builds all images.
+	 *
+	 * @return the names of the built images (in the order in which they were built)
+	 */
+	public List<String> build()
+	{
+		final Map<AbstractImageFromDockerfile<?>, Set<AbstractImageFromDockerfile<?>>> dependencies =
+			this.resolveDependencies();
+		// Fail before anything is built
+		this.topologicalOrder(dependencies);
+		
+		final Map<AbstractImageFromDockerfile<?>, Integer> remainingDependencyCounts = new HashMap<>();
+		final Map<AbstractImageFromDockerfile<?>, List<AbstractImageFromDockerfile<?>>> dependents = new HashMap<>();
+		final Queue<AbstractImageFromDockerfile<?>> ready = new ArrayDeque<>();
+		dependencies.forEach((image, imageDependencies) -> {
+			remainingDependencyCounts.put(image, imageDependencies.size());
+			imageDependencies.forEach(d -> dependents.computeIfAbsent(d, x -> new ArrayList<>()).add(image));
+			if(imageDependencies.isEmpty())
+			{
+				ready.add(image);
+			}
+		});
+		
+		final CompletionService<AbstractImageFromDockerfile<?>> completionService =
+			new ExecutorCompletionService<>(this.executorService());
+		final List<Future<AbstractImageFromDockerfile<?>>> futures = new ArrayList<>();
+		final List<String> builtImageNames = new ArrayList<>(dependencies.size());
+		int running = 0;
+		try
+		{
+			while(builtImageNames.size() < dependencies.size())
+			{
+				while(running < this.parallelism && !ready.isEmpty())
+				{
+					final AbstractImageFromDockerfile<?> image = ready.poll();
+					futures.add(completionService.submit(() -> {
+						image.build(this.timeoutPerImage);
+						return image;
+					}));
+					running++;
+				}
+				
+				final AbstractImageFromDockerfile<?> built = completionService.take().get();
+				running--;
+				builtImageNames.add(built.getDockerImageName());
+				
+				for(final AbstractImageFromDockerfile<?> dependent : dependents.getOrDefault(built, List.of()))
+				{
+					if(remainingDependencyCounts.merge(dependent, -1, Integer::sum) == 0)
+					{
+						ready.add(dependent);
+					}
+				}
+			}
+		}
+		catch(final ExecutionException ex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			throw new IllegalStateException("Failed to build image graph", ex.getCause());
+		}
+		catch(final InterruptedException iex)
+		{
+			futures.forEach(f -> f.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Got interrupted", iex);
+		}
+		
+		return builtImageNames;
+	}
+	
+	/**
+	 * @return the dependencies (inside the graph) of each image
+	 */
+	protected Map<AbstractImageFromDockerfile<?>, Set<AbstractImageFromDockerfile<?>>> resolveDependencies()
+	{
+		final Map<String, AbstractImageFromDockerfile<?>> imagesByName = new HashMap<>();
+		for(final AbstractImageFromDockerfile<?> image : this.images)
+		{
+			if(imagesByName.put(this.normalizeImageName(image.getDockerImageName()), image) != null)
+			{
+				throw new IllegalArgumentException("Duplicate image name: " + image.getDockerImageName());
+			}
+		}
+		
+		final Map<AbstractImageFromDockerfile<?>, Set<AbstractImageFromDockerfile<?>>> dependencies =
+			new LinkedHashMap<>();
+		for(final AbstractImageFromDockerfile<?> image : this.images)
+		{
+			dependencies.put(
+				image,
+				image.getDependencyImageNames()
+					.stream()
+					.map(this::normalizeImageName)
+					.map(imagesByName::get)
+					.filter(d -> d != null && d != image)
+					.collect(Collectors.toCollection(LinkedHashSet::new)));
+		}
+		return dependencies;
+	}
+	
+	/**
+	 * @throws IllegalStateException if there is a cycle
+	 */
+	protected List<AbstractImageFromDockerfile<?>> topologicalOrder(
+		final Map<AbstractImageFromDockerfile<?>, Set<AbstractImageFromDockerfile<?>>> dependencies)
+	{
+		final List<AbstractImageFromDockerfile<?>> order = new ArrayList<>(dependencies.size());
+		final Map<AbstractImageFromDockerfile<?>, Set<AbstractImageFromDockerfile<?>>> remaining =
+			new LinkedHashMap<>();
+		dependencies.forEach((image, imageDependencies) ->
+			remaining.put(image, new LinkedHashSet<>(imageDependencies)));
+		
+		while(!remaining.isEmpty())
+		{
+			final List<AbstractImageFromDockerfile<?>> resolvable = remaining.entrySet()
+				.stream()
+				.filter(e -> e.getValue().isEmpty())
+				.map(Map.Entry::getKey)
+				.toList();
+			if(resolvable.isEmpty())
+			{
+				throw new IllegalStateException("Detected a dependency cycle between the images: "
+					+ remaining.keySet()
+					.stream()
+					.map(AbstractImageFromDockerfile::getDockerImageName)
+					.collect(Collectors.joining(", ")));
+			}
+			
+			resolvable.forEach(remaining::remove);
+			remaining.values().forEach(d -> resolvable.forEach(d::remove));
+			order.addAll(resolvable);
+		}
+		return order;
+	}
+	
+	protected String normalizeImageName(final String imageName)
+	{
+		try
+		{
+			return DockerImageName.parse(imageName).asCanonicalNameString();
+		}
+		catch(final IllegalArgumentException iae)
+		{
+			LOG.debug("Unable to parse image name '{}'", imageName, iae);
+			return imageName;
+		}
+	}
+	
+	protected ExecutorService executorService()
+	{
+		return ImageBuilderExecutorServiceHolder.instance();
+	}
+	
+	// region with
+	
+	public ImageBuildGraph withImage(final AbstractImageFromDockerfile<?> image)
+	{
+		this.images.add(image);
+		return this;
+	}
+	
+	public ImageBuildGraph withImages(final Collection<? extends AbstractImageFromDockerfile<?>> images)
+	{
+		this.images.addAll(images);
+		return this;
+	}
+	
+	public ImageBuildGraph withParallelism(final int parallelism)
+	{
+		if(parallelism < 1)
+		{
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+	
+	public ImageBuildGraph withTimeoutPerImage(final Duration timeoutPerImage)
+	{
+		this.timeoutPerImage = timeoutPerImage;
+		return this;
+	}
+	
+	// endregion
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Checks (once per JVM) if a named buildx builder exists and is ready.
+ * <p>
+ * The check uses <code>docker buildx inspect --bootstrap</code>, which also starts the builder if required. This way
+ * the builder is only set up once and not by every build.
+ * </p>
+ * <p>
+ * Concurrent callers for the same builder wait for the running check. A builder that is not available is checked
+ * again after {@link #withFailureTtl(Duration) failureTtl}, as the failure might have been transient.
+ * </p>
+ */
+public class BuildxBuilderAvailability
+{
+	private static final Logger LOG = LoggerFactory.getLogger(BuildxBuilderAvailability.class);
+	
+	private static BuildxBuilderAvailability instance;
+	
+	public static BuildxBuilderAvailability instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new BuildxBuilderAvailability();
+	}
+	
+	public static void setInstance(final BuildxBuilderAvailability instance)
+	{
+		BuildxBuilderAvailability.instance = instance;
+	}
+	
+	protected final Map<List<String>, CompletableFuture<CheckResult>> results = new ConcurrentHashMap<>();
+	protected Duration timeout = Duration.ofMinutes(2);
+	protected Duration failureTtl = Duration.ofSeconds(30);
+	
+	/**
+	 * @param inspectBaseCommand e.g. <code>docker buildx inspect --bootstrap</code>
+	 * @param builder            the name of the builder
+	 * @return if the builder is available; the result is cached
+	 */
+	public boolean isAvailable(final List<String> inspectBaseCommand, final String builder)
+	{
+		final List<String> commandBuilder = new ArrayList<>(inspectBaseCommand);
+		commandBuilder.add(builder);
+		final List<String> command = List.copyOf(commandBuilder);
+		
+		while(true)
+		{
+			// The check itself runs outside of the map operation so that it doesn't block other keys
+			final CompletableFuture<CheckResult> checking = new CompletableFuture<>();
+			final CompletableFuture<CheckResult> existing = this.results.putIfAbsent(command, checking);
+			if(existing == null)
+			{
+				return this.runCheck(command, checking).available();
+			}
+			
+			final CheckResult result = this.await(existing);
+			if(result != null && !this.isExpired(result))
+			{
+				return result.available();
+			}
+			// Failed or expired -> check again
+			this.results.remove(command, existing);
+		}
+	}
+	
+	protected CheckResult runCheck(final List<String> command, final CompletableFuture<CheckResult> checking)
+	{
+		try
+		{
+			final CheckResult result = new CheckResult(this.check(command), System.nanoTime());
+			checking.complete(result);
+			return result;
+		}
+		catch(final RuntimeException ex)
+		{
+			this.results.remove(command, checking);
+			checking.completeExceptionally(ex);
+			throw ex;
+		}
+	}
+	
+	protected CheckResult await(final CompletableFuture<CheckResult> future)
+	{
+		try
+		{
+			return future.join();
+		}
+		catch(final CompletionException ex)
+		{
+			return null;
+		}
+	}
+	
+	protected boolean isExpired(final CheckResult result)
+	{
+		return !result.available() && System.nanoTime() - result.checkedAtNanos() >= this.failureTtl.toNanos();
+	}
+	
+	protected boolean check(final List<String> command)
+	{
+		LOG.info("Checking buildx builder: {}", command);
+		try
+		{
+			final Process p = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+			if(!p.waitFor(this.timeout.toMillis(), TimeUnit.MILLISECONDS))
+			{
+				p.destroy();
+				LOG.warn("Checking buildx builder timed out: {}", command);
+				return false;
+			}
+			return p.exitValue() == 0;
+		}
+		catch(final IOException ioe)
+		{
+			LOG.warn("Failed to check buildx builder: {}", command, ioe);
+			return false;
+		}
+		catch(final InterruptedException iex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Got interrupted", iex);
+		}
+	}
+	
+	/**
+	 * Forgets all results, e.g. after a builder was created or removed.
+	 */
+	public void reset()
+	{
+		this.results.clear();
+	}
+	
+	public BuildxBuilderAvailability withTimeout(final Duration timeout)
+	{
+		this.timeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * How long a builder that is not available is cached until it's checked again (default: 30s).
+	 */
+	public BuildxBuilderAvailability withFailureTtl(final Duration failureTtl)
+	{
+		this.failureTtl = failureTtl;
+		return this;
+	}
+	
+	protected record CheckResult(boolean available, long checkedAtNanos)
+	{
+	}
+}
@@ -15,29 +15,62 @@
  */
 package software.xdev.testcontainers.imagebuilder.buildxnative;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Scanner;
-import java.util.UUID;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.function.IOConsumer;
 import org.slf4j.Logger;
 
 import software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile;
+import software.xdev.testcontainers.imagebuilder.BuildTarget;
+import software.xdev.testcontainers.imagebuilder.buildxnative.cache.LocalBuildCacheManager;
+import software.xdev.testcontainers.imagebuilder.buildxnative.context.BuildContextMirror;
+import software.xdev.testcontainers.imagebuilder.buildxnative.context.NamedBuildContext;
+import software.xdev.testcontainers.imagebuilder.buildxnative.progress.BuildProgressListener;
+import software.xdev.testcontainers.imagebuilder.buildxnative.progress.BuildProgressReport;
+import software.xdev.testcontainers.imagebuilder.buildxnative.progress.BuildVertex;
+import software.xdev.testcontainers.imagebuilder.buildxnative.progress.RawJsonProgressParser;
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
+import software.xdev.testcontainers.imagebuilder.jfr.CleanupEvent;
+import software.xdev.testcontainers.imagebuilder.jfr.DaemonBuildEvent;
+import software.xdev.testcontainers.imagebuilder.json.SimpleJson;
+import software.xdev.testcontainers.imagebuilder.temp.WorkingDirPool;
+import software.xdev.testcontainers.imagebuilder.transfer.ContextStatistics;
 import software.xdev.testcontainers.imagebuilder.transfer.FastFilePathRelativizer;
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
 import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferInfo;
 
 
@@ -71,11 +104,104 @@ import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferInfo;
 public class NativeAdvancedImageFromDockerfile
 	extends AbstractImageFromDockerfile<NativeAdvancedImageFromDockerfile>
 {
+	protected static final String BAKE_DEFINITION_FILE = "docker-bake.json";
+	protected static final String BAKE_CONTEXT_DIR = "context";
+	protected static final String RAW_JSON_PROGRESS_ARG = "--progress=rawjson";
+	protected static final int STDIN_BUFFER_SIZE = 64 * 1024;
+	/**
+	 * <code>docker buildx build</code> flags (without value) that are also supported by <code>bake</code>.
+	 */
+	protected static final Set<String> BAKE_COMPATIBLE_FLAGS = Set.of("--no-cache", "--pull", "--push");
+	/**
+	 * <code>docker buildx build</code> options (with value) that are also supported by <code>bake</code>.
+	 */
+	protected static final Set<String> BAKE_COMPATIBLE_OPTIONS = Set.of("--provenance", "--sbom");
+	/**
+	 * <code>docker buildx build</code> options that can be expressed as <code>bake --set *.&lt;attribute&gt;</code>.
+	 */
+	protected static final Map<String, String> BAKE_SET_ATTRIBUTE_OPTIONS = Map.of(
+		"--platform", "platform",
+		"--secret", "secrets",
+		"--ssh", "ssh",
+		"--output", "output",
+		"-o", "output",
+		"--no-cache-filter", "no-cache-filter",
+		"--annotation", "annotations",
+		"--attest", "attest");
+	/**
+	 * POSIX permissions in the order of their bits (<code>0400</code> to <code>0001</code>).
+	 */
+	protected static final int OWNER_ALL_MODE = 0700;
+	protected static final PosixFilePermission[] POSIX_PERMISSIONS_BY_BIT = {
+		PosixFilePermission.OWNER_READ,
+		PosixFilePermission.OWNER_WRITE,
+		PosixFilePermission.OWNER_EXECUTE,
+		PosixFilePermission.GROUP_READ,
+		PosixFilePermission.GROUP_WRITE,
+		PosixFilePermission.GROUP_EXECUTE,
+		PosixFilePermission.OTHERS_READ,
+		PosixFilePermission.OTHERS_WRITE,
+		PosixFilePermission.OTHERS_EXECUTE};
+	
+	/**
+	 * How the build context is transferred into <code>docker buildx build -</code>.
+	 */
+	public enum ContextTransferMode
+	{
+		/**
+		 * The context is completely written into a temporary (compressed) TAR file, which is then used as stdin.
+		 */
+		TEMP_FILE,
+		/**
+		 * The context is written as compressed TAR directly into stdin while buildx is already consuming it.
+		 */
+		STREAM_COMPRESSED,
+		/**
+		 * Like {@link #STREAM_COMPRESSED} but without compression (saves CPU time as the data is transferred
+		 * locally).
+		 */
+		STREAM_UNCOMPRESSED
+	}
+	
 	protected List<String> baseCommand = List.of("docker", "buildx", "build");
+	protected List<String> bakeBaseCommand = List.of("docker", "buildx", "bake");
+	protected List<String> inspectBuilderBaseCommand = List.of("docker", "buildx", "inspect", "--bootstrap");
+	/**
+	 * Optional: Name of an existing buildx builder that should be used (<code>--builder</code>).
+	 * <p>
+	 * The builder is checked once per JVM. If it's not available the default builder is used.
+	 * </p>
+	 *
+	 * @see BuildxBuilderAvailability
+	 */
+	protected String buildxBuilder;
+	/**
+	 * Optional: Pool for the temporary working directories of the build processes; if not set the JVM-wide
+	 * {@link WorkingDirPool#instance() instance} is used.
+	 */
+	protected WorkingDirPool workingDirPool;
 	protected List<String> additionalArgs = new ArrayList<>();
 	protected Optional<String> optCacheFrom = Optional.empty();
 	protected Optional<String> optCacheTo = Optional.empty();
 	protected boolean load = true;
+	/**
+	 * Uses <code>--progress=rawjson</code> and parses the output into {@link BuildVertex vertex} events.
+	 *
+	 * @see #progressListeners
+	 * @see #getLastBuildProgressReport()
+	 */
+	protected boolean rawJsonProgress;
+	protected ContextTransferMode contextTransferMode = ContextTransferMode.TEMP_FILE;
+	/**
+	 * Optional: Manages local cache directories; used instead of {@link #optCacheFrom}/{@link #optCacheTo}.
+	 */
+	protected LocalBuildCacheManager localBuildCacheManager;
+	/**
+	 * Additional named build contexts (<code>--build-context</code>), name -&gt; context.
+	 */
+	protected final Map<String, NamedBuildContext> namedBuildContexts = new LinkedHashMap<>();
+	protected final List<BuildProgressListener> progressListeners = new ArrayList<>();
+	protected BuildProgressReport lastBuildProgressReport;
 	
 	protected Duration timeout = Duration.ofMinutes(5);
 	
@@ -102,29 +228,53 @@ public class NativeAdvancedImageFromDockerfile
 	}
 	
 	protected List<String> buildCommand(final Optional<String> optDockerFilePath)
+	{
+		return this.buildCommand(optDockerFilePath, this.optCacheFrom, this.optCacheTo, Map.of());
+	}
+	
+	/**
+	 * @param namedContextDirs name -&gt; directory of the named build contexts
+	 */
+	protected List<String> buildCommand(
+		final Optional<String> optDockerFilePath,
+		final Optional<String> optCacheFrom,
+		final Optional<String> optCacheTo,
+		final Map<String, Path> namedContextDirs)
 	{
 		final List<String> commandArgs = new ArrayList<>(16
 			+ this.additionalArgs.size()
 			+ this.buildArgs.size() * 2
-			+ Stream.of(optDockerFilePath, this.optTarget, this.optCacheFrom, this.optCacheTo)
+			+ namedContextDirs.size() * 2
+			+ Stream.of(optDockerFilePath, this.optTarget, optCacheFrom, optCacheTo)
 			.filter(Optional::isPresent)
 			.mapToInt(o -> 2)
 			.sum()
 			+ (this.load ? 1 : 0)
+			+ (this.rawJsonProgress ? 1 : 0)
 		);
 		
 		commandArgs.addAll(this.baseCommand);
 		
+		this.addCommandArg(this.availableBuildxBuilder(), "--builder", commandArgs);
 		this.addCommandArg(optDockerFilePath, "-f", commandArgs);
 		
 		if(this.load)
 		{
 			commandArgs.add("--load");
 		}
+		if(this.rawJsonProgress)
+		{
+			commandArgs.add(RAW_JSON_PROGRESS_ARG);
+		}
 		
 		this.addCommandArg(this.optTarget, "--target", commandArgs);
-		this.addCommandArg(this.optCacheFrom, "--cache-from", commandArgs);
-		this.addCommandArg(this.optCacheTo, "--cache-to", commandArgs);
+		this.addCommandArg(optCacheFrom, "--cache-from", commandArgs);
+		this.addCommandArg(optCacheTo, "--cache-to", commandArgs);
+		
+		namedContextDirs.forEach((name, dir) -> {
+			commandArgs.add("--build-context");
+			commandArgs.add(name + "=" + dir);
+		});
 		
 		this.addKVsToCommand(this.createDefaultLabels(), "--label", commandArgs);
 		this.addKVsToCommand(this.buildArgs, "--build-arg", commandArgs);
@@ -167,7 +317,19 @@ public class NativeAdvancedImageFromDockerfile
 	protected String resolve()
 	{
 		this.log().info("Starting resolving image[name='{}']", this.dockerImageName);
-		
+		this.startBuildReport();
+		try
+		{
+			return this.resolveInternal();
+		}
+		finally
+		{
+			this.finishBuildReport();
+		}
+	}
+	
+	protected String resolveInternal()
+	{
 		final Path baseDir = this.optBaseDir.orElseThrow(() -> new IllegalStateException("baseDir is required"));
 		
 		if(!this.disablePull)
@@ -177,34 +339,349 @@ public class NativeAdvancedImageFromDockerfile
 				.ifPresent(this::prePullDependencyImages);
 		}
 		
-		final FilesToTransferInfo filesToTransferInfo = this.calcFileTransferInfo(baseDir);
+		// Cached contexts (e.g. for exact rebuilds) are always transferred using the existing file
+		final boolean streamContext = this.contextTransferMode != ContextTransferMode.TEMP_FILE
+			&& this.transferFileCache == null
+			&& !this.createTransferFilesCache;
+		final FilesToTransferInfo filesToTransferInfo = !streamContext ? this.calcFileTransferInfo(baseDir) : null;
 		
-		final File tempWorkingDir = new File(FileUtils.getTempDirectoryPath(), UUID.randomUUID().toString());
-		tempWorkingDir.deleteOnExit();
-		if(!tempWorkingDir.mkdir())
-		{
-			throw new IllegalStateException("TempDir did already exist" + tempWorkingDir);
-		}
-		this.log().debug("Will use {} as temporary working directory", tempWorkingDir);
+		final WorkingDirPool.WorkingDir tempWorkingDir = this.acquireWorkingDir();
 		
 		this.log().info("Starting building image[name='{}']", this.dockerImageName);
 		final long buildStartTime = System.currentTimeMillis();
 		
-		final List<String> cmdArgs = this.buildCommand(
-			this.optDockerFilePath
-				.map(dockerFilePath -> FastFilePathRelativizer.relativize(
-					this.optBaseDir.orElse(dockerFilePath.getParent()),
-					dockerFilePath))
-				.filter(relativePath -> !"Dockerfile".equalsIgnoreCase(relativePath))
-		);
+		final Optional<LocalBuildCacheManager.Lease> optCacheLease =
+			this.leaseLocalCache(baseDir, this.optTarget.orElse(null));
+		final List<BuildContextMirror.PreparedBuildContext> namedContexts = new ArrayList<>();
+		
+		try
+		{
+			namedContexts.addAll(this.prepareNamedBuildContexts());
+			
+			final List<String> cmdArgs = this.buildCommand(
+				this.relativeDockerFilePath(),
+				optCacheLease.map(LocalBuildCacheManager.Lease::cacheFrom).orElse(this.optCacheFrom),
+				optCacheLease.map(LocalBuildCacheManager.Lease::cacheTo).or(() -> this.optCacheTo),
+				namedContextDirs(namedContexts));
+			
+			this.log().debug("Resolved arguments: {}", cmdArgs);
+			
+			final ProcessBuilder pb = new ProcessBuilder(cmdArgs);
+			pb.directory(tempWorkingDir.toFile());
+			if(filesToTransferInfo != null)
+			{
+				pb.redirectInput(filesToTransferInfo.source());
+			}
+			pb.redirectErrorStream(true);
+			
+			final IOConsumer<OutputStream> stdinWriter = streamContext
+				? out -> {
+					final ContextStatistics statistics = this.filesToTransferHandler.writeTo(
+						this.log(),
+						baseDir,
+						this.optDockerFilePath.orElseGet(() -> Path.of("Dockerfile")),
+						out,
+						this.contextTransferMode == ContextTransferMode.STREAM_COMPRESSED,
+						this.dockerImageName);
+					// When streaming the context is uploaded while it's created
+					this.recordBuildReport(r -> r
+						.context(statistics, false)
+						.upload(statistics.tar().duration(), statistics.tar().writtenBytes()));
+				}
+				: null;
+			
+			this.runBuildProcess(pb, "Build process for " + this.dockerImageName, this.timeout, stdinWriter);
+			
+			this.log().info(
+				"Building of image[name='{}'] was done in {}ms",
+				this.dockerImageName,
+				System.currentTimeMillis() - buildStartTime);
+			
+			optCacheLease.ifPresent(this::commitLocalCacheLease);
+		}
+		finally
+		{
+			namedContexts.forEach(BuildContextMirror.PreparedBuildContext::close);
+			optCacheLease.ifPresent(this::closeLocalCacheLease);
+			this.releaseTransferFileCacheAfterBuild();
+			this.cleanupAsync(filesToTransferInfo, tempWorkingDir);
+		}
+		
+		return this.dockerImageName;
+	}
+	
+	/**
+	 * Builds all targets using a single <code>docker buildx bake</code> invocation.
+	 * <p>
+	 * This way buildx can schedule the builds of all targets at once and share the build context and all common
+	 * stages between them. The build context is extracted into a temporary directory for this.
+	 * </p>
+	 */
+	@Override
+	public List<String> buildTargets(final List<BuildTarget> targets, final Duration timeoutPerTarget)
+	{
+		final Path baseDir = this.optBaseDir.orElseThrow(() -> new IllegalStateException("baseDir is required"));
+		
+		this.startBuildReport();
+		try
+		{
+			return this.bakeTargets(baseDir, targets, timeoutPerTarget);
+		}
+		finally
+		{
+			this.finishBuildReport();
+		}
+	}
+	
+	protected List<String> bakeTargets(
+		final Path baseDir,
+		final List<BuildTarget> targets,
+		final Duration timeoutPerTarget)
+	{
+		if(!this.disablePull)
+		{
+			this.prePullDependencyImages(this.fullyResolveDependencyImages(this.dockerFilePathOrDefault(baseDir)));
+		}
+		
+		final List<BuildTarget> sortedTargets = this.sortByStageOrder(targets, baseDir);
 		
-		this.log().debug("Resolved arguments: {}", cmdArgs);
+		final FilesToTransferInfo filesToTransferInfo = this.calcFileTransferInfo(baseDir);
 		
-		final ProcessBuilder pb = new ProcessBuilder(cmdArgs);
-		pb.directory(tempWorkingDir);
-		pb.redirectInput(filesToTransferInfo.source());
-		pb.redirectErrorStream(true);
+		final WorkingDirPool.WorkingDir tempWorkingDir = this.acquireWorkingDir();
+		final Map<BuildTarget, LocalBuildCacheManager.Lease> cacheLeases = new HashMap<>();
+		final List<BuildContextMirror.PreparedBuildContext> namedContexts = new ArrayList<>();
+		
+		this.log().info("Starting baking of {} targets", sortedTargets.size());
+		final long buildStartTime = System.currentTimeMillis();
+		
+		try
+		{
+			this.extractContext(filesToTransferInfo.source(), tempWorkingDir.path().resolve(BAKE_CONTEXT_DIR));
+			
+			for(final BuildTarget target : sortedTargets)
+			{
+				this.leaseLocalCache(baseDir, target.target()).ifPresent(l -> cacheLeases.put(target, l));
+			}
+			
+			namedContexts.addAll(this.prepareNamedBuildContexts());
+			
+			Files.writeString(
+				tempWorkingDir.path().resolve(BAKE_DEFINITION_FILE),
+				this.createBakeDefinition(
+					sortedTargets,
+					this.relativeDockerFilePath(),
+					cacheLeases,
+					namedContextDirs(namedContexts)));
+			
+			final List<String> cmdArgs = this.bakeCommand();
+			
+			this.log().debug("Resolved arguments: {}", cmdArgs);
+			
+			final ProcessBuilder pb = new ProcessBuilder(cmdArgs);
+			pb.directory(tempWorkingDir.toFile());
+			pb.redirectErrorStream(true);
+			
+			this.runBuildProcess(
+				pb,
+				"Bake process",
+				timeoutPerTarget.multipliedBy(Math.max(1, sortedTargets.size())),
+				null);
+			
+			this.log().info(
+				"Baking of {} targets was done in {}ms",
+				sortedTargets.size(),
+				System.currentTimeMillis() - buildStartTime);
+			
+			cacheLeases.values().forEach(this::commitLocalCacheLease);
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+		finally
+		{
+			namedContexts.forEach(BuildContextMirror.PreparedBuildContext::close);
+			cacheLeases.values().forEach(this::closeLocalCacheLease);
+			this.releaseTransferFileCacheAfterBuild();
+			this.cleanupAsync(filesToTransferInfo, tempWorkingDir);
+		}
 		
+		return targets.stream()
+			.map(BuildTarget::dockerImageName)
+			.toList();
+	}
+	
+	/**
+	 * Leases a cache from the {@link #localBuildCacheManager} (if present).
+	 * <p>
+	 * If the cache is currently used by another build, the build is executed without it.
+	 * </p>
+	 */
+	protected Optional<LocalBuildCacheManager.Lease> leaseLocalCache(final Path baseDir, final String target)
+	{
+		if(this.localBuildCacheManager == null)
+		{
+			return Optional.empty();
+		}
+		return this.localBuildCacheManager.tryLease(
+			LocalBuildCacheManager.keyFor(this.dockerFilePathOrDefault(baseDir), target));
+	}
+	
+	/**
+	 * Commits the cache of a successful build.
+	 * <p>
+	 * As the image was already built, a failure is only logged and the next build runs with the previous cache.
+	 * </p>
+	 */
+	protected void commitLocalCacheLease(final LocalBuildCacheManager.Lease lease)
+	{
+		try
+		{
+			lease.commit();
+		}
+		catch(final RuntimeException ex)
+		{
+			this.log().warn("Failed to commit the local build cache of image[name='{}']", this.dockerImageName, ex);
+		}
+	}
+	
+	protected void closeLocalCacheLease(final LocalBuildCacheManager.Lease lease)
+	{
+		lease.close();
+		CompletableFuture.runAsync(
+			() -> {
+				try
+				{
+					this.localBuildCacheManager.evict();
+				}
+				catch(final Exception ex)
+				{
+					this.log().warn("Failed to evict local build caches", ex);
+				}
+			}, this.executorService());
+	}
+	
+	/**
+	 * Prepares all {@link #namedBuildContexts}.
+	 *
+	 * @see BuildContextMirror#prepareAll(Logger, java.util.Collection)
+	 */
+	protected List<BuildContextMirror.PreparedBuildContext> prepareNamedBuildContexts()
+	{
+		return this.buildContextMirror().prepareAll(this.log(), this.namedBuildContexts.values());
+	}
+	
+	protected BuildContextMirror buildContextMirror()
+	{
+		return BuildContextMirror.instance();
+	}
+	
+	protected static Map<String, Path> namedContextDirs(final List<BuildContextMirror.PreparedBuildContext> contexts)
+	{
+		final Map<String, Path> dirs = new LinkedHashMap<>();
+		contexts.forEach(c -> dirs.put(c.name(), c.directory()));
+		return dirs;
+	}
+	
+	protected Optional<String> relativeDockerFilePath()
+	{
+		return this.optDockerFilePath
+			.map(dockerFilePath -> FastFilePathRelativizer.relativize(
+				this.optBaseDir.orElse(dockerFilePath.getParent()),
+				dockerFilePath))
+			.filter(relativePath -> !"Dockerfile".equalsIgnoreCase(relativePath));
+	}
+	
+	protected WorkingDirPool.WorkingDir acquireWorkingDir()
+	{
+		final WorkingDirPool.WorkingDir tempWorkingDir =
+			(this.workingDirPool != null ? this.workingDirPool : WorkingDirPool.instance()).acquire();
+		this.log().debug("Will use {} as temporary working directory", tempWorkingDir.path());
+		return tempWorkingDir;
+	}
+	
+	/**
+	 * @return the {@link #buildxBuilder} if it's available
+	 */
+	protected Optional<String> availableBuildxBuilder()
+	{
+		if(this.buildxBuilder == null)
+		{
+			return Optional.empty();
+		}
+		if(!BuildxBuilderAvailability.instance().isAvailable(this.inspectBuilderBaseCommand, this.buildxBuilder))
+		{
+			this.log().warn("Buildx builder '{}' is not available; using default builder", this.buildxBuilder);
+			return Optional.empty();
+		}
+		return Optional.of(this.buildxBuilder);
+	}
+	
+	/**
+	 * Runs the build process and records its duration and cache hits for the {@link #getLastBuildReport() report}.
+	 */
+	protected void runBuildProcess(
+		final ProcessBuilder pb,
+		final String processDescription,
+		final Duration timeout,
+		final IOConsumer<OutputStream> stdinWriter)
+	{
+		final long startNanos = System.nanoTime();
+		final DaemonBuildEvent event = new DaemonBuildEvent();
+		event.begin();
+		boolean success = false;
+		try
+		{
+			this.runProcess(pb, processDescription, timeout, stdinWriter);
+			success = true;
+		}
+		finally
+		{
+			final Duration buildDuration = Duration.ofNanos(System.nanoTime() - startNanos);
+			this.metrics().onBuild(this.dockerImageName, buildDuration, success);
+			this.recordBuildReport(r -> r.build(buildDuration));
+			final List<BuildVertex> steps = this.getLastBuildProgressReport()
+				.map(BuildProgressReport::steps)
+				.orElse(List.of());
+			final int cachedSteps = (int)steps.stream().filter(BuildVertex::cached).count();
+			this.recordBuildReport(r -> r.steps(steps.size(), cachedSteps));
+			event.finish(this.dockerImageName, "buildx", steps.size(), cachedSteps, success);
+		}
+	}
+	
+	protected void runProcess(final ProcessBuilder pb, final String processDescription, final Duration timeout)
+	{
+		this.runProcess(pb, processDescription, timeout, null);
+	}
+	
+	/**
+	 * @param stdinWriter optional; writes the stdin of the process (on a separate thread)
+	 */
+	protected void runProcess(
+		final ProcessBuilder pb,
+		final String processDescription,
+		final Duration timeout,
+		final IOConsumer<OutputStream> stdinWriter)
+	{
+		// The context is uploaded as part of the build process
+		final BuildAdmissionController.Permit permit =
+			this.admissionController().acquire(BuildAdmissionController.Operation.BUILD);
+		try
+		{
+			this.runProcessUnlimited(pb, processDescription, timeout, stdinWriter);
+		}
+		finally
+		{
+			permit.close();
+		}
+	}
+	
+	protected void runProcessUnlimited(
+		final ProcessBuilder pb,
+		final String processDescription,
+		final Duration timeout,
+		final IOConsumer<OutputStream> stdinWriter)
+	{
 		final Process p;
 		try
 		{
@@ -215,55 +692,322 @@ public class NativeAdvancedImageFromDockerfile
 			throw new UncheckedIOException(e);
 		}
 		final Logger buildLogger = this.calcLoggerForBuild();
-		this.logStream(p.getInputStream(), buildLogger::info);
+		final CompletableFuture<Void> cfLogStream =
+			this.logStream(p.getInputStream(), this.createOutputLineConsumer(buildLogger::info));
+		final CompletableFuture<Void> cfStdin = stdinWriter != null
+			? this.writeStdin(p, stdinWriter)
+			: CompletableFuture.completedFuture(null);
 		
 		try
 		{
-			if(!p.waitFor(this.timeout.toMillis(), TimeUnit.MILLISECONDS))
+			if(!p.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS))
 			{
 				p.destroy();
-				throw new IllegalStateException("Build process for " + this.dockerImageName + " timed out");
+				throw new IllegalStateException(processDescription + " timed out");
 			}
+			this.awaitLogStream(cfLogStream);
 			
 			final int exitCode = p.exitValue();
 			if(exitCode != 0)
 			{
-				throw new IllegalStateException(
-					"Build process for " + this.dockerImageName + " exited with code " + exitCode);
+				throw new IllegalStateException(processDescription + " exited with code " + exitCode);
 			}
 			
-			this.log().info(
-				"Building of image[name='{}'] was done in {}ms",
-				this.dockerImageName,
-				System.currentTimeMillis() - buildStartTime);
+			try
+			{
+				cfStdin.get();
+			}
+			catch(final ExecutionException ex)
+			{
+				throw new IllegalStateException("Failed to write stdin of " + processDescription, ex.getCause());
+			}
 		}
 		catch(final InterruptedException iex)
 		{
 			Thread.currentThread().interrupt();
 			throw new IllegalStateException("Got interrupted", iex);
 		}
-		finally
+	}
+	
+	/**
+	 * Writes the stdin of the process on a separate thread so that the process can already consume it while it's
+	 * written.
+	 */
+	protected CompletableFuture<Void> writeStdin(final Process p, final IOConsumer<OutputStream> stdinWriter)
+	{
+		return CompletableFuture.runAsync(
+			() -> {
+				try(final OutputStream os = new BufferedOutputStream(p.getOutputStream(), STDIN_BUFFER_SIZE))
+				{
+					stdinWriter.accept(os);
+				}
+				catch(final IOException ioe)
+				{
+					// Usually happens when the process terminated early -> the exit code is more meaningful
+					this.log().debug("Failed to write stdin", ioe);
+					throw new UncheckedIOException(ioe);
+				}
+			}, this.executorService());
+	}
+	
+	protected Consumer<String> createOutputLineConsumer(final Consumer<String> logFunc)
+	{
+		if(!this.rawJsonProgress)
+		{
+			return logFunc;
+		}
+		
+		final BuildProgressReport report = new BuildProgressReport();
+		this.lastBuildProgressReport = report;
+		
+		final List<BuildProgressListener> listeners = new ArrayList<>(this.progressListeners);
+		listeners.add(report);
+		return new RawJsonProgressParser(BuildProgressListener.all(listeners), logFunc)::accept;
+	}
+	
+	/**
+	 * Waits (a short time) until the output of the already finished process was fully processed.
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected void awaitLogStream(final CompletableFuture<Void> cfLogStream) throws InterruptedException
+	{
+		try
+		{
+			cfLogStream.get(5, TimeUnit.SECONDS);
+		}
+		catch(final ExecutionException | TimeoutException ex)
 		{
-			CompletableFuture.runAsync(
-				() -> {
-					try
+			this.log().debug("Failed to await log stream", ex);
+		}
+	}
+	
+	protected void cleanupAsync(
+		final FilesToTransferInfo filesToTransferInfo,
+		final WorkingDirPool.WorkingDir tempWorkingDir)
+	{
+		CompletableFuture.runAsync(
+			() -> {
+				final CleanupEvent event = new CleanupEvent();
+				event.begin();
+				try
+				{
+					if(filesToTransferInfo != null)
 					{
 						filesToTransferInfo.reportConsumed();
-						FileUtils.deleteQuietly(tempWorkingDir);
 					}
-					catch(final Exception ex)
-					{
-						this.log().warn("Cleanup failed", ex);
-					}
-				}, this.executorService());
+					tempWorkingDir.close();
+				}
+				catch(final Exception ex)
+				{
+					this.log().warn("Cleanup failed", ex);
+				}
+				finally
+				{
+					event.finish(this.dockerImageName, "working-directory");
+				}
+			}, this.executorService());
+	}
+	
+	protected List<String> bakeCommand()
+	{
+		final List<String> commandArgs = new ArrayList<>(this.bakeBaseCommand);
+		this.addCommandArg(this.availableBuildxBuilder(), "--builder", commandArgs);
+		commandArgs.add("-f");
+		commandArgs.add(BAKE_DEFINITION_FILE);
+		if(this.load)
+		{
+			commandArgs.add("--load");
+		}
+		if(this.rawJsonProgress)
+		{
+			commandArgs.add(RAW_JSON_PROGRESS_ARG);
+		}
+		commandArgs.addAll(this.mapAdditionalArgsForBake(this.additionalArgs));
+		return commandArgs;
+	}
+	
+	/**
+	 * Maps the {@link #additionalArgs} (for <code>docker buildx build</code>) to arguments of
+	 * <code>docker buildx bake</code>.
+	 *
+	 * @throws IllegalStateException if an argument can't be mapped
+	 */
+	protected List<String> mapAdditionalArgsForBake(final List<String> args)
+	{
+		final List<String> bakeArgs = new ArrayList<>();
+		for(int i = 0; i < args.size(); i++)
+		{
+			final String arg = args.get(i);
+			final int valueSepIndex = arg.indexOf('=');
+			final String option = arg.startsWith("-") && valueSepIndex != -1 ? arg.substring(0, valueSepIndex) : arg;
+			
+			if(BAKE_COMPATIBLE_FLAGS.contains(option))
+			{
+				bakeArgs.add(arg);
+				continue;
+			}
+			if(!BAKE_COMPATIBLE_OPTIONS.contains(option) && !BAKE_SET_ATTRIBUTE_OPTIONS.containsKey(option))
+			{
+				throw new IllegalStateException("Additional argument '" + arg + "' is not supported when baking. "
+					+ "Supported are: " + BAKE_COMPATIBLE_FLAGS + ", " + BAKE_COMPATIBLE_OPTIONS + " and "
+					+ BAKE_SET_ATTRIBUTE_OPTIONS.keySet());
+			}
+			
+			final String value;
+			if(valueSepIndex != -1 && !option.equals(arg))
+			{
+				value = arg.substring(valueSepIndex + 1);
+			}
+			else if(i + 1 < args.size())
+			{
+				value = args.get(++i);
+			}
+			else
+			{
+				throw new IllegalStateException("Additional argument '" + arg + "' is missing a value");
+			}
+			
+			final String setAttribute = BAKE_SET_ATTRIBUTE_OPTIONS.get(option);
+			if(setAttribute != null)
+			{
+				bakeArgs.add("--set");
+				bakeArgs.add("*." + setAttribute + "=" + value);
+			}
+			else
+			{
+				bakeArgs.add(option + "=" + value);
+			}
 		}
+		return bakeArgs;
+	}
+	
+	/**
+	 * Creates the <a href="https://docs.docker.com/build/bake/reference/">bake definition</a> (in JSON format).
+	 */
+	protected String createBakeDefinition(
+		final List<BuildTarget> targets,
+		final Optional<String> optDockerFilePath,
+		final Map<BuildTarget, LocalBuildCacheManager.Lease> cacheLeases,
+		final Map<String, Path> namedContextDirs)
+	{
+		final Map<String, String> contexts = new LinkedHashMap<>();
+		namedContextDirs.forEach((name, dir) -> contexts.put(name, dir.toString()));
 		
-		return this.dockerImageName;
+		final Map<String, String> labels = this.createDefaultLabels();
+		final Map<String, String> args = new LinkedHashMap<>();
+		this.buildArgs.forEach((k, v) -> {
+			// Like "docker build --build-arg KEY": Args without a value are taken from the environment (if present)
+			final String value = v != null ? v : System.getenv(k);
+			if(value != null)
+			{
+				args.put(k, value);
+			}
+		});
+		
+		final Map<String, Object> bakeTargets = new LinkedHashMap<>();
+		for(int i = 0; i < targets.size(); i++)
+		{
+			final BuildTarget target = targets.get(i);
+			
+			final Map<String, Object> bakeTarget = new LinkedHashMap<>();
+			bakeTarget.put("context", BAKE_CONTEXT_DIR);
+			optDockerFilePath.ifPresent(d -> bakeTarget.put("dockerfile", d));
+			bakeTarget.put("target", target.target());
+			bakeTarget.put("tags", List.of(target.dockerImageName()));
+			bakeTarget.put("args", args);
+			bakeTarget.put("labels", labels);
+			if(!contexts.isEmpty())
+			{
+				bakeTarget.put("contexts", contexts);
+			}
+			final Optional<LocalBuildCacheManager.Lease> optCacheLease = Optional.ofNullable(cacheLeases.get(target));
+			optCacheLease.map(LocalBuildCacheManager.Lease::cacheFrom)
+				.orElse(this.optCacheFrom)
+				.ifPresent(c -> bakeTarget.put("cache-from", List.of(c)));
+			optCacheLease.map(LocalBuildCacheManager.Lease::cacheTo)
+				.or(() -> this.optCacheTo)
+				.ifPresent(c -> bakeTarget.put("cache-to", List.of(c)));
+			
+			bakeTargets.put("target-" + i, bakeTarget);
+		}
+		
+		final Map<String, Object> definition = new LinkedHashMap<>();
+		definition.put("group", Map.of("default", Map.of("targets", List.copyOf(bakeTargets.keySet()))));
+		definition.put("target", bakeTargets);
+		return SimpleJson.write(definition);
 	}
 	
-	protected void logStream(final InputStream src, final Consumer<String> logFunc)
+	/**
+	 * Extracts the (gzip compressed) TAR archive that is usually streamed into <code>docker build</code>.
+	 * <p>
+	 * The modes of the entries are applied (if supported by the file system).
+	 * </p>
+	 */
+	protected void extractContext(final File tarFile, final Path targetDir) throws IOException
 	{
-		CompletableFuture.runAsync(
+		final Path normalizedTargetDir = targetDir.toAbsolutePath().normalize();
+		Files.createDirectories(normalizedTargetDir);
+		
+		try(final TarArchiveInputStream tis = new TarArchiveInputStream(
+			new GZIPInputStream(new BufferedInputStream(new FileInputStream(tarFile)))))
+		{
+			TarArchiveEntry entry;
+			while((entry = tis.getNextEntry()) != null)
+			{
+				final Path target = normalizedTargetDir.resolve(entry.getName()).normalize();
+				if(!target.startsWith(normalizedTargetDir))
+				{
+					throw new IOException("Archive entry is outside of the target directory: " + entry.getName());
+				}
+				
+				if(entry.isDirectory())
+				{
+					Files.createDirectories(target);
+					// The owner always needs full access so that the directory can be filled and cleaned up
+					this.applyMode(target, entry.getMode() | OWNER_ALL_MODE);
+					continue;
+				}
+				
+				Files.createDirectories(target.getParent());
+				if(entry.isSymbolicLink())
+				{
+					Files.createSymbolicLink(target, Path.of(entry.getLinkName()));
+				}
+				else
+				{
+					Files.copy(tis, target, StandardCopyOption.REPLACE_EXISTING);
+					this.applyMode(target, entry.getMode());
+				}
+			}
+		}
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected void applyMode(final Path target, final int mode) throws IOException
+	{
+		final PosixFileAttributeView posixView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+		if(posixView != null)
+		{
+			final Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+			for(int i = 0; i < POSIX_PERMISSIONS_BY_BIT.length; i++)
+			{
+				if((mode & (0400 >> i)) != 0)
+				{
+					permissions.add(POSIX_PERMISSIONS_BY_BIT[i]);
+				}
+			}
+			posixView.setPermissions(permissions);
+		}
+		// Fallback: Owner executable
+		else if((mode & 0100) != 0 && !target.toFile().setExecutable(true))
+		{
+			this.log().debug("Failed to mark {} as executable", target);
+		}
+	}
+	
+	protected CompletableFuture<Void> logStream(final InputStream src, final Consumer<String> logFunc)
+	{
+		return CompletableFuture.runAsync(
 			() ->
 			{
 				try
@@ -293,8 +1037,18 @@ public class NativeAdvancedImageFromDockerfile
 		final String dockerImageName)
 	{
 		final NativeAdvancedImageFromDockerfile image = super.copyForExactRebuild(createNewFunc, dockerImageName)
+			.withBaseCommand(this.baseCommand)
+			.withBakeBaseCommand(this.bakeBaseCommand)
+			.withInspectBuilderBaseCommand(this.inspectBuilderBaseCommand)
+			.withBuildxBuilder(this.buildxBuilder)
+			.withWorkingDirPool(this.workingDirPool)
 			.withAdditionalArgs(this.additionalArgs)
 			.withLoad(this.load)
+			.withRawJsonProgress(this.rawJsonProgress)
+			.withContextTransferMode(this.contextTransferMode)
+			.withLocalBuildCacheManager(this.localBuildCacheManager)
+			.withNamedBuildContexts(this.namedBuildContexts.values())
+			.withProgressListeners(this.progressListeners)
 			.withTimeout(this.timeout);
 		
 		this.optCacheFrom.ifPresent(image::withCacheFrom);
@@ -311,6 +1065,36 @@ public class NativeAdvancedImageFromDockerfile
 		return this;
 	}
 	
+	public NativeAdvancedImageFromDockerfile withBakeBaseCommand(final List<String> bakeBaseCommand)
+	{
+		this.bakeBaseCommand = bakeBaseCommand;
+		return this;
+	}
+	
+	public NativeAdvancedImageFromDockerfile withInspectBuilderBaseCommand(
+		final List<String> inspectBuilderBaseCommand)
+	{
+		this.inspectBuilderBaseCommand = inspectBuilderBaseCommand;
+		return this;
+	}
+	
+	/**
+	 * Uses an existing (already set up) buildx builder instead of the default one.
+	 *
+	 * @see #buildxBuilder
+	 */
+	public NativeAdvancedImageFromDockerfile withBuildxBuilder(final String buildxBuilder)
+	{
+		this.buildxBuilder = buildxBuilder;
+		return this;
+	}
+	
+	public NativeAdvancedImageFromDockerfile withWorkingDirPool(final WorkingDirPool workingDirPool)
+	{
+		this.workingDirPool = workingDirPool;
+		return this;
+	}
+	
 	public NativeAdvancedImageFromDockerfile withTimeout(final Duration timeout)
 	{
 		this.timeout = timeout;
@@ -340,11 +1124,101 @@ public class NativeAdvancedImageFromDockerfile
 		return this;
 	}
 	
+	/**
+	 * Uses a managed local cache (<code>type=local</code>) per Dockerfile/target.
+	 *
+	 * @see LocalBuildCacheManager
+	 */
+	public NativeAdvancedImageFromDockerfile withLocalBuildCacheManager(
+		final LocalBuildCacheManager localBuildCacheManager)
+	{
+		this.localBuildCacheManager = localBuildCacheManager;
+		return this;
+	}
+	
+	/**
+	 * Adds a named build context that is passed as local directory to BuildKit.
+	 *
+	 * @see NamedBuildContext
+	 */
+	public NativeAdvancedImageFromDockerfile withNamedBuildContext(final String name, final Path directory)
+	{
+		return this.withNamedBuildContext(new NamedBuildContext(name, directory));
+	}
+	
+	/**
+	 * Adds a named build context; only the files that are not ignored by the handler are provided to BuildKit.
+	 *
+	 * @see NamedBuildContext
+	 */
+	public NativeAdvancedImageFromDockerfile withNamedBuildContext(
+		final String name,
+		final Path directory,
+		final FilesToTransferHandler filesToTransferHandler)
+	{
+		return this.withNamedBuildContext(new NamedBuildContext(name, directory, filesToTransferHandler));
+	}
+	
+	public NativeAdvancedImageFromDockerfile withNamedBuildContext(final NamedBuildContext namedBuildContext)
+	{
+		this.namedBuildContexts.put(namedBuildContext.name(), namedBuildContext);
+		return this;
+	}
+	
+	public NativeAdvancedImageFromDockerfile withNamedBuildContexts(
+		final Collection<NamedBuildContext> namedBuildContexts)
+	{
+		namedBuildContexts.forEach(this::withNamedBuildContext);
+		return this;
+	}
+	
 	public NativeAdvancedImageFromDockerfile withLoad(final boolean load)
 	{
 		this.load = load;
 		return this;
 	}
 	
+	/**
+	 * Note: Streaming is not used when the context is cached (e.g. for {@link #copyForExactRebuild(String)}).
+	 */
+	public NativeAdvancedImageFromDockerfile withContextTransferMode(final ContextTransferMode contextTransferMode)
+	{
+		this.contextTransferMode = Objects.requireNonNull(contextTransferMode);
+		return this;
+	}
+	
+	public NativeAdvancedImageFromDockerfile withRawJsonProgress(final boolean rawJsonProgress)
+	{
+		this.rawJsonProgress = rawJsonProgress;
+		return this;
+	}
+	
+	/**
+	 * Adds a listener for the progress of the build.
+	 * <p>
+	 * Note: Requires {@link #withRawJsonProgress(boolean) rawJsonProgress}.
+	 * </p>
+	 */
+	public NativeAdvancedImageFromDockerfile withProgressListener(final BuildProgressListener listener)
+	{
+		this.progressListeners.add(listener);
+		return this;
+	}
+	
+	public NativeAdvancedImageFromDockerfile withProgressListeners(final List<BuildProgressListener> listeners)
+	{
+		this.progressListeners.addAll(listeners);
+		return this;
+	}
+	
+	/**
+	 * @return the report of the last build process (requires {@link #withRawJsonProgress(boolean)
+	 * rawJsonProgress})
+	 */
+	public Optional<BuildProgressReport> getLastBuildProgressReport()
+	{
+		return Optional.ofNullable(this.lastBuildProgressReport);
+	}
+	
 	// endregion
 }
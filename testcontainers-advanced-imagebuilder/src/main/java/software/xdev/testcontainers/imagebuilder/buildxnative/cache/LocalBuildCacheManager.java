@@ -0,0 +1,442 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Manages local BuildKit cache directories (<code>type=local</code>) for
+ * {@link software.xdev.testcontainers.imagebuilder.buildxnative.NativeAdvancedImageFromDockerfile}.
+ * <p>
+ * Every Dockerfile/target combination gets its own cache directory. As BuildKit can't export into the directory it
+ * imports from, the cache is exported into a new directory which replaces the current one after a successful build.
+ * </p>
+ * <p>
+ * The replacement consists of two (if supported atomic) moves. If the process is interrupted between them the
+ * previous cache is restored when the cache is leased the next time.
+ * </p>
+ * <p>
+ * To prevent unlimited growth the least recently used caches are evicted when the total size of all caches exceeds
+ * {@link #maxTotalSizeBytes}.
+ * </p>
+ * <p>
+ * Note: Coordination only happens inside the JVM; multiple JVMs should use different root directories.
+ * </p>
+ */
+public class LocalBuildCacheManager
+{
+	private static final Logger LOG = LoggerFactory.getLogger(LocalBuildCacheManager.class);
+	
+	protected static final String CURRENT_DIR = "current";
+	protected static final String NEXT_DIR_PREFIX = "next-";
+	protected static final String OBSOLETE_DIR_PREFIX = "obsolete-";
+	protected static final String LAST_USED_FILE = ".last-used";
+	
+	protected final Path rootDir;
+	protected long maxTotalSizeBytes;
+	protected final Set<String> leasedKeys = new HashSet<>();
+	
+	/**
+	 * @param maxTotalSizeBytes the maximum total size of all caches
+	 */
+	public LocalBuildCacheManager(final Path rootDir, final long maxTotalSizeBytes)
+	{
+		this.rootDir = rootDir.toAbsolutePath().normalize();
+		this.maxTotalSizeBytes = maxTotalSizeBytes;
+	}
+	
+	/**
+	 * Creates a manager in the temporary directory of the system.
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public static LocalBuildCacheManager inTempDir()
+	{
+		return new LocalBuildCacheManager(
+			Path.of(FileUtils.getTempDirectoryPath(), "testcontainers-advanced-imagebuilder-buildcache"),
+			10L * 1024 * 1024 * 1024);
+	}
+	
+	public static String keyFor(final Path dockerFilePath, final String target)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(dockerFilePath.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte)0);
+			if(target != null)
+			{
+				digest.update(target.getBytes(StandardCharsets.UTF_8));
+			}
+			// Shortened -> Paths don't get too long
+			return HexFormat.of().formatHex(digest.digest(), 0, 16);
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Leases the cache for the key.
+	 * <p>
+	 * The lease must be {@link Lease#commit() committed} after a successful build or {@link Lease#close() closed}
+	 * otherwise.
+	 * </p>
+	 *
+	 * @throws IllegalStateException if the cache is already leased
+	 */
+	public Lease lease(final String key)
+	{
+		synchronized(this.leasedKeys)
+		{
+			if(!this.leasedKeys.add(key))
+			{
+				throw new IllegalStateException("Cache " + key + " is already in use");
+			}
+		}
+		
+		try
+		{
+			final Path cacheDir = Files.createDirectories(this.rootDir.resolve(key));
+			this.recover(cacheDir);
+			this.touch(cacheDir);
+			return new Lease(key, cacheDir, cacheDir.resolve(NEXT_DIR_PREFIX + UUID.randomUUID()));
+		}
+		catch(final IOException ioe)
+		{
+			this.releaseKey(key);
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	/**
+	 * Leases the cache if it's not in use.
+	 */
+	public Optional<Lease> tryLease(final String key)
+	{
+		try
+		{
+			return Optional.of(this.lease(key));
+		}
+		catch(final IllegalStateException ise)
+		{
+			LOG.debug("Cache {} is already in use", key);
+			return Optional.empty();
+		}
+	}
+	
+	protected void releaseKey(final String key)
+	{
+		synchronized(this.leasedKeys)
+		{
+			this.leasedKeys.remove(key);
+		}
+	}
+	
+	/**
+	 * Restores the previous cache when a rotation was interrupted (no current cache but an obsolete one) and removes
+	 * the leftovers of interrupted builds.
+	 */
+	protected void recover(final Path cacheDir) throws IOException
+	{
+		final List<Path> leftovers;
+		try(final Stream<Path> dirs = Files.list(cacheDir))
+		{
+			leftovers = dirs.filter(dir -> {
+					final String name = dir.getFileName().toString();
+					return name.startsWith(NEXT_DIR_PREFIX) || name.startsWith(OBSOLETE_DIR_PREFIX);
+				})
+				.toList();
+		}
+		
+		final Path current = cacheDir.resolve(CURRENT_DIR);
+		if(!Files.exists(current))
+		{
+			final Optional<Path> optObsolete = leftovers.stream()
+				.filter(dir -> dir.getFileName().toString().startsWith(OBSOLETE_DIR_PREFIX))
+				.max(Comparator.comparing(LocalBuildCacheManager::lastModified));
+			if(optObsolete.isPresent())
+			{
+				LOG.info("Restoring cache {} after an interrupted rotation", cacheDir.getFileName());
+				move(optObsolete.get(), current);
+			}
+		}
+		
+		leftovers.stream()
+			.filter(Files::exists)
+			.forEach(dir -> FileUtils.deleteQuietly(dir.toFile()));
+	}
+	
+	protected static Instant lastModified(final Path path)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(path).toInstant();
+		}
+		catch(final IOException ioe)
+		{
+			return Instant.EPOCH;
+		}
+	}
+	
+	protected void touch(final Path cacheDir) throws IOException
+	{
+		final Path lastUsedFile = cacheDir.resolve(LAST_USED_FILE);
+		if(!Files.exists(lastUsedFile))
+		{
+			Files.createFile(lastUsedFile);
+		}
+		Files.setLastModifiedTime(lastUsedFile, FileTime.from(Instant.now()));
+	}
+	
+	/**
+	 * Evicts the least recently used caches (that are not leased) until the total size is below the limit.
+	 */
+	public void evict()
+	{
+		if(!Files.isDirectory(this.rootDir))
+		{
+			return;
+		}
+		
+		final List<CacheInfo> caches = new ArrayList<>();
+		try(final Stream<Path> dirs = Files.list(this.rootDir))
+		{
+			dirs.filter(Files::isDirectory)
+				.forEach(dir -> caches.add(new CacheInfo(dir, this.lastUsed(dir), sizeOf(dir))));
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+		
+		long totalSize = caches.stream().mapToLong(CacheInfo::sizeBytes).sum();
+		caches.sort(Comparator.comparing(CacheInfo::lastUsed));
+		for(final CacheInfo cache : caches)
+		{
+			if(totalSize <= this.maxTotalSizeBytes)
+			{
+				return;
+			}
+			
+			final String key = cache.dir().getFileName().toString();
+			synchronized(this.leasedKeys)
+			{
+				if(this.leasedKeys.contains(key))
+				{
+					continue;
+				}
+				LOG.debug("Evicting cache {} ({} bytes)", key, cache.sizeBytes());
+				FileUtils.deleteQuietly(cache.dir().toFile());
+			}
+			totalSize -= cache.sizeBytes();
+		}
+	}
+	
+	protected Instant lastUsed(final Path cacheDir)
+	{
+		try
+		{
+			return Files.getLastModifiedTime(cacheDir.resolve(LAST_USED_FILE)).toInstant();
+		}
+		catch(final IOException ioe)
+		{
+			return Instant.EPOCH;
+		}
+	}
+	
+	protected static long sizeOf(final Path dir)
+	{
+		try(final Stream<Path> files = Files.walk(dir))
+		{
+			return files.filter(Files::isRegularFile)
+				.mapToLong(f -> f.toFile().length())
+				.sum();
+		}
+		catch(final IOException | UncheckedIOException ex)
+		{
+			return 0;
+		}
+	}
+	
+	protected void move(final Path source, final Path target) throws IOException
+	{
+		try
+		{
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(final AtomicMoveNotSupportedException ex)
+		{
+			Files.move(source, target);
+		}
+	}
+	
+	public Path getRootDir()
+	{
+		return this.rootDir;
+	}
+	
+	public LocalBuildCacheManager withMaxTotalSizeBytes(final long maxTotalSizeBytes)
+	{
+		this.maxTotalSizeBytes = maxTotalSizeBytes;
+		return this;
+	}
+	
+	protected record CacheInfo(Path dir, Instant lastUsed, long sizeBytes)
+	{
+	}
+	
+	/**
+	 * A leased cache.
+	 */
+	public class Lease implements AutoCloseable
+	{
+		protected final String key;
+		protected final Path cacheDir;
+		protected final Path nextDir;
+		protected boolean closed;
+		
+		protected Lease(final String key, final Path cacheDir, final Path nextDir)
+		{
+			this.key = key;
+			this.cacheDir = cacheDir;
+			this.nextDir = nextDir;
+		}
+		
+		/**
+		 * @return the value for <code>--cache-from</code> (if a cache is present)
+		 */
+		public Optional<String> cacheFrom()
+		{
+			final Path current = this.cacheDir.resolve(CURRENT_DIR);
+			return Files.isDirectory(current)
+				? Optional.of("type=local,src=" + current)
+				: Optional.empty();
+		}
+		
+		/**
+		 * @return the value for <code>--cache-to</code>
+		 */
+		public String cacheTo()
+		{
+			return "type=local,mode=max,dest=" + this.nextDir;
+		}
+		
+		/**
+		 * Replaces the current cache with the newly exported one and releases the lease.
+		 * <p>
+		 * If the new cache can't be moved into place the previous one is restored.
+		 * </p>
+		 *
+		 * @throws UncheckedIOException if the cache could not be replaced
+		 */
+		public void commit()
+		{
+			try
+			{
+				if(!Files.isDirectory(this.nextDir))
+				{
+					LOG.debug("No cache was exported for {}", this.key);
+					return;
+				}
+				
+				final Path current = this.cacheDir.resolve(CURRENT_DIR);
+				Path obsolete = null;
+				if(Files.exists(current))
+				{
+					obsolete = this.cacheDir.resolve(OBSOLETE_DIR_PREFIX + UUID.randomUUID());
+					LocalBuildCacheManager.this.move(current, obsolete);
+				}
+				try
+				{
+					LocalBuildCacheManager.this.move(this.nextDir, current);
+				}
+				catch(final IOException ioe)
+				{
+					if(obsolete != null && !Files.exists(current))
+					{
+						this.restore(obsolete, current, ioe);
+					}
+					throw ioe;
+				}
+				if(obsolete != null)
+				{
+					FileUtils.deleteQuietly(obsolete.toFile());
+				}
+			}
+			catch(final IOException ioe)
+			{
+				throw new UncheckedIOException(ioe);
+			}
+			finally
+			{
+				this.close();
+			}
+		}
+		
+		protected void restore(final Path obsolete, final Path current, final IOException cause)
+		{
+			try
+			{
+				LocalBuildCacheManager.this.move(obsolete, current);
+			}
+			catch(final IOException ioe)
+			{
+				// Restored on the next lease
+				cause.addSuppressed(ioe);
+			}
+		}
+		
+		/**
+		 * Releases the lease; a not committed export is discarded.
+		 */
+		@Override
+		public void close()
+		{
+			if(this.closed)
+			{
+				return;
+			}
+			this.closed = true;
+			FileUtils.deleteQuietly(this.nextDir.toFile());
+			LocalBuildCacheManager.this.releaseKey(this.key);
+		}
+	}
+}
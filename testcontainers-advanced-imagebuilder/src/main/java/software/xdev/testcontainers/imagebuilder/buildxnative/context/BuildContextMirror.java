@@ -0,0 +1,468 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+
+
+/**
+ * Provides {@link NamedBuildContext}s to BuildKit.
+ * <p>
+ * Contexts without a {@link NamedBuildContext#filesToTransferHandler()} are passed as is.
+ * </p>
+ * <p>
+ * For all other contexts the files that are not ignored are synchronized into a stable mirror directory. Only new or
+ * modified files (by size and last modified time) are copied and the last modified times are preserved. This way the
+ * mirror stays unchanged between builds and BuildKit can still synchronize it incrementally.
+ * </p>
+ * <p>
+ * While a mirror is used by a build it can't be modified by another build (of the same JVM). The lock is not bound
+ * to a thread. A mirror is only modified if its content (fingerprint of the files) changed, so builds that use the
+ * same unchanged context can run concurrently.
+ * </p>
+ * <p>
+ * To prevent deadlocks when multiple contexts are used by a build ({@link #prepareAll(Logger, Collection)}), mirrors
+ * are only modified while no other mirror is locked and they are locked for usage in a global order.
+ * </p>
+ */
+public class BuildContextMirror
+{
+	private static BuildContextMirror instance;
+	
+	public static BuildContextMirror instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new BuildContextMirror(
+			FileUtils.getTempDirectory().toPath().resolve("tcaib-named-build-contexts"));
+	}
+	
+	public static void setInstance(final BuildContextMirror instance)
+	{
+		BuildContextMirror.instance = instance;
+	}
+	
+	protected final Path rootDir;
+	protected final Map<Path, Mirror> mirrors = new ConcurrentHashMap<>();
+	
+	public BuildContextMirror(final Path rootDir)
+	{
+		this.rootDir = rootDir;
+	}
+	
+	/**
+	 * Prepares the context for a build.
+	 * <p>
+	 * The returned context must be closed after the build.
+	 * </p>
+	 */
+	public PreparedBuildContext prepare(final Logger log, final NamedBuildContext context)
+	{
+		return this.prepareAll(log, List.of(context)).get(0);
+	}
+	
+	/**
+	 * Prepares all contexts of a build.
+	 * <p>
+	 * The returned contexts must be closed after the build.
+	 * </p>
+	 *
+	 * @return the prepared contexts in the order of the given contexts
+	 */
+	public List<PreparedBuildContext> prepareAll(final Logger log, final Collection<NamedBuildContext> contexts)
+	{
+		final PreparedBuildContext[] prepared = new PreparedBuildContext[contexts.size()];
+		// Sorted by mirror directory = global lock order
+		final TreeMap<Path, PendingMirror> pendingMirrors = new TreeMap<>();
+		int index = 0;
+		for(final NamedBuildContext context : contexts)
+		{
+			if(context.filesToTransferHandler() == null)
+			{
+				prepared[index++] = new PreparedBuildContext(
+					context.name(),
+					context.directory().toAbsolutePath(),
+					() -> {
+					});
+				continue;
+			}
+			
+			final Path mirrorDir = this.rootDir.resolve(mirrorKey(context));
+			final Map<Path, String> files =
+				context.filesToTransferHandler().determineFilesToTransfer(log, context.directory());
+			if(pendingMirrors.put(
+				mirrorDir,
+				new PendingMirror(index++, context, mirrorDir, files, fingerprint(files))) != null)
+			{
+				throw new IllegalArgumentException("Build context '" + context.name() + "' is used multiple times");
+			}
+		}
+		
+		while(true)
+		{
+			// Only modify mirrors while holding no other lock
+			pendingMirrors.values().forEach(pending -> this.syncIfChanged(log, pending));
+			
+			final List<PreparedBuildContext> locked = new ArrayList<>();
+			boolean unchanged = true;
+			for(final PendingMirror pending : pendingMirrors.values())
+			{
+				final Mirror mirror = this.mirror(pending.mirrorDir());
+				final PreparedBuildContext lockedContext = mirror.lockForUsage(pending.context().name());
+				locked.add(lockedContext);
+				if(!pending.fingerprint().equals(mirror.fingerprint))
+				{
+					unchanged = false;
+					break;
+				}
+				prepared[pending.index()] = lockedContext;
+			}
+			if(unchanged)
+			{
+				return List.of(prepared);
+			}
+			
+			// Modified by a concurrent build between synchronizing and locking -> Synchronize again
+			locked.forEach(PreparedBuildContext::close);
+			log.debug("Build context was modified concurrently; Synchronizing again");
+		}
+	}
+	
+	protected Mirror mirror(final Path mirrorDir)
+	{
+		return this.mirrors.computeIfAbsent(mirrorDir, d -> new Mirror(d, new StampedLock()));
+	}
+	
+	protected void syncIfChanged(final Logger log, final PendingMirror pending)
+	{
+		final Mirror mirror = this.mirror(pending.mirrorDir());
+		if(mirror.isUpToDate(pending.fingerprint()))
+		{
+			log.debug("Build context '{}' is unchanged", pending.context().name());
+			return;
+		}
+		
+		final long stamp = mirror.lock().writeLock();
+		try
+		{
+			// Might have been synchronized by a concurrent build in the meantime
+			if(mirror.isUpToDate(pending.fingerprint()))
+			{
+				return;
+			}
+			
+			mirror.fingerprint = null;
+			final long startMs = System.currentTimeMillis();
+			final SyncResult result = this.sync(pending.files(), pending.mirrorDir());
+			mirror.fingerprint = pending.fingerprint();
+			log.info(
+				"Synchronized build context '{}' into {}: {}x copied, {}x deleted, {}x unchanged, took {}ms",
+				pending.context().name(),
+				pending.mirrorDir(),
+				result.copied(),
+				result.deleted(),
+				result.unchanged(),
+				System.currentTimeMillis() - startMs);
+		}
+		finally
+		{
+			mirror.lock().unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Creates a fingerprint of the files (absolute path -&gt; relative path) based on the same attributes that are
+	 * used to determine if a file {@link #isUpToDate(Path, Path) is up to date}.
+	 */
+	protected static String fingerprint(final Map<Path, String> files)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			final Map<String, Path> sorted = new TreeMap<>();
+			files.forEach((source, relativePath) -> sorted.put(relativePath, source));
+			for(final Map.Entry<String, Path> entry : sorted.entrySet())
+			{
+				digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+				digest.update((byte)0);
+				digest.update(fileState(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+				digest.update((byte)0);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	protected static String fileState(final Path file)
+	{
+		try
+		{
+			final BasicFileAttributes attrs =
+				Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			return attrs.isSymbolicLink() + "/" + attrs.size() + "@" + attrs.lastModifiedTime().toMillis();
+		}
+		catch(final IOException ioe)
+		{
+			return "missing";
+		}
+	}
+	
+	/**
+	 * Synchronizes the files (absolute path -&gt; relative path) into the mirror directory.
+	 */
+	protected SyncResult sync(final Map<Path, String> files, final Path mirrorDir)
+	{
+		try
+		{
+			Files.createDirectories(mirrorDir);
+			
+			int copied = 0;
+			int unchanged = 0;
+			final Set<Path> expected = new HashSet<>();
+			for(final Map.Entry<Path, String> entry : files.entrySet())
+			{
+				final Path target = mirrorDir.resolve(entry.getValue()).normalize();
+				if(!target.startsWith(mirrorDir))
+				{
+					throw new IllegalStateException("File is outside of mirror directory: " + entry.getValue());
+				}
+				expected.add(target);
+				
+				if(this.isUpToDate(entry.getKey(), target))
+				{
+					unchanged++;
+					continue;
+				}
+				
+				Files.createDirectories(target.getParent());
+				Files.copy(
+					entry.getKey(),
+					target,
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.COPY_ATTRIBUTES,
+					LinkOption.NOFOLLOW_LINKS);
+				copied++;
+			}
+			
+			return new SyncResult(copied, this.deleteUnexpected(mirrorDir, expected), unchanged);
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	protected boolean isUpToDate(final Path source, final Path target)
+	{
+		try
+		{
+			final BasicFileAttributes sourceAttrs =
+				Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			final BasicFileAttributes targetAttrs =
+				Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			return sourceAttrs.isSymbolicLink() == targetAttrs.isSymbolicLink()
+				&& sourceAttrs.size() == targetAttrs.size()
+				// Copied timestamps might be less precise (e.g. microseconds instead of nanoseconds)
+				&& sourceAttrs.lastModifiedTime().toMillis() == targetAttrs.lastModifiedTime().toMillis();
+		}
+		catch(final IOException ioe)
+		{
+			// Usually the target doesn't exist
+			return false;
+		}
+	}
+	
+	/**
+	 * Deletes all files and (afterward empty) directories from the mirror that are not expected.
+	 *
+	 * @return the number of deleted files
+	 */
+	protected int deleteUnexpected(final Path mirrorDir, final Set<Path> expected) throws IOException
+	{
+		final List<Path> paths;
+		try(final Stream<Path> walk = Files.walk(mirrorDir))
+		{
+			// Deepest first so that directories are processed after their content
+			paths = walk.sorted(Comparator.reverseOrder()).toList();
+		}
+		
+		int deleted = 0;
+		for(final Path path : paths)
+		{
+			if(path.equals(mirrorDir) || expected.contains(path))
+			{
+				continue;
+			}
+			if(Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+			{
+				try(final Stream<Path> content = Files.list(path))
+				{
+					if(content.findAny().isPresent())
+					{
+						continue;
+					}
+				}
+			}
+			else
+			{
+				deleted++;
+			}
+			Files.delete(path);
+		}
+		return deleted;
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected static String mirrorKey(final NamedBuildContext context)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(context.name().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte)0);
+			digest.update(context.directory().toAbsolutePath().normalize().toString()
+				.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest.digest(), 0, 16);
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public Path getRootDir()
+	{
+		return this.rootDir;
+	}
+	
+	protected record SyncResult(int copied, int deleted, int unchanged)
+	{
+	}
+	
+	/**
+	 * @param index       the index of the context (in the order of the given contexts)
+	 * @param files       the files that should be in the mirror (absolute path -&gt; relative path)
+	 * @param fingerprint the {@link #fingerprint(Map) fingerprint} of the files
+	 */
+	protected record PendingMirror(
+		int index,
+		NamedBuildContext context,
+		Path mirrorDir,
+		Map<Path, String> files,
+		String fingerprint)
+	{
+	}
+	
+	/**
+	 * State of a mirror directory.
+	 */
+	protected static class Mirror
+	{
+		protected final Path directory;
+		protected final StampedLock lock;
+		/**
+		 * The fingerprint of the content of the mirror; only modified while holding the write lock.
+		 */
+		protected volatile String fingerprint;
+		
+		protected Mirror(final Path directory, final StampedLock lock)
+		{
+			this.directory = directory;
+			this.lock = Objects.requireNonNull(lock);
+		}
+		
+		public StampedLock lock()
+		{
+			return this.lock;
+		}
+		
+		public boolean isUpToDate(final String expectedFingerprint)
+		{
+			return expectedFingerprint.equals(this.fingerprint) && Files.isDirectory(this.directory);
+		}
+		
+		/**
+		 * Locks the mirror so that it can't be modified until the returned context is closed.
+		 */
+		public PreparedBuildContext lockForUsage(final String name)
+		{
+			final long stamp = this.lock.readLock();
+			final AtomicBoolean released = new AtomicBoolean();
+			return new PreparedBuildContext(name, this.directory, () -> {
+				if(released.compareAndSet(false, true))
+				{
+					this.lock.unlockRead(stamp);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * A context that is ready to be used by a build.
+	 *
+	 * @param name      the name of the context
+	 * @param directory the directory that should be passed to BuildKit
+	 * @param onClose   executed when the build finished
+	 */
+	public record PreparedBuildContext(String name, Path directory, Runnable onClose) implements AutoCloseable
+	{
+		@Override
+		public void close()
+		{
+			this.onClose.run();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.context;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
+
+
+/**
+ * A named build context (<code>--build-context name=/path</code>) that is passed as local directory to BuildKit.
+ * <p>
+ * BuildKit synchronizes local directories incrementally (only changed files are transferred again). This is
+ * especially useful for large directories that rarely change (e.g. vendored SDKs or test fixtures) which would
+ * otherwise be archived into the main build context on every build.
+ * </p>
+ * <p>
+ * Inside the Dockerfile the context can be used with e.g. <code>COPY --from=name . /target</code>.
+ * </p>
+ *
+ * @param name                   the name of the context
+ * @param directory              the directory
+ * @param filesToTransferHandler optional; if present only the files that are not ignored by the handler are
+ *                               provided to BuildKit (using a {@link BuildContextMirror mirror directory})
+ */
+public record NamedBuildContext(
+	String name,
+	Path directory,
+	FilesToTransferHandler filesToTransferHandler)
+{
+	public NamedBuildContext
+	{
+		Objects.requireNonNull(name);
+		Objects.requireNonNull(directory);
+		if(name.isBlank() || name.contains("="))
+		{
+			throw new IllegalArgumentException("Invalid name for build context: " + name);
+		}
+	}
+	
+	public NamedBuildContext(final String name, final Path directory)
+	{
+		this(name, directory, null);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.progress;
+
+import java.util.List;
+
+
+/**
+ * Listens to the progress of a BuildKit build.
+ */
+public interface BuildProgressListener
+{
+	default void onVertexStarted(final BuildVertex vertex)
+	{
+	}
+	
+	default void onVertexCompleted(final BuildVertex vertex)
+	{
+	}
+	
+	/**
+	 * @return a listener that forwards all events to the given listeners
+	 */
+	static BuildProgressListener all(final List<BuildProgressListener> listeners)
+	{
+		final List<BuildProgressListener> copy = List.copyOf(listeners);
+		return new BuildProgressListener()
+		{
+			@Override
+			public void onVertexStarted(final BuildVertex vertex)
+			{
+				copy.forEach(l -> l.onVertexStarted(vertex));
+			}
+			
+			@Override
+			public void onVertexCompleted(final BuildVertex vertex)
+			{
+				copy.forEach(l -> l.onVertexCompleted(vertex));
+			}
+		};
+	}
+}
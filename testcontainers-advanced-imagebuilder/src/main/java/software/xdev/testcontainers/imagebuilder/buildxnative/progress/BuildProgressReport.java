@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.progress;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Collects the completed steps of a build, e.g. to find the step that no longer hits the cache.
+ */
+public class BuildProgressReport implements BuildProgressListener
+{
+	protected final List<BuildVertex> completedVertices = Collections.synchronizedList(new ArrayList<>());
+	
+	@Override
+	public void onVertexCompleted(final BuildVertex vertex)
+	{
+		this.completedVertices.add(vertex);
+	}
+	
+	/**
+	 * @return the completed steps in the order of completion
+	 */
+	public List<BuildVertex> steps()
+	{
+		synchronized(this.completedVertices)
+		{
+			return List.copyOf(this.completedVertices);
+		}
+	}
+	
+	/**
+	 * @return the steps ordered by their duration (longest first)
+	 */
+	public List<BuildVertex> slowestSteps()
+	{
+		return this.steps()
+			.stream()
+			.sorted(Comparator.comparing((BuildVertex v) -> v.duration().orElse(Duration.ZERO)).reversed())
+			.toList();
+	}
+	
+	public List<BuildVertex> uncachedSteps()
+	{
+		return this.steps()
+			.stream()
+			.filter(v -> !v.cached())
+			.toList();
+	}
+	
+	/**
+	 * @return ratio (0-1) of the steps that were cached; <code>0</code> if there are no steps
+	 */
+	public double cacheHitRatio()
+	{
+		final List<BuildVertex> steps = this.steps();
+		return steps.isEmpty()
+			? 0
+			: (double)steps.stream().filter(BuildVertex::cached).count() / steps.size();
+	}
+	
+	public long totalBytesTransferred()
+	{
+		return this.steps()
+			.stream()
+			.mapToLong(BuildVertex::bytesTransferred)
+			.sum();
+	}
+	
+	/**
+	 * @return a human readable summary with one line per step
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public String format()
+	{
+		final List<BuildVertex> steps = this.steps();
+		final StringBuilder sb = new StringBuilder()
+			.append(steps.size())
+			.append(" steps, cache hit ratio ")
+			.append(Math.round(this.cacheHitRatio() * 100))
+			.append('%');
+		for(final BuildVertex step : steps)
+		{
+			sb.append('\n')
+				.append(step.cached() ? "CACHED " : "       ")
+				.append(String.format("%8dms ", step.duration().map(Duration::toMillis).orElse(0L)))
+				.append(step.name());
+			if(step.failed())
+			{
+				sb.append(" ERROR: ").append(step.error());
+			}
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.format();
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.progress;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+
+/**
+ * A step (vertex) of a BuildKit build, e.g. <code>[2/5] RUN apt-get update</code>.
+ *
+ * @param digest           unique identifier of the vertex
+ * @param name             human readable name
+ * @param started          when the vertex was started (<code>null</code> if unknown)
+ * @param completed        when the vertex was completed (<code>null</code> if not completed yet)
+ * @param cached           if the result was taken from the cache
+ * @param error            the error message if the vertex failed (<code>null</code> otherwise)
+ * @param bytesTransferred the number of bytes that were transferred for the vertex (e.g. context, pulled layers)
+ */
+public record BuildVertex(
+	String digest,
+	String name,
+	Instant started,
+	Instant completed,
+	boolean cached,
+	String error,
+	long bytesTransferred)
+{
+	public Optional<Duration> duration()
+	{
+		return this.started != null && this.completed != null
+			? Optional.of(Duration.between(this.started, this.completed))
+			: Optional.empty();
+	}
+	
+	public boolean failed()
+	{
+		return this.error != null && !this.error.isEmpty();
+	}
+}
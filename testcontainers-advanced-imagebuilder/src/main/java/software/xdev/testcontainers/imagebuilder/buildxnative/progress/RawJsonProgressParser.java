@@ -0,0 +1,198 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import software.xdev.testcontainers.imagebuilder.json.SimpleJson;
+
+
+/**
+ * Parses the output of <code>docker buildx build --progress=rawjson</code>.
+ * <p>
+ * Every line is a JSON encoded <code>SolveStatus</code> that contains (partial) updates for vertices, statuses (e.g.
+ * transferred bytes) and logs. The updates are merged and forwarded to the {@link BuildProgressListener}.
+ * </p>
+ */
+public class RawJsonProgressParser
+{
+	protected final BuildProgressListener listener;
+	protected final Consumer<String> logFunc;
+	protected final Map<String, VertexState> vertices = new HashMap<>();
+	
+	/**
+	 * @param logFunc receives all lines that are not progress updates and the logs of the vertices
+	 */
+	public RawJsonProgressParser(final BuildProgressListener listener, final Consumer<String> logFunc)
+	{
+		this.listener = listener;
+		this.logFunc = logFunc;
+	}
+	
+	public synchronized void accept(final String line)
+	{
+		if(!line.startsWith("{"))
+		{
+			this.logFunc.accept(line);
+			return;
+		}
+		
+		final Map<String, Object> status;
+		try
+		{
+			status = asMap(SimpleJson.parse(line));
+		}
+		catch(final IllegalArgumentException iae)
+		{
+			this.logFunc.accept(line);
+			return;
+		}
+		
+		// Statuses first, so that transferred bytes are present when a vertex completes
+		asList(status.get("statuses")).forEach(s -> this.handleStatus(asMap(s)));
+		asList(status.get("vertexes")).forEach(v -> this.handleVertex(asMap(v)));
+		asList(status.get("logs")).forEach(l -> this.handleLog(asMap(l)));
+	}
+	
+	protected void handleVertex(final Map<String, Object> vertex)
+	{
+		final String digest = (String)vertex.get("digest");
+		if(digest == null)
+		{
+			return;
+		}
+		
+		final VertexState state = this.vertices.computeIfAbsent(digest, VertexState::new);
+		if(vertex.get("name") instanceof final String name)
+		{
+			state.name = name;
+		}
+		if(Boolean.TRUE.equals(vertex.get("cached")))
+		{
+			state.cached = true;
+		}
+		if(vertex.get("error") instanceof final String error && !error.isEmpty())
+		{
+			state.error = error;
+		}
+		
+		final Instant started = parseTimestamp(vertex.get("started"));
+		if(started != null && state.started == null)
+		{
+			state.started = started;
+			this.listener.onVertexStarted(state.toVertex());
+		}
+		final Instant completed = parseTimestamp(vertex.get("completed"));
+		if(completed != null && state.completed == null)
+		{
+			state.completed = completed;
+			this.listener.onVertexCompleted(state.toVertex());
+		}
+	}
+	
+	protected void handleStatus(final Map<String, Object> status)
+	{
+		if(status.get("vertex") instanceof final String digest
+			&& status.get("id") instanceof final String id
+			&& status.get("current") instanceof final Number current)
+		{
+			this.vertices.computeIfAbsent(digest, VertexState::new)
+				.currentBytesByStatusId
+				.put(id, current.longValue());
+		}
+	}
+	
+	protected void handleLog(final Map<String, Object> log)
+	{
+		if(!(log.get("data") instanceof final String data))
+		{
+			return;
+		}
+		try
+		{
+			new String(Base64.getDecoder().decode(data), StandardCharsets.UTF_8)
+				.lines()
+				.forEach(this.logFunc);
+		}
+		catch(final IllegalArgumentException iae)
+		{
+			this.logFunc.accept(data);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static Map<String, Object> asMap(final Object obj)
+	{
+		return obj instanceof Map<?, ?> ? (Map<String, Object>)obj : Map.of();
+	}
+	
+	protected static List<?> asList(final Object obj)
+	{
+		return obj instanceof final List<?> list ? list : List.of();
+	}
+	
+	protected static Instant parseTimestamp(final Object obj)
+	{
+		if(!(obj instanceof final String timestamp))
+		{
+			return null;
+		}
+		try
+		{
+			return OffsetDateTime.parse(timestamp).toInstant();
+		}
+		catch(final DateTimeParseException ex)
+		{
+			return null;
+		}
+	}
+	
+	protected static class VertexState
+	{
+		protected final String digest;
+		protected final Map<String, Long> currentBytesByStatusId = new HashMap<>();
+		protected String name;
+		protected Instant started;
+		protected Instant completed;
+		protected boolean cached;
+		protected String error;
+		
+		protected VertexState(final String digest)
+		{
+			this.digest = digest;
+		}
+		
+		protected BuildVertex toVertex()
+		{
+			return new BuildVertex(
+				this.digest,
+				this.name != null ? this.name : this.digest,
+				this.started,
+				this.completed,
+				this.cached,
+				this.error,
+				this.currentBytesByStatusId.values().stream().mapToLong(Long::longValue).sum());
+		}
+	}
+}
@@ -15,10 +15,17 @@
  */
 package software.xdev.testcontainers.imagebuilder.compat;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import software.xdev.testcontainers.imagebuilder.jgit.errors.InvalidPatternException;
@@ -62,6 +69,17 @@ import software.xdev.testcontainers.imagebuilder.transfer.DockerFileLineModifier
 @SuppressWarnings("java:S1075")
 public class DockerfileCOPYParentsEmulator implements DockerFileLineModifier
 {
+	protected EmulationMode emulationMode = EmulationMode.FILE;
+	
+	/**
+	 * @see EmulationMode
+	 */
+	public DockerfileCOPYParentsEmulator withEmulationMode(final EmulationMode emulationMode)
+	{
+		this.emulationMode = Objects.requireNonNull(emulationMode);
+		return this;
+	}
+	
 	@Override
 	public List<String> modify(final List<String> lines, final Set<String> relativeFiles)
 	{
@@ -76,12 +94,28 @@ public class DockerfileCOPYParentsEmulator implements DockerFileLineModifier
 			return lines;
 		}
 		
+		// Index the files only once per Dockerfile and not for every glob
+		final RelativePathTrie relativeFilesTrie = this.createRelativePathTrie(relativeFiles);
 		return trimmedLines.stream()
-			.flatMap(line -> this.handleLine(line, relativeFiles))
+			.flatMap(line -> this.handleLine(line, relativeFilesTrie))
 			.toList();
 	}
 	
+	protected RelativePathTrie createRelativePathTrie(final Set<String> relativeFiles)
+	{
+		return new RelativePathTrie(relativeFiles);
+	}
+	
+	/**
+	 * @deprecated Use {@link #handleLine(String, RelativePathTrie)}
+	 */
+	@Deprecated(since = "4.2.0")
 	protected Stream<String> handleLine(final String line, final Set<String> relativeFiles)
+	{
+		return this.handleLine(line, this.createRelativePathTrie(relativeFiles));
+	}
+	
+	protected Stream<String> handleLine(final String line, final RelativePathTrie relativeFiles)
 	{
 		final String parentsArg = " --parents";
 		if(!line.startsWith("COPY") || !line.contains(parentsArg))
@@ -117,23 +151,129 @@ public class DockerfileCOPYParentsEmulator implements DockerFileLineModifier
 			? targetPathFinal
 			: (targetPathFinal + "/");
 		
-		return Stream.of(args)
-			.limit((long)args.length - (isLastArg ? 1 : 0))
+		final List<String> sources = List.of(args).subList(0, args.length - (isLastArg ? 1 : 0));
+		final Stream<Map.Entry<String, String>> sourcesAndTargets =
+			this.emulationMode == EmulationMode.DIRECTORY
+				? this.collapseToDirectories(sources, targetPathFinalForRelative, relativeFiles)
+				: this.expandToFiles(sources, targetPathFinalForRelative, relativeFiles);
+		
+		return sourcesAndTargets
+			.map(e -> lineBeforeArgs + " " + e.getKey()
+				+ (!lineAfterArgsFinal.isEmpty() ? " " + lineAfterArgsFinal : "")
+				+ " " + e.getValue());
+	}
+	
+	/**
+	 * Creates one instruction per file.
+	 */
+	protected Stream<Map.Entry<String, String>> expandToFiles(
+		final List<String> sources,
+		final String targetPathFinalForRelative,
+		final RelativePathTrie relativeFiles)
+	{
+		return sources.stream()
 			.flatMap(source -> {
 				if(!source.contains("*"))
 				{
 					return Stream.of(Map.entry(source, targetPathFinalForRelative + removeRelativeStart(source)));
 				}
 				
-				final GlobMatcher matcher = new GlobMatcher(source);
-				return relativeFiles.stream()
-					.filter(matcher::matches)
-					.sorted()
+				return relativeFiles.findMatching(source)
+					.stream()
 					.map(s -> Map.entry(s, targetPathFinalForRelative + s));
-			})
-			.map(e -> lineBeforeArgs + " " + e.getKey()
-				+ (!lineAfterArgsFinal.isEmpty() ? " " + lineAfterArgsFinal : "")
-				+ " " + e.getValue());
+			});
+	}
+	
+	/**
+	 * Creates one instruction per target directory.
+	 * <p>
+	 * Directories where all contained files are matched are copied as a whole.
+	 * </p>
+	 */
+	protected Stream<Map.Entry<String, String>> collapseToDirectories(
+		final List<String> sources,
+		final String targetPathFinalForRelative,
+		final RelativePathTrie relativeFiles)
+	{
+		final List<Map.Entry<String, String>> sourcesAndTargets = new ArrayList<>();
+		
+		final Set<String> matchedFiles = new TreeSet<>();
+		for(final String source : sources)
+		{
+			if(source.contains("*"))
+			{
+				matchedFiles.addAll(relativeFiles.findMatching(source));
+				continue;
+			}
+			
+			final String path = removeRelativeStart(source);
+			if(relativeFiles.contains(path))
+			{
+				matchedFiles.add(path);
+			}
+			else
+			{
+				// Unknown (e.g. a directory) -> keep as is
+				sourcesAndTargets.add(Map.entry(source, targetPathFinalForRelative + path));
+			}
+		}
+		
+		final Map<String, Integer> matchedFilesPerDirectory = new HashMap<>();
+		for(final String file : matchedFiles)
+		{
+			for(String dir = parentDirectory(file); dir != null; dir = parentDirectory(dir))
+			{
+				matchedFilesPerDirectory.merge(dir, 1, Integer::sum);
+			}
+		}
+		// Only copy a directory if the context contains no other files in it
+		// otherwise additional files would be copied and unrelated changes would bust the cache
+		final Set<String> completeDirectories = matchedFilesPerDirectory.entrySet()
+			.stream()
+			.filter(e -> e.getValue() == relativeFiles.countFiles(e.getKey()))
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toSet());
+		final Set<String> topmostCompleteDirectories = completeDirectories.stream()
+			.filter(dir -> !isInsideAnyOf(dir, completeDirectories))
+			.collect(Collectors.toCollection(TreeSet::new));
+		topmostCompleteDirectories.forEach(dir ->
+			sourcesAndTargets.add(Map.entry(dir + "/", targetPathFinalForRelative + dir + "/")));
+		
+		final Map<String, List<String>> remainingFilesByDirectory = new TreeMap<>();
+		for(final String file : matchedFiles)
+		{
+			if(!isInsideAnyOf(file, topmostCompleteDirectories))
+			{
+				final String dir = parentDirectory(file);
+				remainingFilesByDirectory.computeIfAbsent(dir != null ? dir + "/" : "", d -> new ArrayList<>())
+					.add(file);
+			}
+		}
+		remainingFilesByDirectory.forEach((dir, files) ->
+			sourcesAndTargets.add(Map.entry(String.join(" ", files), targetPathFinalForRelative + dir)));
+		
+		return sourcesAndTargets.stream()
+			.sorted(Map.Entry.comparingByValue());
+	}
+	
+	protected static boolean isInsideAnyOf(final String path, final Set<String> directories)
+	{
+		for(String dir = parentDirectory(path); dir != null; dir = parentDirectory(dir))
+		{
+			if(directories.contains(dir))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	protected static String parentDirectory(final String path)
+	{
+		final int dirSepIndex = path.lastIndexOf('/');
+		return dirSepIndex != -1
+			? path.substring(0, dirSepIndex)
+			: null;
 	}
 	
 	protected static String removeRelativeStart(final String path)
@@ -141,20 +281,84 @@ public class DockerfileCOPYParentsEmulator implements DockerFileLineModifier
 		return path.startsWith("./") ? path.substring(2) : path;
 	}
 	
+	public enum EmulationMode
+	{
+		/**
+		 * Creates a <code>COPY</code> instruction for each matched file.
+		 */
+		FILE,
+		/**
+		 * Groups the matched files by their target directory and creates one <code>COPY</code> instruction with
+		 * multiple sources per directory.
+		 * <p>
+		 * If all files of a directory (inside the build context) are matched, the directory is copied as a whole.
+		 * </p>
+		 * <p>
+		 * This results in significantly less instructions/layers when e.g. <code>**&#47;pom.xml</code> matches a lot of
+		 * files.
+		 * </p>
+		 */
+		DIRECTORY
+	}
+	
 	public static class GlobMatcher
 	{
+		protected static final String GLOB_SPECIAL_CHARS = "*?[]\\";
+		
+		protected final String glob;
 		protected final Pattern pattern;
+		protected final String literalSuffix;
 		
 		public GlobMatcher(final String pattern)
 		{
+			this.glob = removeRelativeStart(pattern);
 			try
 			{
-				this.pattern = Pattern.compile("\\/?" + Strings.convertGlob(removeRelativeStart(pattern)));
+				this.pattern = Pattern.compile("\\/?" + Strings.convertGlob(this.glob));
 			}
 			catch(final InvalidPatternException e)
 			{
 				throw new IllegalArgumentException(e);
 			}
+			this.literalSuffix = this.glob.substring(lastIndexOfGlobSpecialChar(this.glob) + 1);
+		}
+		
+		protected static int lastIndexOfGlobSpecialChar(final String glob)
+		{
+			for(int i = glob.length() - 1; i >= 0; i--)
+			{
+				if(GLOB_SPECIAL_CHARS.indexOf(glob.charAt(i)) != -1)
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		/**
+		 * @return the directories at the start of the glob that contain no wildcards, e.g. <code>src/main</code> for
+		 * <code>src/main/**&#47;*.java</code>. Every match is located inside this directory.
+		 */
+		public String literalDirectoryPrefix()
+		{
+			final int firstSpecialCharIndex = indexOfGlobSpecialChar(this.glob);
+			final int prefixEndIndex = this.glob.lastIndexOf(
+				'/',
+				firstSpecialCharIndex != -1 ? firstSpecialCharIndex : this.glob.length());
+			final int prefixStartIndex = this.glob.startsWith("/") ? 1 : 0;
+			return prefixEndIndex > prefixStartIndex ? this.glob.substring(prefixStartIndex, prefixEndIndex) : "";
+		}
+		
+		protected static int indexOfGlobSpecialChar(final String glob)
+		{
+			for(int i = 0; i < glob.length(); i++)
+			{
+				if(GLOB_SPECIAL_CHARS.indexOf(glob.charAt(i)) != -1)
+				{
+					return i;
+				}
+			}
+			return -1;
 		}
 		
 		@SuppressWarnings("checkstyle:FinalParameters")
@@ -166,7 +370,23 @@ public class DockerfileCOPYParentsEmulator implements DockerFileLineModifier
 		
 		public boolean matches(final String path)
 		{
-			return this.pattern.matcher(this.correctPathForMatching(path)).matches();
+			final String correctedPath = this.correctPathForMatching(path);
+			// Cheap pre-check: Everything after the last wildcard has to match literally
+			return correctedPath.endsWith(this.literalSuffix)
+				&& this.pattern.matcher(correctedPath).matches();
+		}
+		
+		/**
+		 * Checks if a path inside the given directory might match this glob.
+		 *
+		 * @param directoryPath the path of the directory - ending with <code>/</code>
+		 * @return <code>false</code> if no path inside the directory can match
+		 */
+		public boolean mayMatchBelow(final String directoryPath)
+		{
+			final Matcher matcher = this.pattern.matcher(this.correctPathForMatching(directoryPath));
+			// If the end of the input was not hit, no longer input can match either
+			return matcher.matches() || matcher.hitEnd();
 		}
 	}
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.compat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Indexes relative file paths (separated by <code>/</code>) by their path segments.
+ * <p>
+ * Glob lookups only walk the literal directory prefix of the pattern and then only descend into directories that can
+ * still produce a match. This way a glob like <code>src/main/**</code> does not need to be checked against every
+ * file of the context.
+ * </p>
+ */
+public class RelativePathTrie
+{
+	protected final Node root = new Node();
+	
+	public RelativePathTrie(final Collection<String> relativePaths)
+	{
+		relativePaths.forEach(this::add);
+	}
+	
+	public void add(final String relativePath)
+	{
+		final List<Node> parents = new ArrayList<>();
+		Node current = this.root;
+		int start = 0;
+		for(int end = relativePath.indexOf('/'); end != -1; end = relativePath.indexOf('/', start))
+		{
+			if(end > start)
+			{
+				parents.add(current);
+				current = current.getOrCreateChild(relativePath.substring(start, end));
+			}
+			start = end + 1;
+		}
+		if(start >= relativePath.length())
+		{
+			return;
+		}
+		parents.add(current);
+		
+		final Node file = current.getOrCreateChild(relativePath.substring(start));
+		if(!file.file)
+		{
+			file.file = true;
+			parents.forEach(n -> n.fileCount++);
+		}
+	}
+	
+	/**
+	 * @return the number of files inside the directory (including subdirectories)
+	 */
+	public int countFiles(final String relativeDirectoryPath)
+	{
+		final Node node = this.find(relativeDirectoryPath);
+		return node != null ? node.fileCount : 0;
+	}
+	
+	public boolean contains(final String relativePath)
+	{
+		final Node node = this.find(relativePath);
+		return node != null && node.file;
+	}
+	
+	/**
+	 * Finds all paths that match the given glob.
+	 *
+	 * @return the matching paths in natural (sorted) order
+	 */
+	public List<String> findMatching(final String glob)
+	{
+		return this.findMatching(new DockerfileCOPYParentsEmulator.GlobMatcher(glob));
+	}
+	
+	public List<String> findMatching(final DockerfileCOPYParentsEmulator.GlobMatcher matcher)
+	{
+		final String literalDirectoryPrefix = matcher.literalDirectoryPrefix();
+		final Node start = this.find(literalDirectoryPrefix);
+		if(start == null || start.children == null)
+		{
+			return List.of();
+		}
+		
+		final List<String> matches = new ArrayList<>();
+		this.collectMatching(
+			start,
+			new StringBuilder(literalDirectoryPrefix.isEmpty() ? "" : literalDirectoryPrefix + "/"),
+			matcher,
+			matches);
+		Collections.sort(matches);
+		return matches;
+	}
+	
+	protected void collectMatching(
+		final Node node,
+		final StringBuilder currentPath,
+		final DockerfileCOPYParentsEmulator.GlobMatcher matcher,
+		final List<String> matches)
+	{
+		final int initialLength = currentPath.length();
+		for(final Map.Entry<String, Node> entry : node.children.entrySet())
+		{
+			currentPath.append(entry.getKey());
+			
+			final Node child = entry.getValue();
+			if(child.file)
+			{
+				final String path = currentPath.toString();
+				if(matcher.matches(path))
+				{
+					matches.add(path);
+				}
+			}
+			if(child.children != null)
+			{
+				currentPath.append('/');
+				if(matcher.mayMatchBelow(currentPath.toString()))
+				{
+					this.collectMatching(child, currentPath, matcher, matches);
+				}
+			}
+			
+			currentPath.setLength(initialLength);
+		}
+	}
+	
+	protected Node find(final String relativePath)
+	{
+		Node current = this.root;
+		for(final String segment : relativePath.split("/"))
+		{
+			if(segment.isEmpty())
+			{
+				continue;
+			}
+			if(current.children == null)
+			{
+				return null;
+			}
+			current = current.children.get(segment);
+			if(current == null)
+			{
+				return null;
+			}
+		}
+		return current;
+	}
+	
+	protected static class Node
+	{
+		protected Map<String, Node> children;
+		protected boolean file;
+		protected int fileCount;
+		
+		protected Node getOrCreateChild(final String segment)
+		{
+			if(this.children == null)
+			{
+				this.children = new HashMap<>();
+			}
+			return this.children.computeIfAbsent(segment, s -> new Node());
+		}
+	}
+}
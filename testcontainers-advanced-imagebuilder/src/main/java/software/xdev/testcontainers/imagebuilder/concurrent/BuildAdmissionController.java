@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.concurrent;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import software.xdev.testcontainers.imagebuilder.metrics.ImageBuilderMetricsHolder;
+
+
+/**
+ * JVM-wide admission control for operations that put load onto the Docker daemon.
+ * <p>
+ * When a lot of images are built in parallel (e.g. by parallel JUnit tests) the daemon starts to thrash on disk and
+ * the total build time rises superlinearly. This limits the number of concurrent context uploads, builds and pulls
+ * separately. Waiting operations are admitted in FIFO order (fair queueing).
+ * </p>
+ * <p>
+ * The time spent waiting in the queue is recorded and can be inspected using {@link #stats(Operation)}.
+ * </p>
+ */
+public class BuildAdmissionController
+{
+	private static BuildAdmissionController instance;
+	
+	public static BuildAdmissionController instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new BuildAdmissionController();
+	}
+	
+	public static void setInstance(final BuildAdmissionController instance)
+	{
+		BuildAdmissionController.instance = instance;
+	}
+	
+	public enum Operation
+	{
+		/**
+		 * Transferring the build context to the daemon.
+		 * <p>
+		 * Note: Native builds (using buildx) upload the context as part of the build.
+		 * </p>
+		 */
+		UPLOAD,
+		BUILD,
+		PULL
+	}
+	
+	protected final Map<Operation, Lane> lanes = new EnumMap<>(Operation.class);
+	
+	/**
+	 * Creates a controller with default limits that are based on the number of available processors.
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public BuildAdmissionController()
+	{
+		this(
+			Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+			Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+			4);
+	}
+	
+	public BuildAdmissionController(final int maxUploads, final int maxBuilds, final int maxPulls)
+	{
+		this.lanes.put(Operation.UPLOAD, new Lane(maxUploads));
+		this.lanes.put(Operation.BUILD, new Lane(maxBuilds));
+		this.lanes.put(Operation.PULL, new Lane(maxPulls));
+	}
+	
+	/**
+	 * Creates a controller that doesn't limit anything.
+	 */
+	public static BuildAdmissionController unlimited()
+	{
+		return new BuildAdmissionController(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Waits until the operation is admitted.
+	 * <p>
+	 * The returned permit must be closed once the operation is finished, e.g. by using try-with-resources.
+	 * </p>
+	 * <p>
+	 * To prevent deadlocks nested permits must always be acquired in the order {@link Operation#BUILD} before
+	 * {@link Operation#UPLOAD}.
+	 * </p>
+	 */
+	public Permit acquire(final Operation operation)
+	{
+		final Lane lane = this.lanes.get(operation);
+		ImageBuilderMetricsHolder.instance().onQueueDepth(operation, lane.semaphore.getQueueLength());
+		final long startNanos = System.nanoTime();
+		try
+		{
+			lane.semaphore.acquire();
+		}
+		catch(final InterruptedException iex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Got interrupted while waiting for " + operation, iex);
+		}
+		lane.recordWait(System.nanoTime() - startNanos);
+		return new Permit(lane.semaphore);
+	}
+	
+	public Stats stats(final Operation operation)
+	{
+		final Lane lane = this.lanes.get(operation);
+		return new Stats(
+			lane.maxConcurrent,
+			lane.maxConcurrent - lane.semaphore.availablePermits(),
+			lane.semaphore.getQueueLength(),
+			lane.admitted.sum(),
+			lane.totalWaitNanos.sum(),
+			lane.maxWaitNanos.get());
+	}
+	
+	protected static class Lane
+	{
+		protected final int maxConcurrent;
+		protected final Semaphore semaphore;
+		protected final LongAdder admitted = new LongAdder();
+		protected final LongAdder totalWaitNanos = new LongAdder();
+		protected final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+		
+		protected Lane(final int maxConcurrent)
+		{
+			if(maxConcurrent < 1)
+			{
+				throw new IllegalArgumentException("maxConcurrent must be at least 1");
+			}
+			this.maxConcurrent = maxConcurrent;
+			this.semaphore = new Semaphore(maxConcurrent, true);
+		}
+		
+		protected void recordWait(final long waitNanos)
+		{
+			this.admitted.increment();
+			this.totalWaitNanos.add(waitNanos);
+			this.maxWaitNanos.accumulate(waitNanos);
+		}
+	}
+	
+	/**
+	 * An admitted operation. Closing it (multiple times is allowed) frees up the slot for the next operation.
+	 */
+	public static class Permit implements AutoCloseable
+	{
+		private final Semaphore semaphore;
+		private final AtomicBoolean released = new AtomicBoolean();
+		
+		protected Permit(final Semaphore semaphore)
+		{
+			this.semaphore = semaphore;
+		}
+		
+		@Override
+		public void close()
+		{
+			if(this.released.compareAndSet(false, true))
+			{
+				this.semaphore.release();
+			}
+		}
+	}
+	
+	/**
+	 * @param maxConcurrent  the maximum number of concurrent operations
+	 * @param running        the number of currently running operations
+	 * @param queued         the (estimated) number of operations that are waiting for admission
+	 * @param admitted       the total number of admitted operations
+	 * @param totalWaitNanos the total time that admitted operations waited in the queue
+	 * @param maxWaitNanos   the longest time an admitted operation waited in the queue
+	 */
+	public record Stats(
+		int maxConcurrent,
+		int running,
+		int queued,
+		long admitted,
+		long totalWaitNanos,
+		long maxWaitNanos)
+	{
+		public long averageWaitNanos()
+		{
+			return this.admitted > 0 ? this.totalWaitNanos / this.admitted : 0;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Base of all Java Flight Recorder events emitted by the image builder.
+ * <p>
+ * The attributes of an event are only computed when the event is actually recorded (see {@link #shouldCommit()}),
+ * so there is practically no overhead when JFR is not recording.
+ * </p>
+ */
+@Category({"Testcontainers", "Advanced Image Builder"})
+@StackTrace(false)
+public abstract class AbstractImageBuilderEvent extends Event
+{
+	protected static final String NAME_PREFIX = "software.xdev.testcontainers.imagebuilder.";
+	
+	/**
+	 * Ends the event and returns if it should be committed.
+	 */
+	protected boolean endAndShouldCommit()
+	{
+		this.end();
+		return this.shouldCommit();
+	}
+}
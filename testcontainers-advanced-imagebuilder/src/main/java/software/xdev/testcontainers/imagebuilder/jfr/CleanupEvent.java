@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Cleanup of the resources (e.g. build context, working directory) of a build.
+ */
+@Name(AbstractImageBuilderEvent.NAME_PREFIX + "Cleanup")
+@Label("Cleanup")
+@Description("Cleanup of the resources (e.g. build context, working directory) of a build.")
+public class CleanupEvent extends AbstractImageBuilderEvent
+{
+	@Label("Image Name")
+	protected String imageName;
+	
+	@Label("Resource")
+	protected String resource;
+	
+	public void finish(final String imageName, final String resource)
+	{
+		if(this.endAndShouldCommit())
+		{
+			this.imageName = imageName;
+			this.resource = resource;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Walk of the files of a build context.
+ */
+@Name(AbstractImageBuilderEvent.NAME_PREFIX + "ContextWalk")
+@Label("Context Walk")
+@Description("Walk of the files of a build context.")
+public class ContextWalkEvent extends AbstractImageBuilderEvent
+{
+	@Label("Image Name")
+	protected String imageName;
+	
+	@Label("Base Directory")
+	protected String baseDirectory;
+	
+	@Label("Walked Files")
+	protected int walkedFiles;
+	
+	public void finish(final String imageName, final Path baseDirectory, final int walkedFiles)
+	{
+		if(this.endAndShouldCommit())
+		{
+			this.imageName = imageName;
+			this.baseDirectory = String.valueOf(baseDirectory);
+			this.walkedFiles = walkedFiles;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Build of an image by the Docker daemon or buildx.
+ */
+@Name(AbstractImageBuilderEvent.NAME_PREFIX + "DaemonBuild")
+@Label("Daemon Build")
+@Description("Build of an image by the Docker daemon or buildx.")
+public class DaemonBuildEvent extends AbstractImageBuilderEvent
+{
+	@Label("Image Name")
+	protected String imageName;
+	
+	@Label("Builder")
+	protected String builder;
+	
+	@Label("Steps")
+	protected int steps;
+	
+	@Label("Cached Steps")
+	protected int cachedSteps;
+	
+	@Label("Success")
+	protected boolean success;
+	
+	public void finish(
+		final String imageName,
+		final String builder,
+		final int steps,
+		final int cachedSteps,
+		final boolean success)
+	{
+		if(this.endAndShouldCommit())
+		{
+			this.imageName = imageName;
+			this.builder = builder;
+			this.steps = steps;
+			this.cachedSteps = cachedSteps;
+			this.success = success;
+			this.commit();
+		}
+	}
+}
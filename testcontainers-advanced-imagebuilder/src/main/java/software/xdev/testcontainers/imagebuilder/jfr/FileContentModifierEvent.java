@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+
+/**
+ * Invocation of a FileContentModifier while creating the TAR archive.
+ * <p>
+ * As modifiers are invoked for every file only invocations that take at least 1ms are recorded by default.
+ * </p>
+ */
+@Name(AbstractImageBuilderEvent.NAME_PREFIX + "FileContentModifier")
+@Label("File Content Modifier")
+@Description("Invocation of a FileContentModifier while creating the TAR archive.")
+@Threshold("1 ms")
+public class FileContentModifierEvent extends AbstractImageBuilderEvent
+{
+	@Label("Modifier")
+	protected String modifier;
+	
+	@Label("Source Path")
+	protected String sourcePath;
+	
+	@Label("Target Path")
+	protected String targetPath;
+	
+	@Label("Modified")
+	protected boolean modified;
+	
+	public void finish(final Object modifier, final Path sourcePath, final String targetPath, final boolean modified)
+	{
+		if(this.endAndShouldCommit())
+		{
+			this.modifier = modifier.getClass().getName();
+			this.sourcePath = String.valueOf(sourcePath);
+			this.targetPath = targetPath;
+			this.modified = modified;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Creation of the TAR archive of a build context.
+ */
+@Name(AbstractImageBuilderEvent.NAME_PREFIX + "TarArchive")
+@Label("TAR Archive")
+@Description("Creation of the TAR archive of a build context.")
+public class TarArchiveEvent extends AbstractImageBuilderEvent
+{
+	@Label("Image Name")
+	protected String imageName;
+	
+	@Label("Entries")
+	protected int entries;
+	
+	@Label("Uncompressed Bytes")
+	@DataAmount
+	protected long uncompressedBytes;
+	
+	@Label("Written Bytes")
+	@DataAmount
+	protected long writtenBytes;
+	
+	@Label("Compressed")
+	protected boolean compressed;
+	
+	public void finish(
+		final String imageName,
+		final int entries,
+		final long uncompressedBytes,
+		final long writtenBytes,
+		final boolean compressed)
+	{
+		if(this.endAndShouldCommit())
+		{
+			this.imageName = imageName;
+			this.entries = entries;
+			this.uncompressedBytes = uncompressedBytes;
+			this.writtenBytes = writtenBytes;
+			this.compressed = compressed;
+			this.commit();
+		}
+	}
+}
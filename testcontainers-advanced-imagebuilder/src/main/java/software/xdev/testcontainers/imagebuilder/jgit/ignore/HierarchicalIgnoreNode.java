@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jgit.ignore;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Chains the {@link IgnoreNode}s of nested ignore files (e.g. a <code>.gitignore</code> inside a subdirectory).
+ * <p>
+ * An entry is first matched against the node of its deepest parent directory (relative to that directory). If that
+ * node can't decide ({@link MatchResult#CHECK_PARENT}) the next parent directory is checked until finally the root
+ * node is reached. Like in Git, rules from deeper ignore files take precedence.
+ * </p>
+ * <p>
+ * This way each entry is only matched against the (usually small) local rule sets instead of one large global list.
+ * </p>
+ */
+public class HierarchicalIgnoreNode extends IgnoreNode
+{
+	protected final IgnoreNode rootNode;
+	/**
+	 * Relative directory path (separated by <code>/</code>, without trailing slash) -&gt; node of the ignore file
+	 * inside it
+	 */
+	protected final Map<String, IgnoreNode> nestedNodes;
+	
+	public HierarchicalIgnoreNode(final IgnoreNode rootNode, final Map<String, IgnoreNode> nestedNodes)
+	{
+		super(rootNode.getRules());
+		this.rootNode = Objects.requireNonNull(rootNode);
+		this.nestedNodes = Objects.requireNonNull(nestedNodes);
+	}
+	
+	public IgnoreNode getRootNode()
+	{
+		return this.rootNode;
+	}
+	
+	public Map<String, IgnoreNode> getNestedNodes()
+	{
+		return Collections.unmodifiableMap(this.nestedNodes);
+	}
+	
+	@Override
+	public FastIgnoreRule findMatchingRule(final String entryPath, final boolean isDirectory)
+	{
+		if(!this.nestedNodes.isEmpty())
+		{
+			for(int sepIndex = entryPath.lastIndexOf('/');
+				sepIndex > 0;
+				sepIndex = entryPath.lastIndexOf('/', sepIndex - 1))
+			{
+				final IgnoreNode node = this.nestedNodes.get(entryPath.substring(0, sepIndex));
+				if(node != null)
+				{
+					final FastIgnoreRule rule = node.findMatchingRule(entryPath.substring(sepIndex + 1), isDirectory);
+					if(rule != null)
+					{
+						return rule;
+					}
+				}
+			}
+		}
+		return this.rootNode.findMatchingRule(entryPath, isDirectory);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.rootNode + " " + this.nestedNodes;
+	}
+}
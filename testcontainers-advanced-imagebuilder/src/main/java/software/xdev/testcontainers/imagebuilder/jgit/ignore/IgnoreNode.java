@@ -106,6 +106,22 @@ public class IgnoreNode
 	public Boolean checkIgnored(
 		final String entryPath,
 		final boolean isDirectory)
+	{
+		final FastIgnoreRule rule = this.findMatchingRule(entryPath, isDirectory);
+		return rule != null ? rule.getResult() : null;
+	}
+	
+	/**
+	 * Determine the rule that decides if an entry path is ignored.
+	 *
+	 * @param entryPath   the path to test. The path must be relative to this ignore node's own repository path, and in
+	 *                    repository path format (uses '/' and not '\').
+	 * @param isDirectory true if the target item is a directory.
+	 * @return the deciding rule or null, if no rule matches
+	 */
+	public FastIgnoreRule findMatchingRule(
+		final String entryPath,
+		final boolean isDirectory)
 	{
 		// Parse rules in the reverse order that they were read because later
 		// rules have higher priority
@@ -114,7 +130,7 @@ public class IgnoreNode
 			final FastIgnoreRule rule = this.rules.get(i);
 			if(rule.isMatch(entryPath, isDirectory, true))
 			{
-				return rule.getResult();
+				return rule;
 			}
 		}
 		return null;
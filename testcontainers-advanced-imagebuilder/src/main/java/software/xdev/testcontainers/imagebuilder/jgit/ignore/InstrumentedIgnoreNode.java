@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jgit.ignore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+
+/**
+ * {@link IgnoreNode} that counts how often each rule is evaluated, how often it decides the outcome and how much
+ * time is spent evaluating it.
+ * <p>
+ * This is intended for finding rules that are no longer needed (they never match) or that are expensive.
+ * As measuring the time of each evaluation has a noticeable overhead, this should only be used for diagnostics.
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+public class InstrumentedIgnoreNode extends IgnoreNode
+{
+	protected final LongAdder[] evaluations;
+	protected final LongAdder[] matches;
+	protected final LongAdder[] nanos;
+	
+	public InstrumentedIgnoreNode(final List<FastIgnoreRule> rules)
+	{
+		super(rules);
+		this.evaluations = createAdders(rules.size());
+		this.matches = createAdders(rules.size());
+		this.nanos = createAdders(rules.size());
+	}
+	
+	protected static LongAdder[] createAdders(final int size)
+	{
+		return IntStream.range(0, size).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+	}
+	
+	@Override
+	public FastIgnoreRule findMatchingRule(
+		final String entryPath,
+		final boolean isDirectory)
+	{
+		for(int i = this.rules.size() - 1; i > -1; i--)
+		{
+			final FastIgnoreRule rule = this.rules.get(i);
+			final long startNanos = System.nanoTime();
+			final boolean match = rule.isMatch(entryPath, isDirectory, true);
+			this.nanos[i].add(System.nanoTime() - startNanos);
+			this.evaluations[i].increment();
+			if(match)
+			{
+				this.matches[i].increment();
+				return rule;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the statistics of all rules (in the order of the rules)
+	 */
+	public Statistics statistics()
+	{
+		final List<RuleStatistics> ruleStatistics = new ArrayList<>(this.rules.size());
+		for(int i = 0; i < this.rules.size(); i++)
+		{
+			ruleStatistics.add(new RuleStatistics(
+				this.rules.get(i),
+				this.evaluations[i].sum(),
+				this.matches[i].sum(),
+				Duration.ofNanos(this.nanos[i].sum())));
+		}
+		return new Statistics(ruleStatistics);
+	}
+	
+	/**
+	 * @param rule        the rule
+	 * @param evaluations how often the rule was evaluated
+	 * @param matches     how often the rule matched (and therefore decided the outcome)
+	 * @param duration    the total time spent evaluating the rule
+	 */
+	public record RuleStatistics(FastIgnoreRule rule, long evaluations, long matches, Duration duration)
+	{
+	}
+	
+	public record Statistics(List<RuleStatistics> rules)
+	{
+		public static final int DEFAULT_MOST_EXPENSIVE_RULES = 10;
+		
+		/**
+		 * @return rules that never matched
+		 */
+		public List<RuleStatistics> deadRules()
+		{
+			return this.rules.stream()
+				.filter(r -> r.matches() == 0)
+				.toList();
+		}
+		
+		/**
+		 * @return the rules with the highest total evaluation time (most expensive first)
+		 */
+		public List<RuleStatistics> mostExpensiveRules(final int limit)
+		{
+			return this.rules.stream()
+				.sorted(Comparator.comparing(RuleStatistics::duration).reversed())
+				.limit(limit)
+				.toList();
+		}
+		
+		public Duration totalDuration()
+		{
+			return this.rules.stream()
+				.map(RuleStatistics::duration)
+				.reduce(Duration.ZERO, Duration::plus);
+		}
+		
+		public String format()
+		{
+			final List<RuleStatistics> deadRules = this.deadRules();
+			final StringBuilder sb = new StringBuilder()
+				.append(this.rules.size()).append(" ignore rules evaluated in ")
+				.append(this.totalDuration().toMillis()).append("ms; ")
+				.append(deadRules.size()).append(" never matched");
+			deadRules.forEach(r -> sb.append("\n  dead: '").append(r.rule()).append('\''));
+			
+			sb.append("\nMost expensive rules:");
+			this.mostExpensiveRules(DEFAULT_MOST_EXPENSIVE_RULES).forEach(r -> sb.append("\n  ")
+				.append(r.duration().toMillis()).append("ms ")
+				.append(r.evaluations()).append(" evaluations ")
+				.append(r.matches()).append(" matches '")
+				.append(r.rule()).append('\''));
+			return sb.toString();
+		}
+		
+		@Override
+		public String toString()
+		{
+			return this.format();
+		}
+	}
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.json;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Minimal JSON support so that no additional dependency is required.
+ * <p>
+ * Only supports {@link Map}s, {@link Collection}s, {@link String}s, {@link Number}s, {@link Boolean}s and
+ * <code>null</code>.
+ * </p>
+ * <p>
+ * When parsing objects are returned as {@link Map}s, arrays as {@link List}s and numbers as {@link Long}s or
+ * {@link Double}s.
+ * </p>
+ */
+public final class SimpleJson
+{
+	public static String write(final Object value)
+	{
+		final StringBuilder sb = new StringBuilder();
+		write(value, sb);
+		return sb.toString();
+	}
+	
+	public static void write(final Object value, final StringBuilder sb)
+	{
+		if(value == null)
+		{
+			sb.append("null");
+		}
+		else if(value instanceof final Map<?, ?> map)
+		{
+			sb.append('{');
+			final Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+			while(it.hasNext())
+			{
+				final Map.Entry<?, ?> entry = it.next();
+				writeString(String.valueOf(entry.getKey()), sb);
+				sb.append(':');
+				write(entry.getValue(), sb);
+				if(it.hasNext())
+				{
+					sb.append(',');
+				}
+			}
+			sb.append('}');
+		}
+		else if(value instanceof final Collection<?> collection)
+		{
+			sb.append('[');
+			final Iterator<?> it = collection.iterator();
+			while(it.hasNext())
+			{
+				write(it.next(), sb);
+				if(it.hasNext())
+				{
+					sb.append(',');
+				}
+			}
+			sb.append(']');
+		}
+		else if(value instanceof Number || value instanceof Boolean)
+		{
+			sb.append(value);
+		}
+		else
+		{
+			writeString(value.toString(), sb);
+		}
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public static void writeString(final String value, final StringBuilder sb)
+	{
+		sb.append('"');
+		for(int i = 0; i < value.length(); i++)
+		{
+			final char c = value.charAt(i);
+			switch(c)
+			{
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if(c < 0x20)
+					{
+						sb.append(String.format("\\u%04x", (int)c));
+					}
+					else
+					{
+						sb.append(c);
+					}
+					break;
+			}
+		}
+		sb.append('"');
+	}
+	
+	/**
+	 * @throws IllegalArgumentException if the input is not valid JSON
+	 */
+	public static Object parse(final String json)
+	{
+		final Parser parser = new Parser(json);
+		final Object value = parser.readValue();
+		parser.skipWhitespace();
+		if(parser.pos != json.length())
+		{
+			throw parser.error("Unexpected trailing content");
+		}
+		return value;
+	}
+	
+	static final class Parser
+	{
+		private final String json;
+		private int pos;
+		
+		Parser(final String json)
+		{
+			this.json = json;
+		}
+		
+		Object readValue()
+		{
+			this.skipWhitespace();
+			if(this.pos >= this.json.length())
+			{
+				throw this.error("Unexpected end");
+			}
+			final char c = this.json.charAt(this.pos);
+			switch(c)
+			{
+				case '{':
+					return this.readObject();
+				case '[':
+					return this.readArray();
+				case '"':
+					return this.readString();
+				case 't':
+					this.expectLiteral("true");
+					return Boolean.TRUE;
+				case 'f':
+					this.expectLiteral("false");
+					return Boolean.FALSE;
+				case 'n':
+					this.expectLiteral("null");
+					return null;
+				default:
+					return this.readNumber();
+			}
+		}
+		
+		Map<String, Object> readObject()
+		{
+			final Map<String, Object> map = new LinkedHashMap<>();
+			this.pos++;
+			this.skipWhitespace();
+			if(this.tryConsume('}'))
+			{
+				return map;
+			}
+			do
+			{
+				this.skipWhitespace();
+				if(this.pos >= this.json.length() || this.json.charAt(this.pos) != '"')
+				{
+					throw this.error("Expected key");
+				}
+				final String key = this.readString();
+				this.skipWhitespace();
+				if(!this.tryConsume(':'))
+				{
+					throw this.error("Expected ':'");
+				}
+				map.put(key, this.readValue());
+				this.skipWhitespace();
+			}
+			while(this.tryConsume(','));
+			if(!this.tryConsume('}'))
+			{
+				throw this.error("Expected '}'");
+			}
+			return map;
+		}
+		
+		List<Object> readArray()
+		{
+			final List<Object> list = new ArrayList<>();
+			this.pos++;
+			this.skipWhitespace();
+			if(this.tryConsume(']'))
+			{
+				return list;
+			}
+			do
+			{
+				list.add(this.readValue());
+				this.skipWhitespace();
+			}
+			while(this.tryConsume(','));
+			if(!this.tryConsume(']'))
+			{
+				throw this.error("Expected ']'");
+			}
+			return list;
+		}
+		
+		@SuppressWarnings("checkstyle:MagicNumber")
+		String readString()
+		{
+			this.pos++;
+			final StringBuilder sb = new StringBuilder();
+			while(this.pos < this.json.length())
+			{
+				final char c = this.json.charAt(this.pos++);
+				if(c == '"')
+				{
+					return sb.toString();
+				}
+				if(c != '\\')
+				{
+					sb.append(c);
+					continue;
+				}
+				if(this.pos >= this.json.length())
+				{
+					break;
+				}
+				final char escaped = this.json.charAt(this.pos++);
+				switch(escaped)
+				{
+					case 'b':
+						sb.append('\b');
+						break;
+					case 'f':
+						sb.append('\f');
+						break;
+					case 'n':
+						sb.append('\n');
+						break;
+					case 'r':
+						sb.append('\r');
+						break;
+					case 't':
+						sb.append('\t');
+						break;
+					case 'u':
+						if(this.pos + 4 > this.json.length())
+						{
+							throw this.error("Invalid unicode escape");
+						}
+						try
+						{
+							sb.append((char)Integer.parseInt(this.json.substring(this.pos, this.pos + 4), 16));
+						}
+						catch(final NumberFormatException nfe)
+						{
+							throw this.error("Invalid unicode escape");
+						}
+						this.pos += 4;
+						break;
+					default:
+						sb.append(escaped);
+						break;
+				}
+			}
+			throw this.error("Unterminated string");
+		}
+		
+		Number readNumber()
+		{
+			final int start = this.pos;
+			boolean floatingPoint = false;
+			while(this.pos < this.json.length())
+			{
+				final char c = this.json.charAt(this.pos);
+				if(c == '.' || c == 'e' || c == 'E')
+				{
+					floatingPoint = true;
+				}
+				else if(!(c >= '0' && c <= '9' || c == '-' || c == '+'))
+				{
+					break;
+				}
+				this.pos++;
+			}
+			final String number = this.json.substring(start, this.pos);
+			try
+			{
+				return floatingPoint ? (Number)Double.parseDouble(number) : (Number)Long.parseLong(number);
+			}
+			catch(final NumberFormatException nfe)
+			{
+				throw this.error("Invalid number '" + number + "'");
+			}
+		}
+		
+		void expectLiteral(final String literal)
+		{
+			if(!this.json.startsWith(literal, this.pos))
+			{
+				throw this.error("Expected '" + literal + "'");
+			}
+			this.pos += literal.length();
+		}
+		
+		boolean tryConsume(final char c)
+		{
+			if(this.pos < this.json.length() && this.json.charAt(this.pos) == c)
+			{
+				this.pos++;
+				return true;
+			}
+			return false;
+		}
+		
+		void skipWhitespace()
+		{
+			while(this.pos < this.json.length() && Character.isWhitespace(this.json.charAt(this.pos)))
+			{
+				this.pos++;
+			}
+		}
+		
+		IllegalArgumentException error(final String message)
+		{
+			return new IllegalArgumentException(message + " at position " + this.pos);
+		}
+	}
+	
+	private SimpleJson()
+	{
+	}
+}
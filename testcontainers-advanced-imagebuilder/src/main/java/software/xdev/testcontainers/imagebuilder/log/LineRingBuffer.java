@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+
+/**
+ * Keeps only the last N lines.
+ */
+public class LineRingBuffer
+{
+	protected final String[] lines;
+	protected int next;
+	protected int size;
+	protected long dropped;
+	
+	public LineRingBuffer(final int capacity)
+	{
+		if(capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.lines = new String[capacity];
+	}
+	
+	public void add(final String line)
+	{
+		if(this.size == this.lines.length)
+		{
+			this.dropped++;
+		}
+		else
+		{
+			this.size++;
+		}
+		this.lines[this.next] = line;
+		this.next = (this.next + 1) % this.lines.length;
+	}
+	
+	/**
+	 * Passes all lines (oldest first) to the consumer and clears the buffer.
+	 */
+	public void drainTo(final Consumer<String> consumer)
+	{
+		final int start = (this.next - this.size + this.lines.length) % this.lines.length;
+		for(int i = 0; i < this.size; i++)
+		{
+			final int index = (start + i) % this.lines.length;
+			consumer.accept(this.lines[index]);
+			this.lines[index] = null;
+		}
+		this.clear();
+	}
+	
+	public void clear()
+	{
+		Arrays.fill(this.lines, null);
+		this.next = 0;
+		this.size = 0;
+		this.dropped = 0;
+	}
+	
+	public int size()
+	{
+		return this.size;
+	}
+	
+	/**
+	 * @return the number of lines that were dropped because the buffer was full
+	 */
+	public long dropped()
+	{
+		return this.dropped;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Limits the number of messages per second (fixed window).
+ */
+public class LogRateLimiter
+{
+	protected static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+	
+	protected final int maxPerSecond;
+	protected long windowStartNanos = System.nanoTime();
+	protected int countInWindow;
+	protected long suppressedInWindow;
+	
+	public LogRateLimiter(final int maxPerSecond)
+	{
+		if(maxPerSecond < 1)
+		{
+			throw new IllegalArgumentException("maxPerSecond must be at least 1");
+		}
+		this.maxPerSecond = maxPerSecond;
+	}
+	
+	/**
+	 * @return <code>true</code> if the message may be logged
+	 */
+	public boolean tryAcquire()
+	{
+		final long now = System.nanoTime();
+		if(now - this.windowStartNanos >= WINDOW_NANOS)
+		{
+			this.windowStartNanos = now;
+			this.countInWindow = 0;
+		}
+		if(this.countInWindow < this.maxPerSecond)
+		{
+			this.countInWindow++;
+			return true;
+		}
+		this.suppressedInWindow++;
+		return false;
+	}
+	
+	/**
+	 * @return the number of messages that were suppressed since the last call
+	 */
+	public long getAndResetSuppressed()
+	{
+		final long suppressed = this.suppressedInWindow;
+		this.suppressedInWindow = 0;
+		return suppressed;
+	}
+}
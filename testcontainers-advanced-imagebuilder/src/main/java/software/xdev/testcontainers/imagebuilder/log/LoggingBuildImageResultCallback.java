@@ -15,6 +15,7 @@
  */
 package software.xdev.testcontainers.imagebuilder.log;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,21 +24,77 @@ import org.slf4j.Logger;
 import com.github.dockerjava.api.command.BuildImageResultCallback;
 import com.github.dockerjava.api.model.BuildResponseItem;
 
+import software.xdev.testcontainers.imagebuilder.log.steps.ClassicBuildStreamParser;
 
+
+/**
+ * Logs the output of the build.
+ * <p>
+ * The output fragments are assembled into a single reusable buffer and logged when a fragment ends with a line
+ * break or the (UTF-8 encoded) size of the buffer exceeds {@link #maxBufferedBytes}.
+ * </p>
+ * <p>
+ * Chatty builds can be tamed by using {@link #withMaxLogMessagesPerSecond(int) rate limiting} or by
+ * {@link #withOnlyLogLastLinesOnFailure(int) only logging the last lines when the build fails}.
+ * </p>
+ */
 public class LoggingBuildImageResultCallback extends BuildImageResultCallback
 {
+	protected static final int DEFAULT_MAX_BUFFERED_BYTES = 64 * 1024;
+	
 	protected final Logger logger;
+	/**
+	 * @deprecated The output is no longer buffered in a list; use {@link #buffer}
+	 */
+	@Deprecated(since = "4.2.0", forRemoval = true)
 	protected final List<String> notFlushedString;
+	protected final StringBuilder buffer = new StringBuilder(256);
+	/**
+	 * The UTF-8 encoded size of {@link #buffer}
+	 */
+	protected int bufferedBytes;
+	protected int maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+	/**
+	 * Optional parser that converts the (classic builder) output into structured step events.
+	 */
+	protected final ClassicBuildStreamParser streamParser;
+	/**
+	 * Optional: Limits the number of log messages.
+	 */
+	protected LogRateLimiter rateLimiter;
+	/**
+	 * Optional: When present lines are only kept here and logged when the build fails.
+	 */
+	protected LineRingBuffer lastLines;
 	
 	public LoggingBuildImageResultCallback(final Logger logger)
 	{
-		this(logger, new ArrayList<>(16));
+		this(logger, (ClassicBuildStreamParser)null);
+	}
+	
+	public LoggingBuildImageResultCallback(final Logger logger, final ClassicBuildStreamParser streamParser)
+	{
+		this(logger, new ArrayList<>(0), streamParser);
 	}
 	
+	/**
+	 * @deprecated The output is no longer buffered in a list
+	 */
+	@Deprecated(since = "4.2.0", forRemoval = true)
 	protected LoggingBuildImageResultCallback(final Logger logger, final List<String> notFlushedString)
+	{
+		this(logger, notFlushedString, null);
+	}
+	
+	@SuppressWarnings("removal")
+	private LoggingBuildImageResultCallback(
+		final Logger logger,
+		final List<String> notFlushedString,
+		final ClassicBuildStreamParser streamParser)
 	{
 		this.logger = logger;
 		this.notFlushedString = notFlushedString;
+		this.streamParser = streamParser;
 	}
 	
 	@Override
@@ -47,32 +104,220 @@ public class LoggingBuildImageResultCallback extends BuildImageResultCallback
 		
 		if(item.isErrorIndicated())
 		{
-			if(this.logger.isInfoEnabled())
+			this.flush();
+			this.logLastLines();
+			
+			final String message = item.getErrorDetail() != null ? item.getErrorDetail().getMessage() : "<null>";
+			this.logger.error(message);
+			if(this.streamParser != null)
 			{
-				this.logger.info(removeEnd(String.join("", this.notFlushedString), "\n"));
+				this.streamParser.acceptError(message);
 			}
-			this.notFlushedString.clear();
-			
-			this.logger.error(item.getErrorDetail() != null ? item.getErrorDetail().getMessage() : "<null>");
 		}
 		else if(item.getStream() != null)
 		{
 			final String details = item.getStream();
 			
-			this.notFlushedString.add(details);
+			this.buffer.append(details);
+			this.bufferedBytes += utf8Length(details);
 			
-			if(details.endsWith("\n") || this.notFlushedString.size() > 1000)
+			if(details.endsWith("\n") || this.bufferedBytes >= this.maxBufferedBytes)
+			{
+				this.flush();
+			}
+		}
+		
+		if(this.streamParser != null && item.isBuildSuccessIndicated())
+		{
+			this.streamParser.acceptImageId(item.getImageId());
+		}
+	}
+	
+	@Override
+	public void onError(final Throwable throwable)
+	{
+		this.flush();
+		this.logSuppressed();
+		this.logLastLines();
+		super.onError(throwable);
+	}
+	
+	@Override
+	public void onComplete()
+	{
+		this.flush();
+		this.logSuppressed();
+		if(this.lastLines != null)
+		{
+			this.lastLines.clear();
+		}
+		super.onComplete();
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		this.logSuppressed();
+		super.close();
+	}
+	
+	protected void flush()
+	{
+		final int length = this.buffer.length();
+		if(length == 0)
+		{
+			return;
+		}
+		
+		final boolean requiresOutput = this.streamParser != null
+			|| this.lastLines != null
+			|| this.logger.isInfoEnabled();
+		if(!requiresOutput)
+		{
+			this.buffer.setLength(0);
+			this.bufferedBytes = 0;
+			return;
+		}
+		
+		final String message = this.buffer.substring(
+			0,
+			this.buffer.charAt(length - 1) == '\n' ? length - 1 : length);
+		this.buffer.setLength(0);
+		this.bufferedBytes = 0;
+		
+		if(this.streamParser != null)
+		{
+			message.lines().forEach(this.streamParser::acceptLine);
+		}
+		this.output(message);
+	}
+	
+	protected void output(final String message)
+	{
+		if(this.lastLines != null)
+		{
+			message.lines().forEach(this.lastLines::add);
+			return;
+		}
+		if(!this.logger.isInfoEnabled())
+		{
+			return;
+		}
+		if(this.rateLimiter != null)
+		{
+			if(!this.rateLimiter.tryAcquire())
 			{
-				if(this.logger.isInfoEnabled())
-				{
-					this.logger.info(removeEnd(String.join("", this.notFlushedString), "\n"));
-				}
-				this.notFlushedString.clear();
+				return;
 			}
+			this.logSuppressed();
 		}
+		this.logger.info(message);
 	}
 	
-	// From Apache Commons Lang3 - StringUtils
+	/**
+	 * Logs the number of messages that were suppressed by the {@link #rateLimiter} (if any).
+	 */
+	protected void logSuppressed()
+	{
+		if(this.rateLimiter == null)
+		{
+			return;
+		}
+		final long suppressed = this.rateLimiter.getAndResetSuppressed();
+		if(suppressed > 0)
+		{
+			this.logger.info("[{} log messages were suppressed]", suppressed);
+		}
+	}
+	
+	/**
+	 * @return the number of bytes the given string requires when encoded as UTF-8 (without encoding it)
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected static int utf8Length(final CharSequence str)
+	{
+		int bytes = 0;
+		for(int i = 0; i < str.length(); i++)
+		{
+			final char c = str.charAt(i);
+			if(c < 0x80)
+			{
+				bytes++;
+			}
+			else if(c < 0x800)
+			{
+				bytes += 2;
+			}
+			else if(Character.isHighSurrogate(c) && i + 1 < str.length()
+				&& Character.isLowSurrogate(str.charAt(i + 1)))
+			{
+				bytes += 4;
+				i++;
+			}
+			else
+			{
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+	
+	protected void logLastLines()
+	{
+		if(this.lastLines == null || this.lastLines.size() == 0)
+		{
+			return;
+		}
+		
+		final StringBuilder sb = new StringBuilder("Last ")
+			.append(this.lastLines.size())
+			.append(" lines of the build output");
+		if(this.lastLines.dropped() > 0)
+		{
+			sb.append(" (").append(this.lastLines.dropped()).append(" previous lines were omitted)");
+		}
+		sb.append(':');
+		this.lastLines.drainTo(line -> sb.append('\n').append(line));
+		this.logger.error(sb.toString());
+	}
+	
+	// region with
+	
+	/**
+	 * Output is logged at the latest when this number of bytes (UTF-8 encoded) has been buffered.
+	 */
+	public LoggingBuildImageResultCallback withMaxBufferedBytes(final int maxBufferedBytes)
+	{
+		this.maxBufferedBytes = maxBufferedBytes;
+		return this;
+	}
+	
+	/**
+	 * @param maxLogMessagesPerSecond <code>0</code> = unlimited
+	 */
+	public LoggingBuildImageResultCallback withMaxLogMessagesPerSecond(final int maxLogMessagesPerSecond)
+	{
+		this.rateLimiter = maxLogMessagesPerSecond > 0 ? new LogRateLimiter(maxLogMessagesPerSecond) : null;
+		return this;
+	}
+	
+	/**
+	 * Don't log the output, keep only the last lines and log them when the build fails.
+	 *
+	 * @param lines <code>0</code> = disabled
+	 */
+	public LoggingBuildImageResultCallback withOnlyLogLastLinesOnFailure(final int lines)
+	{
+		this.lastLines = lines > 0 ? new LineRingBuffer(lines) : null;
+		return this;
+	}
+	
+	// endregion
+	
+	/**
+	 * @deprecated No longer used
+	 */
+	@Deprecated(since = "4.2.0")
 	protected static String removeEnd(final String str, final String remove)
 	{
 		if(str == null || str.isEmpty() || remove == null || remove.isEmpty())
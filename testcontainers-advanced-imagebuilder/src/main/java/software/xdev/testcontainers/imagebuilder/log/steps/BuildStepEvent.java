@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log.steps;
+
+import java.time.Instant;
+
+
+/**
+ * An event of the classic (non-BuildKit) builder that was parsed from the build output.
+ *
+ * @param timestamp  when the event was received
+ * @param type       the type of the event
+ * @param stepNumber the number of the current step (starting at 1); <code>0</code> if unknown
+ * @param totalSteps the total number of steps; <code>0</code> if unknown
+ * @param detail     type dependent details, e.g. the instruction of the step, the container or image id
+ */
+public record BuildStepEvent(
+	Instant timestamp,
+	Type type,
+	int stepNumber,
+	int totalSteps,
+	String detail)
+{
+	public enum Type
+	{
+		/**
+		 * <code>Step N/M : INSTRUCTION</code>
+		 */
+		STEP_STARTED,
+		/**
+		 * <code> ---&gt; Using cache</code>
+		 */
+		USING_CACHE,
+		/**
+		 * <code> ---&gt; Running in CONTAINER_ID</code>
+		 */
+		RUNNING_IN,
+		/**
+		 * <code> ---&gt; IMAGE_ID</code>
+		 */
+		STEP_COMPLETED,
+		/**
+		 * The id of the built image
+		 */
+		IMAGE_ID,
+		ERROR
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log.steps;
+
+import java.util.List;
+
+
+/**
+ * Listens to the steps of a build that uses the classic builder.
+ */
+@FunctionalInterface
+public interface BuildStepListener
+{
+	void onEvent(BuildStepEvent event);
+	
+	/**
+	 * @return a listener that forwards all events to the given listeners
+	 */
+	static BuildStepListener all(final List<BuildStepListener> listeners)
+	{
+		final List<BuildStepListener> copy = List.copyOf(listeners);
+		return event -> copy.forEach(l -> l.onEvent(event));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log.steps;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Collects the steps of a classic build with their timings and if they were cached.
+ */
+public class BuildStepReport implements BuildStepListener
+{
+	protected final List<BuildStep> steps = new ArrayList<>();
+	protected MutableStep currentStep;
+	protected String imageId;
+	
+	@Override
+	public synchronized void onEvent(final BuildStepEvent event)
+	{
+		switch(event.type())
+		{
+			case STEP_STARTED:
+				this.completeCurrentStep(event.timestamp(), false);
+				this.currentStep = new MutableStep(event);
+				break;
+			case USING_CACHE:
+				if(this.currentStep != null)
+				{
+					this.currentStep.cached = true;
+				}
+				break;
+			case STEP_COMPLETED:
+				this.completeCurrentStep(event.timestamp(), false);
+				break;
+			case IMAGE_ID:
+				this.imageId = event.detail();
+				this.completeCurrentStep(event.timestamp(), false);
+				break;
+			case ERROR:
+				this.completeCurrentStep(event.timestamp(), true);
+				break;
+			default:
+				break;
+		}
+	}
+	
+	protected void completeCurrentStep(final Instant completed, final boolean failed)
+	{
+		if(this.currentStep != null)
+		{
+			this.steps.add(this.currentStep.complete(completed, failed));
+			this.currentStep = null;
+		}
+	}
+	
+	/**
+	 * @return the completed steps
+	 */
+	public synchronized List<BuildStep> steps()
+	{
+		return List.copyOf(this.steps);
+	}
+	
+	public synchronized String imageId()
+	{
+		return this.imageId;
+	}
+	
+	/**
+	 * @return ratio (0-1) of the steps that were cached; <code>0</code> if there are no steps
+	 */
+	public double cacheHitRatio()
+	{
+		final List<BuildStep> completedSteps = this.steps();
+		return completedSteps.isEmpty()
+			? 0
+			: (double)completedSteps.stream().filter(BuildStep::cached).count() / completedSteps.size();
+	}
+	
+	/**
+	 * @return a human readable summary with one line per step
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public String format()
+	{
+		final List<BuildStep> completedSteps = this.steps();
+		final StringBuilder sb = new StringBuilder()
+			.append(completedSteps.size())
+			.append(" steps, cache hit ratio ")
+			.append(Math.round(this.cacheHitRatio() * 100))
+			.append('%');
+		for(final BuildStep step : completedSteps)
+		{
+			sb.append('\n')
+				.append(step.cached() ? "CACHED " : "       ")
+				.append(String.format("%8dms ", step.duration().toMillis()))
+				.append("Step ").append(step.number()).append('/').append(step.total())
+				.append(" : ").append(step.instruction());
+			if(step.failed())
+			{
+				sb.append(" FAILED");
+			}
+		}
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.format();
+	}
+	
+	public record BuildStep(
+		int number,
+		int total,
+		String instruction,
+		Instant started,
+		Instant completed,
+		boolean cached,
+		boolean failed)
+	{
+		public Duration duration()
+		{
+			return Duration.between(this.started, this.completed);
+		}
+	}
+	
+	protected static class MutableStep
+	{
+		protected final BuildStepEvent startEvent;
+		protected boolean cached;
+		
+		protected MutableStep(final BuildStepEvent startEvent)
+		{
+			this.startEvent = startEvent;
+		}
+		
+		protected BuildStep complete(final Instant completed, final boolean failed)
+		{
+			return new BuildStep(
+				this.startEvent.stepNumber(),
+				this.startEvent.totalSteps(),
+				this.startEvent.detail(),
+				this.startEvent.timestamp(),
+				completed,
+				this.cached,
+				failed);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log.steps;
+
+import java.time.Clock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Parses the output lines of the classic (non-BuildKit) builder into {@link BuildStepEvent}s.
+ */
+public class ClassicBuildStreamParser
+{
+	protected static final Pattern STEP_PATTERN = Pattern.compile("^Step (\\d+)/(\\d+) : (.*)$");
+	protected static final String ARROW = " ---> ";
+	protected static final String USING_CACHE = "Using cache";
+	protected static final String RUNNING_IN = "Running in ";
+	
+	protected final BuildStepListener listener;
+	protected final Clock clock;
+	
+	protected int currentStep;
+	protected int totalSteps;
+	protected boolean imageIdReported;
+	
+	public ClassicBuildStreamParser(final BuildStepListener listener)
+	{
+		this(listener, Clock.systemUTC());
+	}
+	
+	public ClassicBuildStreamParser(final BuildStepListener listener, final Clock clock)
+	{
+		this.listener = listener;
+		this.clock = clock;
+	}
+	
+	public synchronized void acceptLine(final String line)
+	{
+		final Matcher stepMatcher = STEP_PATTERN.matcher(line);
+		if(stepMatcher.matches())
+		{
+			this.currentStep = Integer.parseInt(stepMatcher.group(1));
+			this.totalSteps = Integer.parseInt(stepMatcher.group(2));
+			this.emit(BuildStepEvent.Type.STEP_STARTED, stepMatcher.group(3));
+			return;
+		}
+		
+		if(!line.startsWith(ARROW))
+		{
+			return;
+		}
+		
+		final String detail = line.substring(ARROW.length()).trim();
+		if(detail.equals(USING_CACHE))
+		{
+			this.emit(BuildStepEvent.Type.USING_CACHE, null);
+		}
+		else if(detail.startsWith(RUNNING_IN))
+		{
+			this.emit(BuildStepEvent.Type.RUNNING_IN, detail.substring(RUNNING_IN.length()));
+		}
+		else if(!detail.isEmpty() && detail.indexOf(' ') == -1)
+		{
+			this.emit(BuildStepEvent.Type.STEP_COMPLETED, detail);
+		}
+	}
+	
+	public synchronized void acceptImageId(final String imageId)
+	{
+		if(!this.imageIdReported)
+		{
+			this.imageIdReported = true;
+			this.emit(BuildStepEvent.Type.IMAGE_ID, imageId);
+		}
+	}
+	
+	public synchronized void acceptError(final String message)
+	{
+		this.emit(BuildStepEvent.Type.ERROR, message);
+	}
+	
+	protected void emit(final BuildStepEvent.Type type, final String detail)
+	{
+		this.listener.onEvent(new BuildStepEvent(
+			this.clock.instant(),
+			type,
+			this.currentStep,
+			this.totalSteps,
+			detail));
+	}
+}
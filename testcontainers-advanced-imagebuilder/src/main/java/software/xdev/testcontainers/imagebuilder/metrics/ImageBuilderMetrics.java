@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.metrics;
+
+import java.time.Duration;
+
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
+
+
+/**
+ * SPI for exporting statistics about builds, pulls and the transfer of build contexts e.g. into a monitoring system.
+ * <p>
+ * All methods do nothing by default, so that implementations only need to override what they are interested in.
+ * Implementations must be thread-safe as they are called concurrently by multiple builds.
+ * </p>
+ *
+ * @see ImageBuilderMetricsHolder
+ * @see InMemoryImageBuilderMetrics
+ */
+public interface ImageBuilderMetrics
+{
+	/**
+	 * Called after the files of a build context were walked and the ignore rules were evaluated.
+	 */
+	default void onContextWalked(
+		final int walkedFiles,
+		final int ignoredFiles,
+		final Duration walkDuration,
+		final Duration ignoreMatchDuration)
+	{
+	}
+	
+	/**
+	 * Called after a TAR archive of a build context was written.
+	 *
+	 * @param writtenBytes the number of bytes after compression (if compressed)
+	 */
+	default void onTarArchived(
+		final int entries,
+		final long uncompressedBytes,
+		final long writtenBytes,
+		final Duration duration)
+	{
+	}
+	
+	/**
+	 * Called after a dependency image was pulled (or found locally).
+	 */
+	default void onPull(final String imageName, final Duration duration, final boolean success)
+	{
+	}
+	
+	/**
+	 * Called after an image was built by the daemon/builder.
+	 */
+	default void onBuild(final String imageName, final Duration duration, final boolean success)
+	{
+	}
+	
+	/**
+	 * Called when an operation requests admission at the {@link BuildAdmissionController}.
+	 *
+	 * @param queued the number of operations of the same type that are already waiting
+	 */
+	default void onQueueDepth(final BuildAdmissionController.Operation operation, final int queued)
+	{
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.metrics;
+
+/**
+ * Holds the {@link ImageBuilderMetrics} into which all statistics are reported.
+ * <p>
+ * By default the metrics are not recorded ({@link NoOpImageBuilderMetrics}).
+ * </p>
+ */
+public final class ImageBuilderMetricsHolder
+{
+	private static ImageBuilderMetrics instance;
+	
+	public static ImageBuilderMetrics instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new NoOpImageBuilderMetrics();
+	}
+	
+	public static void setInstance(final ImageBuilderMetrics instance)
+	{
+		ImageBuilderMetricsHolder.instance = instance;
+	}
+	
+	private ImageBuilderMetricsHolder()
+	{
+	}
+}
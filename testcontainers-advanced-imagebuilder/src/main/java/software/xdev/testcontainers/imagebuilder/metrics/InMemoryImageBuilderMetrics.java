@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
+
+
+/**
+ * Keeps all metrics in memory, e.g. for exporting them periodically or for inspecting them at the end of a test run.
+ */
+public class InMemoryImageBuilderMetrics implements ImageBuilderMetrics
+{
+	protected final LongAdder filesWalked = new LongAdder();
+	protected final LongAdder filesIgnored = new LongAdder();
+	protected final LongAdder bytesArchived = new LongAdder();
+	protected final LongAdder bytesWritten = new LongAdder();
+	
+	protected final Timer walkTimer = new Timer();
+	protected final Timer ignoreMatchTimer = new Timer();
+	protected final Timer tarTimer = new Timer();
+	protected final Timer pullTimer = new Timer();
+	protected final Timer buildTimer = new Timer();
+	
+	protected final LongAdder failedPulls = new LongAdder();
+	protected final LongAdder failedBuilds = new LongAdder();
+	
+	protected final Map<BuildAdmissionController.Operation, QueueDepth> queueDepths =
+		new EnumMap<>(BuildAdmissionController.Operation.class);
+	
+	public InMemoryImageBuilderMetrics()
+	{
+		for(final BuildAdmissionController.Operation operation : BuildAdmissionController.Operation.values())
+		{
+			this.queueDepths.put(operation, new QueueDepth());
+		}
+	}
+	
+	@Override
+	public void onContextWalked(
+		final int walkedFiles,
+		final int ignoredFiles,
+		final Duration walkDuration,
+		final Duration ignoreMatchDuration)
+	{
+		this.filesWalked.add(walkedFiles);
+		this.filesIgnored.add(ignoredFiles);
+		this.walkTimer.record(walkDuration);
+		this.ignoreMatchTimer.record(ignoreMatchDuration);
+	}
+	
+	@Override
+	public void onTarArchived(
+		final int entries,
+		final long uncompressedBytes,
+		final long writtenBytes,
+		final Duration duration)
+	{
+		this.bytesArchived.add(uncompressedBytes);
+		this.bytesWritten.add(writtenBytes);
+		this.tarTimer.record(duration);
+	}
+	
+	@Override
+	public void onPull(final String imageName, final Duration duration, final boolean success)
+	{
+		this.pullTimer.record(duration);
+		if(!success)
+		{
+			this.failedPulls.increment();
+		}
+	}
+	
+	@Override
+	public void onBuild(final String imageName, final Duration duration, final boolean success)
+	{
+		this.buildTimer.record(duration);
+		if(!success)
+		{
+			this.failedBuilds.increment();
+		}
+	}
+	
+	@Override
+	public void onQueueDepth(final BuildAdmissionController.Operation operation, final int queued)
+	{
+		this.queueDepths.get(operation).record(queued);
+	}
+	
+	public long filesWalked()
+	{
+		return this.filesWalked.sum();
+	}
+	
+	public long filesIgnored()
+	{
+		return this.filesIgnored.sum();
+	}
+	
+	/**
+	 * @return the total size of all archived build contexts (uncompressed)
+	 */
+	public long bytesArchived()
+	{
+		return this.bytesArchived.sum();
+	}
+	
+	/**
+	 * @return the total size of all archived build contexts (after compression)
+	 */
+	public long bytesWritten()
+	{
+		return this.bytesWritten.sum();
+	}
+	
+	/**
+	 * @return archived / written bytes; <code>1</code> if nothing was written
+	 */
+	public double compressionRatio()
+	{
+		final long written = this.bytesWritten();
+		return written > 0 ? (double)this.bytesArchived() / written : 1;
+	}
+	
+	public Timer walkTimer()
+	{
+		return this.walkTimer;
+	}
+	
+	public Timer ignoreMatchTimer()
+	{
+		return this.ignoreMatchTimer;
+	}
+	
+	public Timer tarTimer()
+	{
+		return this.tarTimer;
+	}
+	
+	public Timer pullTimer()
+	{
+		return this.pullTimer;
+	}
+	
+	public Timer buildTimer()
+	{
+		return this.buildTimer;
+	}
+	
+	public long failedPulls()
+	{
+		return this.failedPulls.sum();
+	}
+	
+	public long failedBuilds()
+	{
+		return this.failedBuilds.sum();
+	}
+	
+	public QueueDepth queueDepth(final BuildAdmissionController.Operation operation)
+	{
+		return this.queueDepths.get(operation);
+	}
+	
+	/**
+	 * Records the number and durations of an operation.
+	 */
+	public static class Timer
+	{
+		protected final LongAdder count = new LongAdder();
+		protected final LongAdder totalNanos = new LongAdder();
+		protected final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		
+		public void record(final Duration duration)
+		{
+			final long nanos = duration.toNanos();
+			this.count.increment();
+			this.totalNanos.add(nanos);
+			this.maxNanos.accumulate(nanos);
+		}
+		
+		public long count()
+		{
+			return this.count.sum();
+		}
+		
+		public Duration total()
+		{
+			return Duration.ofNanos(this.totalNanos.sum());
+		}
+		
+		public Duration max()
+		{
+			return Duration.ofNanos(this.maxNanos.get());
+		}
+		
+		public Duration average()
+		{
+			final long c = this.count();
+			return c > 0 ? Duration.ofNanos(this.totalNanos.sum() / c) : Duration.ZERO;
+		}
+	}
+	
+	/**
+	 * Records the depth of a queue.
+	 */
+	public static class QueueDepth
+	{
+		protected final AtomicInteger last = new AtomicInteger();
+		protected final LongAccumulator max = new LongAccumulator(Math::max, 0);
+		
+		public void record(final int depth)
+		{
+			this.last.set(depth);
+			this.max.accumulate(depth);
+		}
+		
+		public int last()
+		{
+			return this.last.get();
+		}
+		
+		public long max()
+		{
+			return this.max.get();
+		}
+	}
+}
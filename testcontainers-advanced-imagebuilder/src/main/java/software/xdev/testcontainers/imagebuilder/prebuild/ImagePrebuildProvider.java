@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.prebuild;
+
+import java.util.Collection;
+
+import software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile;
+
+
+/**
+ * Provides images that should be prebuilt when a test session starts.
+ * <p>
+ * Implementations are discovered using {@link java.util.ServiceLoader}, so they need to be registered in
+ * <code>META-INF/services/software.xdev.testcontainers.imagebuilder.prebuild.ImagePrebuildProvider</code>.
+ * </p>
+ * <p>
+ * The returned images should be the same instances that are later used by the tests (e.g. stored in static fields),
+ * otherwise the prebuilt result can't be reused.
+ * </p>
+ *
+ * @see ImagePrebuilder#prebuildFromProviders()
+ */
+public interface ImagePrebuildProvider
+{
+	Collection<? extends AbstractImageFromDockerfile<?>> imagesToPrebuild();
+}
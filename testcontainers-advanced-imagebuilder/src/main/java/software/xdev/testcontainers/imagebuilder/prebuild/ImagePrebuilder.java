@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.prebuild;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile;
+import software.xdev.testcontainers.imagebuilder.concurrent.ImageBuilderExecutorServiceHolder;
+
+
+/**
+ * JVM-wide registry that builds images in the background before they are needed.
+ * <p>
+ * Images are usually built lazily on the first <code>get()</code>, so the first test that needs an image pays the
+ * whole build cost. When an image is prebuilt, the test only has to wait for the already progressing build.
+ * </p>
+ * <p>
+ * If a background build fails the failure is only logged. The next <code>get()</code> of the image will try to
+ * build it again and surfaces the failure.
+ * </p>
+ *
+ * @see ImagePrebuildProvider
+ */
+public class ImagePrebuilder
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ImagePrebuilder.class);
+	
+	private static ImagePrebuilder instance;
+	
+	public static ImagePrebuilder instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new ImagePrebuilder();
+	}
+	
+	public static void setInstance(final ImagePrebuilder instance)
+	{
+		ImagePrebuilder.instance = instance;
+	}
+	
+	protected final Map<AbstractImageFromDockerfile<?>, CompletableFuture<Void>> prebuilds = new IdentityHashMap<>();
+	
+	/**
+	 * Starts building the image in the background (if not already started).
+	 */
+	public synchronized CompletableFuture<Void> prebuild(final AbstractImageFromDockerfile<?> image)
+	{
+		return this.prebuilds.computeIfAbsent(image, this::startPrebuild);
+	}
+	
+	/**
+	 * @return the prebuild of the image if it was already started
+	 */
+	public synchronized Optional<CompletableFuture<Void>> prebuildOf(final AbstractImageFromDockerfile<?> image)
+	{
+		return Optional.ofNullable(this.prebuilds.get(image));
+	}
+	
+	public List<CompletableFuture<Void>> prebuildAll(final Iterable<? extends AbstractImageFromDockerfile<?>> images)
+	{
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		images.forEach(image -> futures.add(this.prebuild(image)));
+		return futures;
+	}
+	
+	/**
+	 * Starts building all images that are provided by {@link ImagePrebuildProvider}s.
+	 */
+	public List<CompletableFuture<Void>> prebuildFromProviders()
+	{
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		ServiceLoader.load(ImagePrebuildProvider.class)
+			.forEach(provider -> futures.addAll(this.prebuildAll(provider.imagesToPrebuild())));
+		return futures;
+	}
+	
+	protected CompletableFuture<Void> startPrebuild(final AbstractImageFromDockerfile<?> image)
+	{
+		LOG.debug("Starting prebuild of image[name='{}']", image.getDockerImageName());
+		return CompletableFuture.runAsync(
+			() -> {
+				try
+				{
+					// LazyFuture -> the result is also used by all following gets
+					image.get();
+				}
+				catch(final Exception ex)
+				{
+					LOG.warn("Prebuild of image[name='{}'] failed", image.getDockerImageName(), ex);
+				}
+			}, this.executorService());
+	}
+	
+	protected ExecutorService executorService()
+	{
+		return ImageBuilderExecutorServiceHolder.instance();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.prebuild.junit;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile;
+import software.xdev.testcontainers.imagebuilder.prebuild.ImagePrebuilder;
+
+
+/**
+ * Starts building all images of the test class that are annotated with {@link PrebuildImage} in the background.
+ * <p>
+ * Usage: <code>@ExtendWith(ImagePrebuildExtension.class)</code>
+ * </p>
+ * <p>
+ * Note: To start the builds even earlier (before the first test class is executed) use
+ * {@link ImagePrebuildLauncherSessionListener}.
+ * </p>
+ */
+public class ImagePrebuildExtension implements BeforeAllCallback
+{
+	@Override
+	public void beforeAll(final ExtensionContext context)
+	{
+		context.getTestClass()
+			.map(this::findImagesToPrebuild)
+			.ifPresent(ImagePrebuilder.instance()::prebuildAll);
+	}
+	
+	protected List<AbstractImageFromDockerfile<?>> findImagesToPrebuild(final Class<?> testClass)
+	{
+		final List<AbstractImageFromDockerfile<?>> images = new ArrayList<>();
+		for(Class<?> clazz = testClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass())
+		{
+			for(final Field field : clazz.getDeclaredFields())
+			{
+				if(!field.isAnnotationPresent(PrebuildImage.class))
+				{
+					continue;
+				}
+				if(!Modifier.isStatic(field.getModifiers())
+					|| !AbstractImageFromDockerfile.class.isAssignableFrom(field.getType()))
+				{
+					throw new IllegalStateException("@PrebuildImage requires a static field of type "
+						+ AbstractImageFromDockerfile.class.getSimpleName() + ": " + field);
+				}
+				
+				images.add((AbstractImageFromDockerfile<?>)this.readStaticField(field));
+			}
+		}
+		return images;
+	}
+	
+	@SuppressWarnings("java:S3011")
+	protected Object readStaticField(final Field field)
+	{
+		try
+		{
+			field.setAccessible(true);
+			return field.get(null);
+		}
+		catch(final IllegalAccessException e)
+		{
+			throw new IllegalStateException("Unable to read " + field, e);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.prebuild.junit;
+
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+
+import software.xdev.testcontainers.imagebuilder.prebuild.ImagePrebuildProvider;
+import software.xdev.testcontainers.imagebuilder.prebuild.ImagePrebuilder;
+
+
+/**
+ * Starts building the images of all {@link ImagePrebuildProvider}s in the background when the JUnit launcher session
+ * is opened (before any test is discovered or executed).
+ * <p>
+ * To activate it, register it in
+ * <code>META-INF/services/org.junit.platform.launcher.LauncherSessionListener</code> (e.g. in the test resources).
+ * </p>
+ */
+public class ImagePrebuildLauncherSessionListener implements LauncherSessionListener
+{
+	@Override
+	public void launcherSessionOpened(final LauncherSession session)
+	{
+		ImagePrebuilder.instance().prebuildFromProviders();
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.temp;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Manages the lifecycle of temporary files and directories.
+ * <p>
+ * Resources are deleted when they are {@link #release(Path) released} or - at the latest - when the JVM shuts down.
+ * In contrast to {@link File#deleteOnExit()}, which keeps every registered path in memory until the JVM exits,
+ * released resources are forgotten. This way long-lived JVMs that execute a lot of builds don't leak memory.
+ * </p>
+ */
+public class TempResourceManager
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TempResourceManager.class);
+	
+	private static TempResourceManager instance;
+	
+	public static TempResourceManager instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new TempResourceManager();
+	}
+	
+	public static void setInstance(final TempResourceManager instance)
+	{
+		TempResourceManager.instance = instance;
+	}
+	
+	protected final Set<Path> resources = ConcurrentHashMap.newKeySet();
+	protected final AtomicBoolean shutdownHookRegistered = new AtomicBoolean();
+	
+	/**
+	 * Registers a resource that should be deleted at the latest when the JVM shuts down.
+	 */
+	public Path register(final Path resource)
+	{
+		this.registerShutdownHookIfRequired();
+		this.resources.add(resource);
+		return resource;
+	}
+	
+	public File register(final File resource)
+	{
+		this.register(resource.toPath());
+		return resource;
+	}
+	
+	/**
+	 * Deletes the resource and forgets it.
+	 */
+	public void release(final Path resource)
+	{
+		FileUtils.deleteQuietly(resource.toFile());
+		this.resources.remove(resource);
+	}
+	
+	public void release(final File resource)
+	{
+		this.release(resource.toPath());
+	}
+	
+	/**
+	 * Forgets the resource without deleting it (e.g. because it was moved).
+	 */
+	public void unregister(final Path resource)
+	{
+		this.resources.remove(resource);
+	}
+	
+	/**
+	 * @return the number of resources that are currently registered
+	 */
+	public int registeredCount()
+	{
+		return this.resources.size();
+	}
+	
+	/**
+	 * Deletes all registered resources.
+	 */
+	public void releaseAll()
+	{
+		this.resources.forEach(this::release);
+	}
+	
+	protected void registerShutdownHookIfRequired()
+	{
+		if(this.shutdownHookRegistered.compareAndSet(false, true))
+		{
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try
+				{
+					this.releaseAll();
+				}
+				catch(final Exception ex)
+				{
+					LOG.warn("Failed to delete temporary resources", ex);
+				}
+			}, "tcaib-temp-cleanup"));
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.temp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Pool of reusable temporary working directories.
+ * <p>
+ * Released directories are emptied and kept for the next build (up to {@link #maxIdle}) instead of being deleted and
+ * recreated each time. All directories are registered at the {@link TempResourceManager}.
+ * </p>
+ */
+public class WorkingDirPool
+{
+	private static final Logger LOG = LoggerFactory.getLogger(WorkingDirPool.class);
+	
+	private static WorkingDirPool instance;
+	
+	public static WorkingDirPool instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new WorkingDirPool(
+			FileUtils.getTempDirectory().toPath().resolve("tcaib-working-dirs-" + ProcessHandle.current().pid()),
+			Math.max(4, Runtime.getRuntime().availableProcessors()));
+	}
+	
+	public static void setInstance(final WorkingDirPool instance)
+	{
+		WorkingDirPool.instance = instance;
+	}
+	
+	protected final Path rootDir;
+	protected final int maxIdle;
+	protected final Deque<Path> idle = new ConcurrentLinkedDeque<>();
+	protected final AtomicInteger idleCount = new AtomicInteger();
+	protected final AtomicInteger created = new AtomicInteger();
+	
+	public WorkingDirPool(final Path rootDir, final int maxIdle)
+	{
+		this.rootDir = rootDir;
+		this.maxIdle = maxIdle;
+	}
+	
+	/**
+	 * Acquires an empty working directory.
+	 * <p>
+	 * The directory must be {@link WorkingDir#close() closed} when it's no longer needed.
+	 * </p>
+	 */
+	public WorkingDir acquire()
+	{
+		final Path pooled = this.idle.pollFirst();
+		if(pooled != null)
+		{
+			this.idleCount.decrementAndGet();
+			return new WorkingDir(pooled);
+		}
+		
+		try
+		{
+			this.tempResourceManager().register(this.rootDir);
+			final Path dir = this.tempResourceManager().register(
+				Files.createDirectories(this.rootDir.resolve(UUID.randomUUID().toString())));
+			this.created.incrementAndGet();
+			return new WorkingDir(dir);
+		}
+		catch(final IOException ioe)
+		{
+			throw new IllegalStateException("Failed to create working directory", ioe);
+		}
+	}
+	
+	/**
+	 * Empties the directory and returns it to the pool (or deletes it if the pool is full).
+	 */
+	protected void release(final Path dir)
+	{
+		if(this.idleCount.incrementAndGet() > this.maxIdle)
+		{
+			this.idleCount.decrementAndGet();
+			this.tempResourceManager().release(dir);
+			return;
+		}
+		
+		try
+		{
+			FileUtils.cleanDirectory(dir.toFile());
+			this.idle.offerFirst(dir);
+		}
+		catch(final IOException | IllegalArgumentException ex)
+		{
+			LOG.debug("Failed to clean working directory {}; discarding it", dir, ex);
+			this.idleCount.decrementAndGet();
+			this.tempResourceManager().release(dir);
+		}
+	}
+	
+	protected TempResourceManager tempResourceManager()
+	{
+		return TempResourceManager.instance();
+	}
+	
+	/**
+	 * @return the number of directories that were created (and not taken from the pool)
+	 */
+	public int createdCount()
+	{
+		return this.created.get();
+	}
+	
+	public int idleCount()
+	{
+		return this.idleCount.get();
+	}
+	
+	/**
+	 * A working directory that was acquired from the pool.
+	 */
+	public class WorkingDir implements AutoCloseable
+	{
+		protected final Path path;
+		protected final AtomicBoolean released = new AtomicBoolean();
+		
+		protected WorkingDir(final Path path)
+		{
+			this.path = path;
+		}
+		
+		public Path path()
+		{
+			return this.path;
+		}
+		
+		public File toFile()
+		{
+			return this.path.toFile();
+		}
+		
+		/**
+		 * Returns the directory to the pool.
+		 */
+		@Override
+		public void close()
+		{
+			if(this.released.compareAndSet(false, true))
+			{
+				WorkingDirPool.this.release(this.path);
+			}
+		}
+	}
+}
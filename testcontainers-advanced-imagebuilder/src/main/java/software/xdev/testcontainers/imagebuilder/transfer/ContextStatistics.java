@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.time.Duration;
+
+
+/**
+ * Statistics about the creation of a build context.
+ *
+ * @param walk statistics of walking the files and evaluating the ignore rules; <code>null</code> if unknown
+ * @param tar  statistics of writing the TAR archive
+ */
+public record ContextStatistics(Walk walk, Tar tar)
+{
+	/**
+	 * @param walkedFiles         number of files found while walking the base directory
+	 * @param transferredFiles    number of files that are transferred (not ignored)
+	 * @param walkDuration        time spent walking the file system
+	 * @param ignoreMatchDuration time spent evaluating the ignore rules
+	 */
+	public record Walk(
+		int walkedFiles,
+		int transferredFiles,
+		Duration walkDuration,
+		Duration ignoreMatchDuration)
+	{
+		public int ignoredFiles()
+		{
+			return Math.max(0, this.walkedFiles - this.transferredFiles);
+		}
+	}
+	
+	/**
+	 * @param entries           number of entries in the archive
+	 * @param uncompressedBytes size of the (uncompressed) archive
+	 * @param writtenBytes      size of the written archive; the same as <code>uncompressedBytes</code> if the
+	 *                          archive is not compressed
+	 * @param duration          time spent writing the archive
+	 */
+	public record Tar(
+		int entries,
+		long uncompressedBytes,
+		long writtenBytes,
+		Duration duration)
+	{
+		/**
+		 * @return uncompressed / written bytes; <code>1</code> if nothing was written
+		 */
+		public double compressionRatio()
+		{
+			return this.writtenBytes > 0 ? (double)this.uncompressedBytes / this.writtenBytes : 1;
+		}
+	}
+}
@@ -24,7 +24,10 @@ import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,6 +37,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -44,8 +49,13 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import software.xdev.testcontainers.imagebuilder.jfr.ContextWalkEvent;
+import software.xdev.testcontainers.imagebuilder.jfr.IgnoreEvaluationEvent;
 import software.xdev.testcontainers.imagebuilder.jgit.ignore.FastIgnoreRule;
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.HierarchicalIgnoreNode;
 import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.InstrumentedIgnoreNode;
+import software.xdev.testcontainers.imagebuilder.temp.TempResourceManager;
 import software.xdev.testcontainers.imagebuilder.transfer.java.nio.file.winntfs.WinNTFSJunctionFiles;
 
 
@@ -69,6 +79,14 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 	private final Path baseDir;
 	private final Path ignoreFileRelativeToBaseDir;
 	
+	protected boolean instrumentIgnoreRules;
+	protected boolean useIgnoreNodeCache = true;
+	protected Set<String> nestedIgnoreFileNames = Set.of();
+	protected String imageName;
+	
+	protected volatile ContextStatistics.Walk lastWalkStatistics;
+	protected volatile InstrumentedIgnoreNode.Statistics lastIgnoreRuleStatistics;
+	
 	public DefaultTransferFilesCreator(
 		final Path baseDir,
 		final Path ignoreFileRelativeToBaseDir)
@@ -87,22 +105,30 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 	{
 		try
 		{
-			final Set<String> ignoreLines = new LinkedHashSet<>(preGitIgnoreLines);
-			if(this.ignoreFileRelativeToBaseDir != null)
+			final IgnoreNode ignoreNode =
+				this.createIgnoreNode(preGitIgnoreLines, ignoreFileLineFilter, postGitIgnoreLines);
+			if(!this.instrumentIgnoreRules)
 			{
-				ignoreLines.addAll(Files.readAllLines(this.baseDir.resolve(this.ignoreFileRelativeToBaseDir))
-					.stream()
-					.filter(ignoreFileLineFilter)
-					.toList());
+				return this.walkFilesAndDetermineTransfer(
+					ignoreNode,
+					ignoreFileLineFilter,
+					alwaysIncludedRelativePaths,
+					useWinNTFSJunctionFixIfApplicable);
 			}
-			ignoreLines.addAll(postGitIgnoreLines);
 			
-			final IgnoreNode ignoreNode = this.createIgnoreNode(ignoreLines);
-			
-			return this.walkFilesAndDetermineTransfer(
-				ignoreNode,
+			if(!this.nestedIgnoreFileNames.isEmpty())
+			{
+				LOG.warn("Ignore rule statistics only contain the rules of the root ignore file and not the ones of "
+					+ "nested ignore files");
+			}
+			final InstrumentedIgnoreNode instrumentedIgnoreNode = new InstrumentedIgnoreNode(ignoreNode.getRules());
+			final Map<Path, String> filesToTransfer = this.walkFilesAndDetermineTransfer(
+				instrumentedIgnoreNode,
+				ignoreFileLineFilter,
 				alwaysIncludedRelativePaths,
 				useWinNTFSJunctionFixIfApplicable);
+			this.lastIgnoreRuleStatistics = instrumentedIgnoreNode.statistics();
+			return filesToTransfer;
 		}
 		catch(final IOException ioe)
 		{
@@ -110,7 +136,35 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 		}
 	}
 	
+	/**
+	 * Creates the {@link IgnoreNode} from the given lines and the ignore file.
+	 */
+	public IgnoreNode createIgnoreNode(
+		final Set<String> preGitIgnoreLines,
+		final Predicate<String> ignoreFileLineFilter,
+		final Set<String> postGitIgnoreLines) throws IOException
+	{
+		final Set<String> ignoreLines = new LinkedHashSet<>(preGitIgnoreLines);
+		if(this.ignoreFileRelativeToBaseDir != null)
+		{
+			ignoreLines.addAll(Files.readAllLines(this.baseDir.resolve(this.ignoreFileRelativeToBaseDir))
+				.stream()
+				.filter(ignoreFileLineFilter)
+				.toList());
+		}
+		ignoreLines.addAll(postGitIgnoreLines);
+		
+		return this.createIgnoreNode(ignoreLines);
+	}
+	
 	protected IgnoreNode createIgnoreNode(final Set<String> ignoreLines)
+	{
+		return this.useIgnoreNodeCache
+			? IgnoreNodeCache.instance().get(this.getClass().getName(), ignoreLines, this::compileIgnoreNode)
+			: this.compileIgnoreNode(ignoreLines);
+	}
+	
+	protected IgnoreNode compileIgnoreNode(final Set<String> ignoreLines)
 	{
 		return new IgnoreNode(ignoreLines.stream()
 			.filter(Objects::nonNull)
@@ -135,9 +189,13 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 	
 	protected Map<Path, String> walkFilesAndDetermineTransfer(
 		final IgnoreNode ignoreNode,
+		final Predicate<String> ignoreFileLineFilter,
 		final Set<String> alwaysIncludedRelativePaths,
 		final boolean useWinNTFSJunctionFixIfApplicable) throws IOException
 	{
+		final long startNanos = System.nanoTime();
+		final ContextWalkEvent walkEvent = new ContextWalkEvent();
+		walkEvent.begin();
 		try(final Stream<Path> walk = findFiles(
 			useWinNTFSJunctionFixIfApplicable,
 			this.baseDir,
@@ -149,19 +207,180 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 			
 			// First collect then stream to improve performance
 			// https://stackoverflow.com/questions/33596618/how-can-i-get-a-parallel-stream-of-files-walk/33597291#comment54977780_33597291
-			return walk
-				.toList()
+			final List<Path> files = walk.toList();
+			final IgnoreNode effectiveIgnoreNode = this.withNestedIgnoreNodes(ignoreNode, ignoreFileLineFilter, files);
+			final long walkedNanos = System.nanoTime();
+			walkEvent.finish(this.imageName, this.baseDir, files.size());
+			
+			final IgnoreEvaluationEvent ignoreEvent = new IgnoreEvaluationEvent();
+			ignoreEvent.begin();
+			
+			final Map<Path, String> filesToTransfer = files
 				.stream()
 				.parallel()
 				.map(file -> this.determineFileForTransfer(
-					ignoreNode,
+					effectiveIgnoreNode,
 					alwaysIncludedRelativePaths,
 					file,
 					cachedDirectoryOutcome))
 				.filter(Objects::nonNull)
 				.sorted(Map.Entry.comparingByValue()) // Sort by relative path
 				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (l, r) -> r, LinkedHashMap::new));
+			
+			ignoreEvent.finish(this.imageName, this.baseDir, files.size(), filesToTransfer.size());
+			
+			this.lastWalkStatistics = new ContextStatistics.Walk(
+				files.size(),
+				filesToTransfer.size(),
+				Duration.ofNanos(walkedNanos - startNanos),
+				Duration.ofNanos(System.nanoTime() - walkedNanos));
+			return filesToTransfer;
+		}
+	}
+	
+	/**
+	 * Reads the nested ignore files found during the walk and chains them with the given root node.
+	 * <p>
+	 * Like in Git, ignore files inside excluded directories are not read as nothing inside them can be re-included.
+	 * The lines of nested ignore files are also filtered using the <code>ignoreFileLineFilter</code>.
+	 * </p>
+	 *
+	 * @see #withNestedIgnoreFileNames(Set)
+	 */
+	protected IgnoreNode withNestedIgnoreNodes(
+		final IgnoreNode rootNode,
+		final Predicate<String> ignoreFileLineFilter,
+		final List<Path> files) throws IOException
+	{
+		if(this.nestedIgnoreFileNames.isEmpty())
+		{
+			return rootNode;
+		}
+		
+		// Parent directories first -> Their rules are known when checking if a nested directory is excluded
+		final List<Map.Entry<String, Path>> ignoreFiles = files.stream()
+			.filter(file -> file.getFileName() != null
+				&& this.nestedIgnoreFileNames.contains(file.getFileName().toString()))
+			.map(file -> {
+				final String relativeDir = this.parentDirectory(FastFilePathRelativizer.relativize(this.baseDir, file));
+				// The ignore file in the base directory is handled by the root node
+				return relativeDir != null ? Map.entry(relativeDir, file) : null;
+			})
+			.filter(Objects::nonNull)
+			.sorted(Comparator.comparingLong(e -> e.getKey().chars().filter(c -> c == '/').count()))
+			.toList();
+		
+		final Map<String, IgnoreNode> nestedNodes = new HashMap<>();
+		final IgnoreNode chainedNode = new HierarchicalIgnoreNode(rootNode, nestedNodes);
+		for(final Map.Entry<String, Path> ignoreFile : ignoreFiles)
+		{
+			final String relativeDir = ignoreFile.getKey();
+			if(this.isDirectoryExcluded(chainedNode, relativeDir))
+			{
+				LOG.debug("Skipping nested ignore file {} as its directory is excluded", ignoreFile.getValue());
+				continue;
+			}
+			
+			final IgnoreNode node = this.createIgnoreNode(Files.readAllLines(ignoreFile.getValue())
+				.stream()
+				.filter(ignoreFileLineFilter)
+				.collect(Collectors.toCollection(LinkedHashSet::new)));
+			if(node.getRules().isEmpty())
+			{
+				continue;
+			}
+			// Multiple ignore files in the same directory (e.g. .gitignore and .dockerignore) are merged
+			nestedNodes.merge(relativeDir, node, (existing, added) -> {
+				final List<FastIgnoreRule> rules = new ArrayList<>(existing.getRules());
+				rules.addAll(added.getRules());
+				return new IgnoreNode(rules);
+			});
+		}
+		
+		LOG.debug("Found {}x directories with nested ignore files", nestedNodes.size());
+		return nestedNodes.isEmpty()
+			? rootNode
+			: chainedNode;
+	}
+	
+	/**
+	 * @return if the directory or one of its parents is excluded
+	 */
+	protected boolean isDirectoryExcluded(final IgnoreNode ignoreNode, final String relativeDir)
+	{
+		for(int sepIndex = relativeDir.indexOf('/');
+			sepIndex != -1;
+			sepIndex = relativeDir.indexOf('/', sepIndex + 1))
+		{
+			if(ignoreNode.isIgnored(relativeDir.substring(0, sepIndex), true) == IgnoreNode.MatchResult.IGNORED)
+			{
+				return true;
+			}
 		}
+		return ignoreNode.isIgnored(relativeDir, true) == IgnoreNode.MatchResult.IGNORED;
+	}
+	
+	@Override
+	public Optional<ContextStatistics.Walk> lastWalkStatistics()
+	{
+		return Optional.ofNullable(this.lastWalkStatistics);
+	}
+	
+	/**
+	 * @return the statistics of the ignore rules of the last determination (only if instrumented)
+	 * @see #withInstrumentIgnoreRules(boolean)
+	 */
+	public Optional<InstrumentedIgnoreNode.Statistics> lastIgnoreRuleStatistics()
+	{
+		return Optional.ofNullable(this.lastIgnoreRuleStatistics);
+	}
+	
+	/**
+	 * Counts the matches and evaluation time of each ignore rule using an {@link InstrumentedIgnoreNode}.
+	 */
+	public DefaultTransferFilesCreator withInstrumentIgnoreRules(final boolean instrumentIgnoreRules)
+	{
+		this.instrumentIgnoreRules = instrumentIgnoreRules;
+		return this;
+	}
+	
+	/**
+	 * @param imageName the name of the image the files are determined for (only used for diagnostics, e.g. in JFR
+	 *                  events)
+	 */
+	public DefaultTransferFilesCreator withImageName(final String imageName)
+	{
+		this.imageName = imageName;
+		return this;
+	}
+	
+	/**
+	 * Reuse the compiled ignore rules from the JVM-wide {@link IgnoreNodeCache} (default: <code>true</code>).
+	 */
+	public DefaultTransferFilesCreator withUseIgnoreNodeCache(final boolean useIgnoreNodeCache)
+	{
+		this.useIgnoreNodeCache = useIgnoreNodeCache;
+		return this;
+	}
+	
+	/**
+	 * Also reads ignore files with the given names (e.g. <code>.gitignore</code>) inside subdirectories of the base
+	 * directory. Their rules are relative to the directory they are located in and take precedence over the rules of
+	 * parent directories.
+	 * <p>
+	 * Default: empty = only the ignore file in the base directory is used.
+	 * </p>
+	 * <p>
+	 * Note: The rules of nested ignore files are not contained in the statistics of
+	 * {@link #withInstrumentIgnoreRules(boolean) instrumented ignore rules}.
+	 * </p>
+	 *
+	 * @see HierarchicalIgnoreNode
+	 */
+	public DefaultTransferFilesCreator withNestedIgnoreFileNames(final Set<String> nestedIgnoreFileNames)
+	{
+		this.nestedIgnoreFileNames = Set.copyOf(nestedIgnoreFileNames);
+		return this;
 	}
 	
 	protected static Stream<Path> findFiles(
@@ -295,37 +514,65 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 		final TransferArchiveTARCompressor transferArchiveTARCompressor,
 		final boolean immediatelyFreeUpWhenReadFinished)
 	{
-		final File dockerFolderTar = transferArchiveTARCompressor.archiveTARFiles(
-			filesToTransfer,
-			UUID.randomUUID().toString());
+		final TransferArchiveTARCompressor.ArchivedTAR archived =
+			transferArchiveTARCompressor.archiveTARFilesWithStatistics(
+				filesToTransfer,
+				UUID.randomUUID().toString(),
+				this.imageName);
 		return new DefaultFilesToTransferInfo(
-			dockerFolderTar,
-			immediatelyFreeUpWhenReadFinished
+			new ReferenceCountedFile(archived.file()),
+			immediatelyFreeUpWhenReadFinished,
+			new ContextStatistics(this.lastWalkStatistics, archived.statistics())
 		);
 	}
 	
 	protected static class DefaultFilesToTransferInfo
 		implements FilesToTransferInfo
 	{
-		protected final File tar;
+		protected final ReferenceCountedFile tar;
 		protected final boolean immediatelyFreeUpWhenReadFinished;
+		protected final AtomicBoolean released = new AtomicBoolean();
+		protected final ContextStatistics statistics;
 		
 		protected DefaultFilesToTransferInfo(final File tar, final boolean immediatelyFreeUpWhenReadFinished)
+		{
+			this(new ReferenceCountedFile(tar), immediatelyFreeUpWhenReadFinished, null);
+		}
+		
+		protected DefaultFilesToTransferInfo(
+			final ReferenceCountedFile tar,
+			final boolean immediatelyFreeUpWhenReadFinished,
+			final ContextStatistics statistics)
 		{
 			this.tar = tar;
 			this.immediatelyFreeUpWhenReadFinished = immediatelyFreeUpWhenReadFinished;
+			this.statistics = statistics;
+		}
+		
+		@Override
+		public Optional<ContextStatistics> statistics()
+		{
+			return Optional.ofNullable(this.statistics);
 		}
 		
 		@Override
 		public File source()
 		{
-			return this.tar;
+			return this.tar.file();
 		}
 		
 		@Override
 		public InputStream filesToTransfer()
 		{
-			return new WrappedTarInputStream(this.tar, this.immediatelyFreeUpWhenReadFinished);
+			// The stream holds its own reference so that the file is not deleted while it's read
+			if(!this.tar.tryRetain())
+			{
+				throw new IllegalStateException("All references to " + this.tar.file() + " were already released");
+			}
+			return new WrappedTarInputStream(this.tar.file(), () -> {
+				this.tar.release();
+				this.reportConsumed();
+			});
 		}
 		
 		@Override
@@ -333,16 +580,78 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 		{
 			if(this.immediatelyFreeUpWhenReadFinished)
 			{
-				FileUtils.deleteQuietly(this.tar);
+				this.release();
 			}
 		}
 		
+		@Override
+		public Optional<FilesToTransferInfo> retain(final boolean immediatelyFreeUpWhenReadFinished)
+		{
+			return this.tar.tryRetain()
+				? Optional.of(new DefaultFilesToTransferInfo(
+				this.tar,
+				immediatelyFreeUpWhenReadFinished,
+				this.statistics))
+				: Optional.empty();
+		}
+		
+		@Override
+		public boolean isReleased()
+		{
+			return this.tar.isReleased();
+		}
+		
 		@Override
 		public void close()
 		{
-			if(!this.immediatelyFreeUpWhenReadFinished)
+			this.release();
+		}
+		
+		protected void release()
+		{
+			if(this.released.compareAndSet(false, true))
+			{
+				this.tar.release();
+			}
+		}
+	}
+	
+	/**
+	 * A file that is deleted when the last reference to it is released.
+	 */
+	protected static class ReferenceCountedFile
+	{
+		protected final File file;
+		protected final AtomicInteger references = new AtomicInteger(1);
+		
+		protected ReferenceCountedFile(final File file)
+		{
+			this.file = file;
+		}
+		
+		public File file()
+		{
+			return this.file;
+		}
+		
+		/**
+		 * @return <code>false</code> if all references were already released (and the file was deleted)
+		 */
+		public boolean tryRetain()
+		{
+			return this.references.getAndUpdate(r -> r > 0 ? r + 1 : r) > 0;
+		}
+		
+		public boolean isReleased()
+		{
+			return this.references.get() <= 0;
+		}
+		
+		public void release()
+		{
+			if(this.references.decrementAndGet() == 0)
 			{
-				FileUtils.deleteQuietly(this.tar);
+				TempResourceManager.instance().release(this.file);
 			}
 		}
 	}
@@ -350,14 +659,15 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 	protected static class WrappedTarInputStream extends InputStream
 	{
 		protected final File tar;
-		protected final boolean deleteTarOnClose;
+		protected final Runnable onClose;
+		protected final AtomicBoolean closed = new AtomicBoolean();
 		
 		protected final FileInputStream tarInputStream;
 		
-		protected WrappedTarInputStream(final File tar, final boolean deleteOnClose)
+		protected WrappedTarInputStream(final File tar, final Runnable onClose)
 		{
 			this.tar = tar;
-			this.deleteTarOnClose = deleteOnClose;
+			this.onClose = onClose;
 			
 			try
 			{
@@ -365,6 +675,7 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 			}
 			catch(final IOException ioe)
 			{
+				onClose.run();
 				throw new UncheckedIOException(ioe);
 			}
 		}
@@ -390,10 +701,10 @@ public class DefaultTransferFilesCreator implements TransferFilesCreator
 		@Override
 		public void close()
 		{
-			IOUtils.closeQuietly(this.tarInputStream);
-			if(this.deleteTarOnClose)
+			if(this.closed.compareAndSet(false, true))
 			{
-				FileUtils.deleteQuietly(this.tar);
+				IOUtils.closeQuietly(this.tarInputStream);
+				this.onClose.run();
 			}
 		}
 	}
@@ -15,17 +15,30 @@
  */
 package software.xdev.testcontainers.imagebuilder.transfer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -33,7 +46,14 @@ import java.util.function.Predicate;
 import org.apache.commons.lang3.function.TriFunction;
 import org.slf4j.Logger;
 
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+import software.xdev.testcontainers.imagebuilder.metrics.ImageBuilderMetricsHolder;
+import software.xdev.testcontainers.imagebuilder.transfer.explain.ContextExplainer;
+import software.xdev.testcontainers.imagebuilder.transfer.explain.ContextExplanation;
 import software.xdev.testcontainers.imagebuilder.transfer.fcm.DockerFileContentModifier;
+import software.xdev.testcontainers.imagebuilder.transfer.manifest.CacheBusterAnalyzer;
+import software.xdev.testcontainers.imagebuilder.transfer.manifest.ContextManifest;
+import software.xdev.testcontainers.imagebuilder.transfer.manifest.ContextManifestDiff;
 
 
 public class FilesToTransferHandler
@@ -52,6 +72,14 @@ public class FilesToTransferHandler
 		dockerFileContentModifierSupplier = DockerFileContentModifier::new;
 	protected List<DockerFileLineModifier> dockerFileLinesModifiers = new ArrayList<>();
 	protected boolean useWinNTFSJunctionFixIfApplicable;
+	protected boolean shareCreatedFilesToTransferInfos;
+	protected boolean explainContext;
+	protected Path explainContextJsonFile;
+	protected Path contextManifestDir;
+	protected boolean instrumentIgnoreRules;
+	protected Set<String> nestedIgnoreFileNames = Set.of();
+	protected final Map<SharedFilesToTransferInfoKey, CompletableFuture<FilesToTransferInfo>>
+		sharedFilesToTransferInfos = new ConcurrentHashMap<>();
 	
 	public FilesToTransferInfo create(
 		final Logger log,
@@ -59,44 +87,260 @@ public class FilesToTransferHandler
 		final Path dockerFilePath,
 		final boolean immediatelyFreeUpWhenReadFinished)
 	{
-		final Path baseDirRelativeIgnoreFile = this.optBaseDirRelativeIgnoreFile.orElse(null);
+		return this.create(log, baseDir, dockerFilePath, immediatelyFreeUpWhenReadFinished, null);
+	}
+	
+	/**
+	 * @param imageName the name of the image the files are created for (only used for diagnostics, e.g. in JFR
+	 *                  events); might be <code>null</code>
+	 */
+	public FilesToTransferInfo create(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final boolean immediatelyFreeUpWhenReadFinished,
+		final String imageName)
+	{
+		if(!this.shareCreatedFilesToTransferInfos)
+		{
+			return this.createNew(log, baseDir, dockerFilePath, immediatelyFreeUpWhenReadFinished, imageName);
+		}
+		
+		this.removeReleasedSharedFilesToTransferInfos();
+		
+		final SharedFilesToTransferInfoKey key = this.createSharedFilesToTransferInfoKey(baseDir, dockerFilePath);
+		while(true)
+		{
+			final CompletableFuture<FilesToTransferInfo> creating = new CompletableFuture<>();
+			final CompletableFuture<FilesToTransferInfo> existing =
+				this.sharedFilesToTransferInfos.putIfAbsent(key, creating);
+			if(existing == null)
+			{
+				return this.createNewShared(
+					log,
+					baseDir,
+					dockerFilePath,
+					immediatelyFreeUpWhenReadFinished,
+					imageName,
+					key,
+					creating);
+			}
+			
+			// Concurrent callers wait for the files that are currently created instead of creating them again
+			final Optional<FilesToTransferInfo> optShared = this.awaitShared(existing)
+				.flatMap(shared -> shared.retain(immediatelyFreeUpWhenReadFinished));
+			if(optShared.isPresent())
+			{
+				log.info("Reusing shared FilesToTransferInfo[baseDir={}]", baseDir);
+				return optShared.get();
+			}
+			
+			// Failed or already released -> invalidate and try again
+			this.sharedFilesToTransferInfos.remove(key, existing);
+		}
+	}
+	
+	protected FilesToTransferInfo createNewShared(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final boolean immediatelyFreeUpWhenReadFinished,
+		final String imageName,
+		final SharedFilesToTransferInfoKey key,
+		final CompletableFuture<FilesToTransferInfo> creating)
+	{
+		try
+		{
+			final FilesToTransferInfo created =
+				this.createNew(log, baseDir, dockerFilePath, immediatelyFreeUpWhenReadFinished, imageName);
+			creating.complete(created);
+			return created;
+		}
+		catch(final RuntimeException ex)
+		{
+			this.sharedFilesToTransferInfos.remove(key, creating);
+			creating.completeExceptionally(ex);
+			throw ex;
+		}
+	}
+	
+	protected Optional<FilesToTransferInfo> awaitShared(final CompletableFuture<FilesToTransferInfo> future)
+	{
+		try
+		{
+			return Optional.of(future.join());
+		}
+		catch(final CompletionException ex)
+		{
+			return Optional.empty();
+		}
+	}
+	
+	/**
+	 * Removes the shared {@link FilesToTransferInfo}s whose references have all been released.
+	 */
+	protected void removeReleasedSharedFilesToTransferInfos()
+	{
+		this.sharedFilesToTransferInfos.values().removeIf(future ->
+			future.isCompletedExceptionally()
+				|| future.isDone() && future.join().isReleased());
+	}
+	
+	/**
+	 * Creates the key for sharing.
+	 * <p>
+	 * Besides the base directory and Dockerfile it contains the configuration of this handler and the state
+	 * (size, last modified) of the Dockerfile and ignore file. Changes of other files inside the context are only
+	 * picked up once all references to the shared files have been released.
+	 * </p>
+	 */
+	protected SharedFilesToTransferInfoKey createSharedFilesToTransferInfoKey(
+		final Path baseDir,
+		final Path dockerFilePath)
+	{
+		final Path normalizedBaseDir = baseDir.toAbsolutePath().normalize();
+		final Path normalizedDockerFilePath = dockerFilePath.toAbsolutePath().normalize();
+		return new SharedFilesToTransferInfoKey(
+			normalizedBaseDir,
+			normalizedDockerFilePath,
+			Arrays.asList(
+				this.optBaseDirRelativeIgnoreFile.orElse(null),
+				List.copyOf(this.preGitIgnoreLines),
+				this.ignoreFileLineFilter,
+				List.copyOf(this.postGitIgnoreLines),
+				this.alwaysTransferDockerfilePath,
+				Set.copyOf(this.alwaysTransferRelativePaths),
+				this.transferFilesCreatorSupplier,
+				this.transferArchiveTARCompressor,
+				this.transferArchiveTARCompressorCustomizer,
+				this.dockerFileContentModifierSupplier,
+				List.copyOf(this.dockerFileLinesModifiers),
+				this.useWinNTFSJunctionFixIfApplicable,
+				this.nestedIgnoreFileNames),
+			Arrays.asList(
+				fileState(normalizedDockerFilePath),
+				this.optBaseDirRelativeIgnoreFile
+					.map(normalizedBaseDir::resolve)
+					.map(FilesToTransferHandler::fileState)
+					.orElse(null)));
+	}
+	
+	protected static String fileState(final Path file)
+	{
+		try
+		{
+			final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			return attrs.size() + "@" + attrs.lastModifiedTime().toMillis();
+		}
+		catch(final IOException ioe)
+		{
+			return "missing";
+		}
+	}
+	
+	protected FilesToTransferInfo createNew(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final boolean immediatelyFreeUpWhenReadFinished,
+		final String imageName)
+	{
+		final PreparedTransfer prepared = this.prepareTransfer(log, baseDir, dockerFilePath, imageName);
+		
+		log.info("Building FilesToTransferInfo with docker-context...");
+		final long startInputStreamBuildMs = System.currentTimeMillis();
+		
+		final FilesToTransferInfo factory =
+			prepared.transferFilesCreator().getAllFilesToTransferAsTarInputStreamFactory(
+				prepared.filesToTransfer(),
+				this.transferArchiveTARCompressor,
+				immediatelyFreeUpWhenReadFinished);
+		
 		log.info(
-			"Calculating files to transfer to docker[baseDir={},baseDirRelativeIgnoreFile={}]",
-			baseDir,
-			baseDirRelativeIgnoreFile);
+			"Built FilesToTransferInfo, took {}ms",
+			System.currentTimeMillis() - startInputStreamBuildMs);
+		
+		return factory;
+	}
+	
+	/**
+	 * Writes the docker-context as TAR archive directly into the given stream without creating a temporary file.
+	 * <p>
+	 * The stream is not closed.
+	 * </p>
+	 *
+	 * @see TransferArchiveTARCompressor#writeTARFiles(Map, OutputStream, boolean)
+	 */
+	public ContextStatistics writeTo(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final OutputStream out,
+		final boolean gzip) throws IOException
+	{
+		return this.writeTo(log, baseDir, dockerFilePath, out, gzip, null);
+	}
+	
+	/**
+	 * @param imageName the name of the image the context is written for (only used for diagnostics, e.g. in JFR
+	 *                  events); might be <code>null</code>
+	 * @see #writeTo(Logger, Path, Path, OutputStream, boolean)
+	 */
+	public ContextStatistics writeTo(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final OutputStream out,
+		final boolean gzip,
+		final String imageName) throws IOException
+	{
+		final PreparedTransfer prepared = this.prepareTransfer(log, baseDir, dockerFilePath, imageName);
 		
+		log.info("Streaming docker-context...");
+		final long startStreamMs = System.currentTimeMillis();
+		
+		final ContextStatistics.Tar tarStatistics =
+			this.transferArchiveTARCompressor.writeTARFiles(prepared.filesToTransfer(), out, gzip, imageName);
+		
+		log.info("Streamed docker-context, took {}ms", System.currentTimeMillis() - startStreamMs);
+		return new ContextStatistics(
+			prepared.transferFilesCreator().lastWalkStatistics().orElse(null),
+			tarStatistics);
+	}
+	
+	protected PreparedTransfer prepareTransfer(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final String imageName)
+	{
 		final Set<String> alwaysIncludePaths = new HashSet<>(this.alwaysTransferRelativePaths);
 		if(this.alwaysTransferDockerfilePath)
 		{
 			alwaysIncludePaths.add(FastFilePathRelativizer.relativize(baseDir, dockerFilePath));
 		}
 		
-		final long startTransferMs = System.currentTimeMillis();
-		
-		// NOTE: Testcontainers internal .dockerignore processor is completely broken
-		// -> We use our own docker/gitignore processor here
 		final TransferFilesCreator tfc = this.transferFilesCreatorSupplier.apply(
 			baseDir,
-			baseDirRelativeIgnoreFile);
-		final Map<Path, String> filesToTransfer = tfc.determineFilesToTransfer(
-			this.preGitIgnoreLines,
-			this.ignoreFileLineFilter,
-			this.postGitIgnoreLines,
-			alwaysIncludePaths,
-			this.useWinNTFSJunctionFixIfApplicable);
-		
-		log.info(
-			"{}x files will be transferred (determination took {}ms)",
-			filesToTransfer.size(),
-			System.currentTimeMillis() - startTransferMs);
-		
-		if(log.isDebugEnabled())
+			this.optBaseDirRelativeIgnoreFile.orElse(null));
+		if(tfc instanceof final DefaultTransferFilesCreator defaultTfc)
 		{
-			filesToTransfer.forEach((a, r) -> log.debug("Will transmit: '{}' -> '{}'", a, r));
+			defaultTfc.withImageName(imageName);
 		}
+		final Map<Path, String> filesToTransfer = this.determineFilesToTransfer(log, baseDir, tfc, alwaysIncludePaths);
 		
-		log.info("Building FilesToTransferInfo with docker-context...");
-		final long startInputStreamBuildMs = System.currentTimeMillis();
+		if(this.explainContext)
+		{
+			if(!this.nestedIgnoreFileNames.isEmpty())
+			{
+				log.warn("The explanation of the docker-context doesn't consider nested ignore files");
+			}
+			this.logExplanation(log, this.explain(baseDir, alwaysIncludePaths));
+		}
+		if(this.contextManifestDir != null)
+		{
+			this.updateContextManifest(log, baseDir, dockerFilePath, filesToTransfer);
+		}
 		
 		if(!this.dockerFileLinesModifiers.isEmpty())
 		{
@@ -117,17 +361,218 @@ public class FilesToTransferHandler
 			this.transferArchiveTARCompressorCustomizer.accept(this.transferArchiveTARCompressor);
 		}
 		
-		final FilesToTransferInfo factory =
-			tfc.getAllFilesToTransferAsTarInputStreamFactory(
-				filesToTransfer,
-				this.transferArchiveTARCompressor,
-				immediatelyFreeUpWhenReadFinished);
+		return new PreparedTransfer(tfc, filesToTransfer);
+	}
+	
+	/**
+	 * Determines the files (of a directory without a Dockerfile) that should be transferred, e.g. for a named build
+	 * context.
+	 *
+	 * @return absolute path -&gt; relative path
+	 */
+	public Map<Path, String> determineFilesToTransfer(final Logger log, final Path baseDir)
+	{
+		return this.determineFilesToTransfer(
+			log,
+			baseDir,
+			this.transferFilesCreatorSupplier.apply(baseDir, this.optBaseDirRelativeIgnoreFile.orElse(null)),
+			new HashSet<>(this.alwaysTransferRelativePaths));
+	}
+	
+	protected Map<Path, String> determineFilesToTransfer(
+		final Logger log,
+		final Path baseDir,
+		final TransferFilesCreator tfc,
+		final Set<String> alwaysIncludePaths)
+	{
+		log.info(
+			"Calculating files to transfer to docker[baseDir={},baseDirRelativeIgnoreFile={}]",
+			baseDir,
+			this.optBaseDirRelativeIgnoreFile.orElse(null));
+		
+		final long startTransferMs = System.currentTimeMillis();
+		
+		final boolean instrumentIgnoreRulesOfTfc = this.instrumentIgnoreRules
+			&& tfc instanceof DefaultTransferFilesCreator;
+		if(instrumentIgnoreRulesOfTfc)
+		{
+			((DefaultTransferFilesCreator)tfc).withInstrumentIgnoreRules(true);
+		}
+		else if(this.instrumentIgnoreRules)
+		{
+			log.warn("Instrumentation of ignore rules is not supported by {}", tfc.getClass().getName());
+		}
+		if(!this.nestedIgnoreFileNames.isEmpty())
+		{
+			if(tfc instanceof final DefaultTransferFilesCreator defaultTfc)
+			{
+				defaultTfc.withNestedIgnoreFileNames(this.nestedIgnoreFileNames);
+			}
+			else
+			{
+				log.warn("Nested ignore files are not supported by {}", tfc.getClass().getName());
+			}
+		}
+		
+		// NOTE: Testcontainers internal .dockerignore processor is completely broken
+		// -> We use our own docker/gitignore processor here
+		final Map<Path, String> filesToTransfer = tfc.determineFilesToTransfer(
+			this.preGitIgnoreLines,
+			this.ignoreFileLineFilter,
+			this.postGitIgnoreLines,
+			alwaysIncludePaths,
+			this.useWinNTFSJunctionFixIfApplicable);
+		
+		if(instrumentIgnoreRulesOfTfc)
+		{
+			((DefaultTransferFilesCreator)tfc).lastIgnoreRuleStatistics()
+				.ifPresent(s -> log.info("Ignore rule statistics:\n{}", s.format()));
+		}
+		
+		tfc.lastWalkStatistics().ifPresent(w -> ImageBuilderMetricsHolder.instance().onContextWalked(
+			w.walkedFiles(),
+			w.ignoredFiles(),
+			w.walkDuration(),
+			w.ignoreMatchDuration()));
 		
 		log.info(
-			"Built FilesToTransferInfo, took {}ms",
-			System.currentTimeMillis() - startInputStreamBuildMs);
+			"{}x files will be transferred (determination took {}ms)",
+			filesToTransfer.size(),
+			System.currentTimeMillis() - startTransferMs);
 		
-		return factory;
+		if(log.isDebugEnabled())
+		{
+			filesToTransfer.forEach((a, r) -> log.debug("Will transmit: '{}' -> '{}'", a, r));
+		}
+		
+		return filesToTransfer;
+	}
+	
+	/**
+	 * Explains which files of the build context are transferred, how large the directories are and which rules
+	 * excluded which directories.
+	 * <p>
+	 * Note: The explanation is always created using the logic of {@link DefaultTransferFilesCreator} and only
+	 * considers the ignore file in the base directory (no {@link #withNestedIgnoreFileNames(Set) nested ones}).
+	 * </p>
+	 */
+	public ContextExplanation explain(final Path baseDir, final Path dockerFilePath)
+	{
+		final Set<String> alwaysIncludePaths = new HashSet<>(this.alwaysTransferRelativePaths);
+		if(this.alwaysTransferDockerfilePath)
+		{
+			alwaysIncludePaths.add(FastFilePathRelativizer.relativize(baseDir, dockerFilePath));
+		}
+		return this.explain(baseDir, alwaysIncludePaths);
+	}
+	
+	protected ContextExplanation explain(final Path baseDir, final Set<String> alwaysIncludePaths)
+	{
+		try
+		{
+			final IgnoreNode ignoreNode = new DefaultTransferFilesCreator(
+				baseDir,
+				this.optBaseDirRelativeIgnoreFile.orElse(null))
+				.createIgnoreNode(this.preGitIgnoreLines, this.ignoreFileLineFilter, this.postGitIgnoreLines);
+			return new ContextExplainer(baseDir, ignoreNode, alwaysIncludePaths).explain();
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	protected void logExplanation(final Logger log, final ContextExplanation explanation)
+	{
+		log.info("Explanation of docker-context:\n{}", explanation.formatTree());
+		if(this.explainContextJsonFile != null)
+		{
+			try
+			{
+				explanation.writeJson(this.explainContextJsonFile);
+				log.info("Wrote explanation of docker-context to {}", this.explainContextJsonFile);
+			}
+			catch(final IOException ioe)
+			{
+				log.warn("Failed to write explanation of docker-context to {}", this.explainContextJsonFile, ioe);
+			}
+		}
+	}
+	
+	/**
+	 * Creates the manifest of the current context, logs which Dockerfile instructions are invalidated by the changes
+	 * since the last build and persists the new manifest.
+	 *
+	 * @return the changes since the last build; empty if there was no previous manifest
+	 */
+	protected Optional<ContextManifestDiff> updateContextManifest(
+		final Logger log,
+		final Path baseDir,
+		final Path dockerFilePath,
+		final Map<Path, String> filesToTransfer)
+	{
+		final Path manifestFile = this.contextManifestFile(baseDir, dockerFilePath);
+		try
+		{
+			final ContextManifest previous = Files.exists(manifestFile) ? ContextManifest.read(manifestFile) : null;
+			final ContextManifest current = ContextManifest.create(filesToTransfer, previous);
+			current.write(manifestFile);
+			
+			if(previous == null)
+			{
+				log.info("No previous context manifest found, created {}", manifestFile);
+				return Optional.empty();
+			}
+			
+			final ContextManifestDiff diff = current.diff(previous);
+			log.info("Context changed since last build: {}", diff);
+			if(!diff.isEmpty() && Files.exists(dockerFilePath))
+			{
+				new CacheBusterAnalyzer(dockerFilePath).analyze(diff)
+					.forEach(i -> log.info("Invalidates layer cache of {}", i));
+			}
+			return Optional.of(diff);
+		}
+		catch(final IOException | RuntimeException ex)
+		{
+			log.warn("Failed to update context manifest {}", manifestFile, ex);
+			return Optional.empty();
+		}
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected Path contextManifestFile(final Path baseDir, final Path dockerFilePath)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(baseDir.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte)0);
+			digest.update(dockerFilePath.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+			return this.contextManifestDir.resolve(HexFormat.of().formatHex(digest.digest(), 0, 16) + ".manifest");
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	protected record PreparedTransfer(
+		TransferFilesCreator transferFilesCreator,
+		Map<Path, String> filesToTransfer)
+	{
+	}
+	
+	/**
+	 * @param configuration the configuration of the handler that affects the created files
+	 * @param fileStates    the state of the files that affect the created files
+	 */
+	protected record SharedFilesToTransferInfoKey(
+		Path baseDir,
+		Path dockerFilePath,
+		List<Object> configuration,
+		List<String> fileStates)
+	{
 	}
 	
 	// region with
@@ -200,6 +645,77 @@ public class FilesToTransferHandler
 		return this;
 	}
 	
+	/**
+	 * Logs a report of the build context (per-directory aggregates, largest files and the rules that excluded
+	 * directories) when it's created.
+	 *
+	 * @see #explain(Path, Path)
+	 */
+	public FilesToTransferHandler withExplainContext(final boolean explainContext)
+	{
+		this.explainContext = explainContext;
+		return this;
+	}
+	
+	/**
+	 * Additionally writes the explanation of the build context as JSON into the given file.
+	 *
+	 * @see #withExplainContext(boolean)
+	 */
+	public FilesToTransferHandler withExplainContextJsonFile(final Path explainContextJsonFile)
+	{
+		this.explainContextJsonFile = explainContextJsonFile;
+		this.explainContext = this.explainContext || explainContextJsonFile != null;
+		return this;
+	}
+	
+	/**
+	 * Persists a manifest (path, size, content hash, mode) of each build context inside the given directory.
+	 * <p>
+	 * On the next build the manifests are compared and the Dockerfile <code>COPY</code>/<code>ADD</code> instructions
+	 * whose layer cache is invalidated by the changed files are logged.
+	 * </p>
+	 *
+	 * @see ContextManifest
+	 * @see CacheBusterAnalyzer
+	 */
+	public FilesToTransferHandler withContextManifestDir(final Path contextManifestDir)
+	{
+		this.contextManifestDir = contextManifestDir;
+		return this;
+	}
+	
+	/**
+	 * Counts the matches and evaluation time of each ignore rule while determining the files to transfer and logs
+	 * the rules that never matched and the most expensive ones.
+	 * <p>
+	 * Note: This has a noticeable overhead and should only be used for diagnostics. Only supported when using
+	 * {@link DefaultTransferFilesCreator}.
+	 * </p>
+	 */
+	public FilesToTransferHandler withInstrumentIgnoreRules(final boolean instrumentIgnoreRules)
+	{
+		this.instrumentIgnoreRules = instrumentIgnoreRules;
+		return this;
+	}
+	
+	/**
+	 * Also respects ignore files with the given names (e.g. <code>.gitignore</code>) inside subdirectories of the
+	 * context - like Git does for nested <code>.gitignore</code> files.
+	 * <p>
+	 * Only supported when using {@link DefaultTransferFilesCreator}. Nested ignore files are neither considered by
+	 * {@link #withInstrumentIgnoreRules(boolean) instrumented ignore rules} nor by
+	 * {@link #explain(Path, Path) explanations}.
+	 * </p>
+	 *
+	 * @see DefaultTransferFilesCreator#withNestedIgnoreFileNames(Set)
+	 */
+	public FilesToTransferHandler withNestedIgnoreFileNames(final Set<String> nestedIgnoreFileNames)
+	{
+		this.nestedIgnoreFileNames = Set.copyOf(nestedIgnoreFileNames);
+		return this;
+	}
+	
 	public FilesToTransferHandler withDockerFileLinesModifier(
 		final DockerFileLineModifier dockerFileLinesModifier)
 	{
@@ -220,5 +736,23 @@ public class FilesToTransferHandler
 		return this;
 	}
 	
+	/**
+	 * Should the created {@link FilesToTransferInfo}s be shared?
+	 * <p>
+	 * If enabled, all image-builders that use this handler with the same base directory, Dockerfile and configuration
+	 * will share the same files (as long as at least one reference to them is not released).
+	 * </p>
+	 * <p>
+	 * Use this when multiple images are built from the same context, e.g. by setting the same handler using
+	 * {@link software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile#withFilesToTransferHandler(
+	 *FilesToTransferHandler)}.
+	 * </p>
+	 */
+	public FilesToTransferHandler withShareCreatedFilesToTransferInfos(final boolean shareCreatedFilesToTransferInfos)
+	{
+		this.shareCreatedFilesToTransferInfos = shareCreatedFilesToTransferInfos;
+		return this;
+	}
+	
 	// endregion
 }
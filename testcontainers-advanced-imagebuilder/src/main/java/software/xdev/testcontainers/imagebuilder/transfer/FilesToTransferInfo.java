@@ -17,16 +17,58 @@ package software.xdev.testcontainers.imagebuilder.transfer;
 
 import java.io.File;
 import java.io.InputStream;
+import java.util.Optional;
 
 
 public interface FilesToTransferInfo extends AutoCloseable
 {
 	File source();
 	
+	/**
+	 * Creates a new stream of the files.
+	 * <p>
+	 * Multiple streams can be read concurrently.
+	 * </p>
+	 */
 	InputStream filesToTransfer();
 	
 	void reportConsumed();
 	
+	/**
+	 * Creates a new independent reference to the same files, e.g. to share them with another image-builder.
+	 * <p>
+	 * The underlying files are only freed up after all references have been released (closed or - if
+	 * <code>immediatelyFreeUpWhenReadFinished</code> is set - consumed).
+	 * </p>
+	 *
+	 * @return the new reference or {@link Optional#empty()} if this is not supported or all references have already
+	 * been released
+	 */
+	default Optional<FilesToTransferInfo> retain(final boolean immediatelyFreeUpWhenReadFinished)
+	{
+		return Optional.empty();
+	}
+	
+	/**
+	 * @return <code>true</code> if all references to the underlying files have been released, so that they can no
+	 * longer be {@link #retain(boolean) retained}
+	 */
+	default boolean isReleased()
+	{
+		return false;
+	}
+	
+	/**
+	 * @return statistics about the creation of the files (if supported)
+	 */
+	default Optional<ContextStatistics> statistics()
+	{
+		return Optional.empty();
+	}
+	
+	/**
+	 * Releases this reference.
+	 */
 	@Override
 	void close();
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+
+
+/**
+ * JVM-wide cache for compiled {@link IgnoreNode}s.
+ * <p>
+ * The nodes are keyed by a hash of the effective ignore lines (pre lines, filtered ignore file lines and post lines),
+ * so that the lines are only parsed again when they changed.
+ * </p>
+ * <p>
+ * This is useful when a lot of image-builders (e.g. created by <code>copyForExactRebuild</code>) use the same ignore
+ * rules.
+ * </p>
+ */
+public class IgnoreNodeCache
+{
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+	
+	private static IgnoreNodeCache instance;
+	
+	public static IgnoreNodeCache instance()
+	{
+		if(instance == null)
+		{
+			init();
+		}
+		return instance;
+	}
+	
+	private static synchronized void init()
+	{
+		if(instance != null)
+		{
+			return;
+		}
+		instance = new IgnoreNodeCache();
+	}
+	
+	public static void setInstance(final IgnoreNodeCache instance)
+	{
+		IgnoreNodeCache.instance = instance;
+	}
+	
+	protected final Map<String, IgnoreNode> cache;
+	
+	public IgnoreNodeCache()
+	{
+		this(DEFAULT_MAX_ENTRIES);
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public IgnoreNodeCache(final int maxEntries)
+	{
+		this.cache = new LinkedHashMap<>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, IgnoreNode> eldest)
+			{
+				return this.size() > maxEntries;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the cached node for the lines or compiles (and caches) it.
+	 *
+	 * @param namespace distinguishes different compilers for the same lines (e.g. the class of the compiler)
+	 * @param lines     the effective ignore lines
+	 * @param compiler  compiles the lines into an {@link IgnoreNode}; must not have side effects on the result
+	 */
+	public <C extends Collection<String>> IgnoreNode get(
+		final String namespace,
+		final C lines,
+		final Function<C, IgnoreNode> compiler)
+	{
+		final String key = key(namespace, lines);
+		synchronized(this.cache)
+		{
+			final IgnoreNode cached = this.cache.get(key);
+			if(cached != null)
+			{
+				return cached;
+			}
+		}
+		
+		// Compile outside of the lock; concurrent compilations of the same lines produce equal nodes
+		final IgnoreNode compiled = compiler.apply(lines);
+		synchronized(this.cache)
+		{
+			return this.cache.computeIfAbsent(key, k -> compiled);
+		}
+	}
+	
+	public int size()
+	{
+		synchronized(this.cache)
+		{
+			return this.cache.size();
+		}
+	}
+	
+	public void clear()
+	{
+		synchronized(this.cache)
+		{
+			this.cache.clear();
+		}
+	}
+	
+	protected static String key(final String namespace, final Collection<String> lines)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(namespace.getBytes(StandardCharsets.UTF_8));
+			for(final String line : lines)
+			{
+				digest.update((byte)0);
+				digest.update(String.valueOf(line).getBytes(StandardCharsets.UTF_8));
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -21,19 +21,29 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.GZIPOutputStream;
 
+import jdk.jfr.EventType;
+
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.CountingOutputStream;
 
+import software.xdev.testcontainers.imagebuilder.jfr.FileContentModifierEvent;
+import software.xdev.testcontainers.imagebuilder.jfr.TarArchiveEvent;
+import software.xdev.testcontainers.imagebuilder.metrics.ImageBuilderMetricsHolder;
+import software.xdev.testcontainers.imagebuilder.temp.TempResourceManager;
 import software.xdev.testcontainers.imagebuilder.transfer.fcm.FileContentModifier;
 
 
@@ -43,6 +53,12 @@ import software.xdev.testcontainers.imagebuilder.transfer.fcm.FileContentModifie
  */
 public class TransferArchiveTARCompressor
 {
+	/**
+	 * Modifiers are invoked for every file -> only create events when they are recorded
+	 */
+	protected static final EventType FILE_CONTENT_MODIFIER_EVENT_TYPE =
+		EventType.getEventType(FileContentModifierEvent.class);
+	
 	protected final List<FileContentModifier> fileContentModifiers = new ArrayList<>();
 	
 	public TransferArchiveTARCompressor withContentModifier(final FileContentModifier modifier)
@@ -54,13 +70,76 @@ public class TransferArchiveTARCompressor
 	public File archiveTARFiles(
 		final Map<Path, String> filesToTransfer,
 		final String archiveNameWithOutExtension)
+	{
+		return this.archiveTARFilesWithStatistics(filesToTransfer, archiveNameWithOutExtension).file();
+	}
+	
+	public ArchivedTAR archiveTARFilesWithStatistics(
+		final Map<Path, String> filesToTransfer,
+		final String archiveNameWithOutExtension)
+	{
+		return this.archiveTARFilesWithStatistics(filesToTransfer, archiveNameWithOutExtension, null);
+	}
+	
+	/**
+	 * @param imageName the name of the image the archive is created for (only used for diagnostics); might be
+	 *                  <code>null</code>
+	 */
+	public ArchivedTAR archiveTARFilesWithStatistics(
+		final Map<Path, String> filesToTransfer,
+		final String archiveNameWithOutExtension,
+		final String imageName)
 	{
 		final File tarFile = new File(FileUtils.getTempDirectoryPath(), archiveNameWithOutExtension + ".tar");
-		tarFile.deleteOnExit();
+		TempResourceManager.instance().register(tarFile);
 		
-		try(final TarArchiveOutputStream tos =
-			new TarArchiveOutputStream(new GZIPOutputStream(new BufferedOutputStream(
-				new FileOutputStream(tarFile)))))
+		try(final OutputStream os = new BufferedOutputStream(new FileOutputStream(tarFile)))
+		{
+			return new ArchivedTAR(tarFile, this.writeTARFiles(filesToTransfer, os, true, imageName));
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	/**
+	 * Writes the files as TAR archive directly into the given stream (e.g. the stdin of a build process).
+	 * <p>
+	 * The stream is not closed.
+	 * </p>
+	 *
+	 * @param gzip if the archive should be compressed. Compression is usually not worth the CPU time when the
+	 *             archive is transferred locally.
+	 */
+	public ContextStatistics.Tar writeTARFiles(
+		final Map<Path, String> filesToTransfer,
+		final OutputStream out,
+		final boolean gzip) throws IOException
+	{
+		return this.writeTARFiles(filesToTransfer, out, gzip, null);
+	}
+	
+	/**
+	 * @param imageName the name of the image the archive is created for (only used for diagnostics); might be
+	 *                  <code>null</code>
+	 * @see #writeTARFiles(Map, OutputStream, boolean)
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	public ContextStatistics.Tar writeTARFiles(
+		final Map<Path, String> filesToTransfer,
+		final OutputStream out,
+		final boolean gzip,
+		final String imageName) throws IOException
+	{
+		final long startNanos = System.nanoTime();
+		final TarArchiveEvent event = new TarArchiveEvent();
+		event.begin();
+		
+		final CountingOutputStream countingOut = new CountingOutputStream(CloseShieldOutputStream.wrap(out));
+		final GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(countingOut, 64 * 1024) : null;
+		final long uncompressedBytes;
+		try(final TarArchiveOutputStream tos = new TarArchiveOutputStream(gzipOut != null ? gzipOut : countingOut))
 		{
 			tos.setLongFileMode(3);
 			tos.setBigNumberMode(2);
@@ -69,13 +148,23 @@ public class TransferArchiveTARCompressor
 			{
 				this.addFileToTar(tos, fileData.getKey(), fileData.getValue());
 			}
+			tos.finish();
+			uncompressedBytes = tos.getBytesWritten();
 		}
-		catch(final IOException ioe)
-		{
-			throw new UncheckedIOException(ioe);
-		}
+		out.flush();
 		
-		return tarFile;
+		event.finish(imageName, filesToTransfer.size(), uncompressedBytes, countingOut.getByteCount(), gzip);
+		final ContextStatistics.Tar statistics = new ContextStatistics.Tar(
+			filesToTransfer.size(),
+			uncompressedBytes,
+			countingOut.getByteCount(),
+			Duration.ofNanos(System.nanoTime() - startNanos));
+		ImageBuilderMetricsHolder.instance().onTarArchived(
+			statistics.entries(),
+			statistics.uncompressedBytes(),
+			statistics.writtenBytes(),
+			statistics.duration());
+		return statistics;
 	}
 	
 	@SuppressWarnings("checkstyle:MagicNumber")
@@ -127,9 +216,12 @@ public class TransferArchiveTARCompressor
 		final TarArchiveEntry tarArchiveEntry)
 		throws IOException
 	{
+		final boolean recordEvents = FILE_CONTENT_MODIFIER_EVENT_TYPE.isEnabled();
 		for(final FileContentModifier fcm : this.fileContentModifiers)
 		{
-			final InputStream is = fcm.apply(sourePath, targetPath, tarArchiveEntry);
+			final InputStream is = recordEvents
+				? this.applyRecorded(fcm, sourePath, targetPath, tarArchiveEntry)
+				: fcm.apply(sourePath, targetPath, tarArchiveEntry);
 			if(is != null)
 			{
 				return is;
@@ -137,4 +229,26 @@ public class TransferArchiveTARCompressor
 		}
 		return new BufferedInputStream(Files.newInputStream(sourePath));
 	}
+	
+	protected InputStream applyRecorded(
+		final FileContentModifier fcm,
+		final Path sourePath,
+		final String targetPath,
+		final TarArchiveEntry tarArchiveEntry)
+		throws IOException
+	{
+		final FileContentModifierEvent event = new FileContentModifierEvent();
+		event.begin();
+		final InputStream is = fcm.apply(sourePath, targetPath, tarArchiveEntry);
+		event.finish(fcm, sourePath, targetPath, is != null);
+		return is;
+	}
+	
+	/**
+	 * @param file       the archive
+	 * @param statistics statistics about writing the archive
+	 */
+	public record ArchivedTAR(File file, ContextStatistics.Tar statistics)
+	{
+	}
 }
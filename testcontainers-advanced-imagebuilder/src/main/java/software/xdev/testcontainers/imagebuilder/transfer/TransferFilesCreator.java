@@ -17,6 +17,7 @@ package software.xdev.testcontainers.imagebuilder.transfer;
 
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -34,4 +35,13 @@ public interface TransferFilesCreator
 		Map<Path, String> filesToTransfer,
 		TransferArchiveTARCompressor transferArchiveTARCompressor,
 		boolean immediatelyFreeUpWhenReadFinished);
+	
+	/**
+	 * @return statistics of the last {@link #determineFilesToTransfer(Set, Predicate, Set, Set, boolean)} invocation
+	 * (if supported)
+	 */
+	default Optional<ContextStatistics.Walk> lastWalkStatistics()
+	{
+		return Optional.empty();
+	}
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.explain;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.FastIgnoreRule;
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+
+
+/**
+ * Explains which files of a build context are transferred and why.
+ * <p>
+ * The files are evaluated in the same way as by
+ * {@link software.xdev.testcontainers.imagebuilder.transfer.DefaultTransferFilesCreator} while walking the file tree,
+ * so that no list of all files is kept in memory. Only the aggregates per directory and the largest files are
+ * retained.
+ * </p>
+ * <p>
+ * If there are no negated rules, excluded directories are not walked, as nothing inside them can be included.
+ * </p>
+ */
+public class ContextExplainer
+{
+	public static final int DEFAULT_LARGEST_FILES = 20;
+	
+	protected final Path baseDir;
+	protected final IgnoreNode ignoreNode;
+	protected final Set<String> alwaysIncludedRelativePaths;
+	protected int largestFilesCount = DEFAULT_LARGEST_FILES;
+	
+	public ContextExplainer(
+		final Path baseDir,
+		final IgnoreNode ignoreNode,
+		final Set<String> alwaysIncludedRelativePaths)
+	{
+		this.baseDir = Objects.requireNonNull(baseDir);
+		this.ignoreNode = Objects.requireNonNull(ignoreNode);
+		this.alwaysIncludedRelativePaths = Set.copyOf(alwaysIncludedRelativePaths);
+	}
+	
+	/**
+	 * @param largestFilesCount the number of largest (included) files that should be reported
+	 */
+	public ContextExplainer withLargestFilesCount(final int largestFilesCount)
+	{
+		this.largestFilesCount = largestFilesCount;
+		return this;
+	}
+	
+	public ContextExplanation explain() throws IOException
+	{
+		final ExplainingFileVisitor visitor = new ExplainingFileVisitor(
+			this.ignoreNode.getRules().stream().noneMatch(FastIgnoreRule::getNegation));
+		Files.walkFileTree(this.baseDir, visitor);
+		return visitor.createExplanation();
+	}
+	
+	/**
+	 * @return the (own) decision for the path or <code>null</code> if undetermined
+	 */
+	protected Decision decide(final String relativePath, final boolean isDirectory)
+	{
+		if(this.alwaysIncludedRelativePaths.contains(relativePath))
+		{
+			return Decision.INCLUDED;
+		}
+		final FastIgnoreRule rule = this.ignoreNode.findMatchingRule(relativePath, isDirectory);
+		return rule != null ? new Decision(!rule.getResult(), rule) : null;
+	}
+	
+	protected boolean containsAlwaysIncludedPath(final String relativeDirectoryPath)
+	{
+		final String prefix = relativeDirectoryPath + "/";
+		return this.alwaysIncludedRelativePaths.stream().anyMatch(p -> p.startsWith(prefix));
+	}
+	
+	/**
+	 * @param included if the path is included
+	 * @param rule     the deciding rule; <code>null</code> if no rule was responsible
+	 */
+	protected record Decision(boolean included, FastIgnoreRule rule)
+	{
+		protected static final Decision INCLUDED = new Decision(true, null);
+	}
+	
+	protected record Frame(String relativePath, ContextExplanation.DirectoryNode node, Decision inherited)
+	{
+		protected String resolve(final Path path)
+		{
+			final String name = path.getFileName().toString();
+			return this.relativePath.isEmpty() ? name : this.relativePath + "/" + name;
+		}
+	}
+	
+	protected class ExplainingFileVisitor extends SimpleFileVisitor<Path>
+	{
+		protected final boolean skipExcludedDirectories;
+		protected final Deque<Frame> frames = new ArrayDeque<>();
+		protected final PriorityQueue<ContextExplanation.FileEntry> largestFiles =
+			new PriorityQueue<>(Comparator.comparingLong(ContextExplanation.FileEntry::size));
+		protected final List<ContextExplanation.ExcludedDirectory> excludedDirectories = new ArrayList<>();
+		protected ContextExplanation.DirectoryNode root;
+		protected int excludedFiles;
+		protected long excludedBytes;
+		protected int skippedDirectories;
+		
+		protected ExplainingFileVisitor(final boolean skipExcludedDirectories)
+		{
+			this.skipExcludedDirectories = skipExcludedDirectories;
+		}
+		
+		@Override
+		public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+		{
+			final Frame parent = this.frames.peek();
+			if(parent == null)
+			{
+				this.root = new ContextExplanation.DirectoryNode("", null);
+				this.frames.push(new Frame("", this.root, Decision.INCLUDED));
+				return FileVisitResult.CONTINUE;
+			}
+			
+			final String relativePath = parent.resolve(dir);
+			final Decision own = ContextExplainer.this.decide(relativePath, true);
+			
+			String excludedBy = null;
+			if(own != null && !own.included())
+			{
+				excludedBy = own.rule().toString();
+				this.excludedDirectories.add(new ContextExplanation.ExcludedDirectory(relativePath, excludedBy));
+			}
+			
+			final ContextExplanation.DirectoryNode node = new ContextExplanation.DirectoryNode(
+				dir.getFileName().toString(),
+				excludedBy);
+			parent.node().addChild(node);
+			
+			if(excludedBy != null
+				&& this.skipExcludedDirectories
+				&& !ContextExplainer.this.containsAlwaysIncludedPath(relativePath))
+			{
+				this.skippedDirectories++;
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+			
+			this.frames.push(new Frame(relativePath, node, own != null ? own : parent.inherited()));
+			return FileVisitResult.CONTINUE;
+		}
+		
+		@Override
+		public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs)
+		{
+			// Only regular files are transferred
+			if(!attrs.isRegularFile())
+			{
+				return FileVisitResult.CONTINUE;
+			}
+			
+			final Frame frame = this.frames.element();
+			final String relativePath = frame.resolve(file);
+			final Decision own = ContextExplainer.this.decide(relativePath, false);
+			final boolean included = own != null ? own.included() : frame.inherited().included();
+			
+			final long size = attrs.size();
+			if(included)
+			{
+				frame.node().addFile(size);
+				this.offerLargestFile(new ContextExplanation.FileEntry(relativePath, size));
+			}
+			else
+			{
+				this.excludedFiles++;
+				this.excludedBytes += size;
+			}
+			return FileVisitResult.CONTINUE;
+		}
+		
+		protected void offerLargestFile(final ContextExplanation.FileEntry entry)
+		{
+			if(ContextExplainer.this.largestFilesCount <= 0)
+			{
+				return;
+			}
+			this.largestFiles.add(entry);
+			if(this.largestFiles.size() > ContextExplainer.this.largestFilesCount)
+			{
+				this.largestFiles.poll();
+			}
+		}
+		
+		@Override
+		public FileVisitResult visitFileFailed(final Path file, final IOException exc)
+		{
+			// Unreadable files are also not transferred
+			return FileVisitResult.CONTINUE;
+		}
+		
+		@Override
+		public FileVisitResult postVisitDirectory(final Path dir, final IOException exc)
+		{
+			final Frame frame = this.frames.pop();
+			final Frame parent = this.frames.peek();
+			if(parent != null)
+			{
+				parent.node().addTotals(frame.node());
+			}
+			return FileVisitResult.CONTINUE;
+		}
+		
+		protected ContextExplanation createExplanation()
+		{
+			final List<ContextExplanation.FileEntry> largest = new ArrayList<>(this.largestFiles);
+			largest.sort(Comparator.comparingLong(ContextExplanation.FileEntry::size).reversed()
+				.thenComparing(ContextExplanation.FileEntry::relativePath));
+			return new ContextExplanation(
+				ContextExplainer.this.baseDir,
+				this.root,
+				largest,
+				this.excludedDirectories,
+				this.excludedFiles,
+				this.excludedBytes,
+				this.skippedDirectories);
+		}
+	}
+}
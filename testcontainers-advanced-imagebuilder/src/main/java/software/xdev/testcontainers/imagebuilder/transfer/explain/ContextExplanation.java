@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.explain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import software.xdev.testcontainers.imagebuilder.json.SimpleJson;
+
+
+/**
+ * Result of {@link ContextExplainer#explain()}.
+ *
+ * @param baseDir             the base directory of the context
+ * @param root                aggregates of the included files per directory
+ * @param largestFiles        the largest included files (largest first)
+ * @param excludedDirectories directories that are excluded by their own ignore rule
+ * @param excludedFiles       number of excluded files that were walked
+ * @param excludedBytes       size of the excluded files that were walked
+ * @param skippedDirectories  number of excluded directories that were not walked
+ */
+public record ContextExplanation(
+	Path baseDir,
+	DirectoryNode root,
+	List<FileEntry> largestFiles,
+	List<ExcludedDirectory> excludedDirectories,
+	int excludedFiles,
+	long excludedBytes,
+	int skippedDirectories)
+{
+	public static final int DEFAULT_TREE_DEPTH = 3;
+	
+	public int includedFiles()
+	{
+		return this.root.files();
+	}
+	
+	public long includedBytes()
+	{
+		return this.root.bytes();
+	}
+	
+	public String formatTree()
+	{
+		return this.formatTree(DEFAULT_TREE_DEPTH);
+	}
+	
+	/**
+	 * @param maxDepth directories below this depth are not shown (but still included in the aggregates)
+	 * @return a human readable tree of the directories (largest first) followed by the largest files
+	 */
+	public String formatTree(final int maxDepth)
+	{
+		final StringBuilder sb = new StringBuilder()
+			.append("Context ").append(this.baseDir).append(": ")
+			.append(this.includedFiles()).append(" files, ")
+			.append(FileUtils.byteCountToDisplaySize(this.includedBytes())).append(" included; ")
+			.append(this.excludedFiles).append(" files, ")
+			.append(FileUtils.byteCountToDisplaySize(this.excludedBytes)).append(" excluded; ")
+			.append(this.skippedDirectories).append(" excluded directories not walked");
+		for(final DirectoryNode child : this.root.sortedChildren())
+		{
+			this.formatNode(child, 1, maxDepth, sb);
+		}
+		if(!this.largestFiles.isEmpty())
+		{
+			sb.append("\nLargest files:");
+			this.largestFiles.forEach(f -> sb.append("\n  ")
+				.append(FileUtils.byteCountToDisplaySize(f.size()))
+				.append("  ")
+				.append(f.relativePath()));
+		}
+		return sb.toString();
+	}
+	
+	protected void formatNode(
+		final DirectoryNode node,
+		final int depth,
+		final int maxDepth,
+		final StringBuilder sb)
+	{
+		sb.append('\n').append("  ".repeat(depth)).append(node.name()).append('/');
+		if(node.excludedBy() != null)
+		{
+			sb.append(" [excluded by '").append(node.excludedBy()).append("']");
+		}
+		if(node.files() > 0 || node.excludedBy() == null)
+		{
+			sb.append(' ').append(node.files()).append(" files, ")
+				.append(FileUtils.byteCountToDisplaySize(node.bytes()));
+		}
+		if(depth < maxDepth)
+		{
+			for(final DirectoryNode child : node.sortedChildren())
+			{
+				this.formatNode(child, depth + 1, maxDepth, sb);
+			}
+		}
+	}
+	
+	public Map<String, Object> toJsonObject()
+	{
+		final Map<String, Object> json = new LinkedHashMap<>();
+		json.put("baseDir", this.baseDir.toString());
+		json.put("includedFiles", this.includedFiles());
+		json.put("includedBytes", this.includedBytes());
+		json.put("excludedFiles", this.excludedFiles);
+		json.put("excludedBytes", this.excludedBytes);
+		json.put("skippedDirectories", this.skippedDirectories);
+		json.put("largestFiles", this.largestFiles.stream()
+			.map(f -> Map.of("path", f.relativePath(), "size", f.size()))
+			.toList());
+		json.put("excludedDirectories", this.excludedDirectories.stream()
+			.map(d -> Map.of("path", d.relativePath(), "rule", d.rule()))
+			.toList());
+		json.put("tree", this.root.toJsonObject());
+		return json;
+	}
+	
+	public String toJson()
+	{
+		return SimpleJson.write(this.toJsonObject());
+	}
+	
+	public void writeJson(final Path file) throws IOException
+	{
+		Files.writeString(file, this.toJson());
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.formatTree();
+	}
+	
+	public record FileEntry(String relativePath, long size)
+	{
+	}
+	
+	/**
+	 * @param relativePath the path of the directory
+	 * @param rule         the rule that excluded the directory
+	 */
+	public record ExcludedDirectory(String relativePath, String rule)
+	{
+	}
+	
+	/**
+	 * Aggregates the included files of a directory (including its subdirectories).
+	 */
+	public static class DirectoryNode
+	{
+		protected final String name;
+		protected final String excludedBy;
+		protected final List<DirectoryNode> children = new ArrayList<>();
+		protected int files;
+		protected long bytes;
+		
+		public DirectoryNode(final String name, final String excludedBy)
+		{
+			this.name = name;
+			this.excludedBy = excludedBy;
+		}
+		
+		protected void addFile(final long size)
+		{
+			this.files++;
+			this.bytes += size;
+		}
+		
+		protected void addChild(final DirectoryNode child)
+		{
+			this.children.add(child);
+		}
+		
+		protected void addTotals(final DirectoryNode child)
+		{
+			this.files += child.files;
+			this.bytes += child.bytes;
+		}
+		
+		public String name()
+		{
+			return this.name;
+		}
+		
+		/**
+		 * @return the rule that excluded this directory; <code>null</code> if not excluded by an own rule
+		 */
+		public String excludedBy()
+		{
+			return this.excludedBy;
+		}
+		
+		public List<DirectoryNode> children()
+		{
+			return Collections.unmodifiableList(this.children);
+		}
+		
+		/**
+		 * @return the children (largest first)
+		 */
+		public List<DirectoryNode> sortedChildren()
+		{
+			final List<DirectoryNode> sorted = new ArrayList<>(this.children);
+			sorted.sort(Comparator.comparingLong(DirectoryNode::bytes).reversed()
+				.thenComparing(DirectoryNode::name));
+			return sorted;
+		}
+		
+		public int files()
+		{
+			return this.files;
+		}
+		
+		public long bytes()
+		{
+			return this.bytes;
+		}
+		
+		protected Map<String, Object> toJsonObject()
+		{
+			final Map<String, Object> json = new LinkedHashMap<>();
+			json.put("name", this.name);
+			json.put("files", this.files);
+			json.put("bytes", this.bytes);
+			if(this.excludedBy != null)
+			{
+				json.put("excludedBy", this.excludedBy);
+			}
+			if(!this.children.isEmpty())
+			{
+				json.put("children", this.sortedChildren().stream().map(DirectoryNode::toJsonObject).toList());
+			}
+			return json;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.manifest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import software.xdev.testcontainers.imagebuilder.compat.DockerfileCOPYParentsEmulator;
+import software.xdev.testcontainers.imagebuilder.json.SimpleJson;
+
+
+/**
+ * Maps changed files of a build context to the <code>COPY</code>/<code>ADD</code> instructions of a Dockerfile whose
+ * layer cache they invalidate.
+ * <p>
+ * Inside a stage all following instructions are also rebuilt, so the first invalidated instruction of each stage is
+ * the actual &quot;cache buster&quot;.
+ * </p>
+ * <p>
+ * Only instructions that copy from the build context are considered (e.g. not <code>COPY --from=...</code>).
+ * </p>
+ */
+public class CacheBusterAnalyzer
+{
+	protected static final Pattern FROM_PATTERN =
+		Pattern.compile("^FROM\\s+.*?(?:\\s+AS\\s+(?<as>\\S+))?\\s*$", Pattern.CASE_INSENSITIVE);
+	protected static final Set<String> COPY_INSTRUCTIONS = Set.of("COPY", "ADD");
+	protected static final int MAX_PATHS_IN_TO_STRING = 5;
+	
+	protected final List<CopyInstruction> instructions;
+	
+	public CacheBusterAnalyzer(final Path dockerFile) throws IOException
+	{
+		this(Files.readAllLines(dockerFile));
+	}
+	
+	public CacheBusterAnalyzer(final List<String> dockerFileLines)
+	{
+		this.instructions = parse(dockerFileLines);
+	}
+	
+	public List<CopyInstruction> getInstructions()
+	{
+		return this.instructions;
+	}
+	
+	/**
+	 * @return the instructions that are affected by the changes (in the order of the Dockerfile)
+	 */
+	public List<InvalidatedInstruction> analyze(final ContextManifestDiff diff)
+	{
+		return this.analyze(diff.changedPaths());
+	}
+	
+	public List<InvalidatedInstruction> analyze(final Collection<String> changedPaths)
+	{
+		final List<InvalidatedInstruction> invalidated = new ArrayList<>();
+		for(final CopyInstruction instruction : this.instructions)
+		{
+			final List<String> matchingPaths = changedPaths.stream()
+				.filter(instruction::copies)
+				.toList();
+			if(!matchingPaths.isEmpty())
+			{
+				invalidated.add(new InvalidatedInstruction(instruction, matchingPaths));
+			}
+		}
+		return invalidated;
+	}
+	
+	protected static List<CopyInstruction> parse(final List<String> lines)
+	{
+		final List<CopyInstruction> instructions = new ArrayList<>();
+		String stage = null;
+		final StringBuilder current = new StringBuilder();
+		int startLine = -1;
+		for(int i = 0; i < lines.size(); i++)
+		{
+			final String line = lines.get(i).strip();
+			if(current.isEmpty() && (line.isEmpty() || line.startsWith("#")))
+			{
+				continue;
+			}
+			if(current.isEmpty())
+			{
+				startLine = i + 1;
+			}
+			if(line.endsWith("\\"))
+			{
+				current.append(line, 0, line.length() - 1).append(' ');
+				continue;
+			}
+			current.append(line);
+			
+			final String instruction = current.toString().strip();
+			current.setLength(0);
+			
+			final Matcher fromMatcher = FROM_PATTERN.matcher(instruction);
+			if(fromMatcher.matches())
+			{
+				stage = fromMatcher.group("as");
+				continue;
+			}
+			
+			final CopyInstruction copyInstruction = parseCopyInstruction(startLine, stage, instruction);
+			if(copyInstruction != null)
+			{
+				instructions.add(copyInstruction);
+			}
+		}
+		return instructions;
+	}
+	
+	protected static CopyInstruction parseCopyInstruction(
+		final int lineNumber,
+		final String stage,
+		final String instruction)
+	{
+		final String[] keywordAndArgs = instruction.split("\\s+", 2);
+		if(keywordAndArgs.length < 2 || !COPY_INSTRUCTIONS.contains(keywordAndArgs[0].toUpperCase(Locale.ROOT)))
+		{
+			return null;
+		}
+		
+		final List<String> flags = new ArrayList<>();
+		String args = keywordAndArgs[1].strip();
+		while(args.startsWith("--"))
+		{
+			final String[] flagAndRest = args.split("\\s+", 2);
+			flags.add(flagAndRest[0]);
+			args = flagAndRest.length > 1 ? flagAndRest[1].strip() : "";
+		}
+		if(flags.stream().anyMatch(f -> f.startsWith("--from")) || args.startsWith("<<"))
+		{
+			// Not copied from the build context
+			return null;
+		}
+		
+		final List<String> sourcesAndTarget = parseArgs(args);
+		if(sourcesAndTarget.size() < 2)
+		{
+			return null;
+		}
+		final List<CopySource> sources = sourcesAndTarget.subList(0, sourcesAndTarget.size() - 1)
+			.stream()
+			.filter(s -> !s.contains("://") && !s.startsWith("git@"))
+			.map(CopySource::new)
+			.toList();
+		return !sources.isEmpty() ? new CopyInstruction(lineNumber, stage, instruction, sources) : null;
+	}
+	
+	protected static List<String> parseArgs(final String args)
+	{
+		if(args.startsWith("["))
+		{
+			try
+			{
+				return ((List<?>)SimpleJson.parse(args)).stream().map(String::valueOf).toList();
+			}
+			catch(final RuntimeException ex)
+			{
+				// Not valid JSON -> Handle it like the shell form
+			}
+		}
+		return Arrays.asList(args.split("\\s+"));
+	}
+	
+	/**
+	 * @param lineNumber  the (first) line of the instruction inside the Dockerfile
+	 * @param stage       the name of the stage; <code>null</code> if the stage has no name
+	 * @param instruction the instruction (continued lines are joined)
+	 */
+	public record CopyInstruction(int lineNumber, String stage, String instruction, List<CopySource> sources)
+	{
+		public boolean copies(final String relativePath)
+		{
+			return this.sources.stream().anyMatch(s -> s.copies(relativePath));
+		}
+	}
+	
+	public static class CopySource
+	{
+		protected final String source;
+		protected final DockerfileCOPYParentsEmulator.GlobMatcher globMatcher;
+		
+		public CopySource(final String source)
+		{
+			String normalized = source;
+			while(normalized.startsWith("./"))
+			{
+				normalized = normalized.substring(2);
+			}
+			while(normalized.startsWith("/"))
+			{
+				normalized = normalized.substring(1);
+			}
+			while(normalized.endsWith("/"))
+			{
+				normalized = normalized.substring(0, normalized.length() - 1);
+			}
+			this.source = ".".equals(normalized) ? "" : normalized;
+			this.globMatcher = this.source.chars().anyMatch(c -> c == '*' || c == '?' || c == '[')
+				? new DockerfileCOPYParentsEmulator.GlobMatcher(this.source)
+				: null;
+		}
+		
+		/**
+		 * @return if the file is copied by this source - either directly or as part of a copied directory
+		 */
+		public boolean copies(final String relativePath)
+		{
+			if(this.source.isEmpty())
+			{
+				return true;
+			}
+			if(this.globMatcher == null)
+			{
+				return relativePath.equals(this.source) || relativePath.startsWith(this.source + "/");
+			}
+			// A glob can also match a directory which is then copied as a whole
+			for(String path = relativePath; path != null; path = parent(path))
+			{
+				if(this.globMatcher.matches(path))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		protected static String parent(final String path)
+		{
+			final int index = path.lastIndexOf('/');
+			return index != -1 ? path.substring(0, index) : null;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return this.source;
+		}
+	}
+	
+	/**
+	 * @param instruction  the invalidated instruction
+	 * @param changedPaths the changed paths that are copied by the instruction
+	 */
+	public record InvalidatedInstruction(CopyInstruction instruction, List<String> changedPaths)
+	{
+		@Override
+		public String toString()
+		{
+			return "line " + this.instruction.lineNumber()
+				+ (this.instruction.stage() != null ? " (stage " + this.instruction.stage() + ")" : "")
+				+ ": '" + this.instruction.instruction() + "' <- " + this.changedPaths.size() + " changed file(s) "
+				+ this.changedPaths.stream().limit(MAX_PATHS_IN_TO_STRING).toList();
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.manifest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+
+/**
+ * Describes the files of a build context (path, size, content hash and mode).
+ * <p>
+ * Manifests of consecutive builds can be compared using {@link #diff(ContextManifest)} to find out which files
+ * changed and thereby which Dockerfile instructions can't use the build cache anymore (see
+ * {@link CacheBusterAnalyzer}).
+ * </p>
+ * <p>
+ * The manifest is persisted as a simple tab separated text file.
+ * </p>
+ *
+ * @param entries the entries by relative path (sorted)
+ */
+public record ContextManifest(Map<String, Entry> entries)
+{
+	protected static final String HEADER = "# tcaib-context-manifest v1";
+	protected static final int BUFFER_SIZE = 64 * 1024;
+	
+	public ContextManifest
+	{
+		entries = Collections.unmodifiableMap(new TreeMap<>(entries));
+	}
+	
+	/**
+	 * Creates the manifest for the given files.
+	 *
+	 * @param filesToTransfer the files (absolute path to relative path) that are transferred
+	 * @param previous        a previous manifest; the content hashes of files whose size and modification time
+	 *                        didn't change are reused from it; may be <code>null</code>
+	 */
+	public static ContextManifest create(final Map<Path, String> filesToTransfer, final ContextManifest previous)
+	{
+		final Map<String, Entry> previousEntries = previous != null ? previous.entries() : Map.of();
+		return new ContextManifest(filesToTransfer.entrySet()
+			.stream()
+			.parallel()
+			.map(e -> createEntry(e.getKey(), e.getValue(), previousEntries.get(e.getValue())))
+			.filter(Objects::nonNull)
+			.collect(Collectors.toMap(Entry::relativePath, en -> en)));
+	}
+	
+	protected static Entry createEntry(final Path file, final String relativePath, final Entry previous)
+	{
+		try
+		{
+			final BasicFileAttributes attrs =
+				Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			if(!attrs.isRegularFile())
+			{
+				// Directories (e.g. created by COPY --parents emulation) have no content
+				return null;
+			}
+			final long lastModified = attrs.lastModifiedTime().toMillis();
+			final String hash = previous != null
+				&& previous.size() == attrs.size()
+				&& previous.lastModified() == lastModified
+				? previous.hash()
+				: hash(file);
+			return new Entry(relativePath, attrs.size(), hash, mode(file), lastModified);
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	protected static String hash(final Path file) throws IOException
+	{
+		try(final InputStream is = Files.newInputStream(file))
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while((read = is.read(buffer)) != -1)
+			{
+				digest.update(buffer, 0, read);
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		}
+		catch(final NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * @return the (octal) file mode; if POSIX permissions are not supported only the executable bit is considered
+	 * - like when creating the TAR archive
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected static int mode(final Path file) throws IOException
+	{
+		final PosixFileAttributeView view = Files.getFileAttributeView(file, PosixFileAttributeView.class);
+		if(view == null)
+		{
+			return file.toFile().canExecute() ? 0755 : 0644;
+		}
+		final Set<PosixFilePermission> permissions = view.readAttributes().permissions();
+		int mode = 0;
+		for(final PosixFilePermission permission : PosixFilePermission.values())
+		{
+			mode <<= 1;
+			if(permissions.contains(permission))
+			{
+				mode |= 1;
+			}
+		}
+		return mode;
+	}
+	
+	public ContextManifestDiff diff(final ContextManifest previous)
+	{
+		return ContextManifestDiff.between(previous, this);
+	}
+	
+	public void write(final Path file) throws IOException
+	{
+		final Path parent = file.toAbsolutePath().getParent();
+		if(parent != null)
+		{
+			Files.createDirectories(parent);
+		}
+		try(final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+		{
+			writer.write(HEADER);
+			writer.newLine();
+			for(final Entry entry : this.entries.values())
+			{
+				writer.write(entry.toLine());
+				writer.newLine();
+			}
+		}
+	}
+	
+	public static ContextManifest read(final Path file) throws IOException
+	{
+		final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		if(lines.isEmpty() || !HEADER.equals(lines.get(0)))
+		{
+			throw new IOException("Not a context manifest: " + file);
+		}
+		final List<Entry> entries = new ArrayList<>(lines.size() - 1);
+		for(final String line : lines.subList(1, lines.size()))
+		{
+			if(!line.isEmpty())
+			{
+				entries.add(Entry.fromLine(line));
+			}
+		}
+		return new ContextManifest(entries.stream().collect(Collectors.toMap(Entry::relativePath, e -> e)));
+	}
+	
+	/**
+	 * @param relativePath the path inside the build context
+	 * @param size         the size in bytes
+	 * @param hash         the SHA-256 of the content
+	 * @param mode         the (octal) file mode
+	 * @param lastModified the modification time in millis; only used for reusing the hash
+	 */
+	public record Entry(String relativePath, long size, String hash, int mode, long lastModified)
+	{
+		@SuppressWarnings("checkstyle:MagicNumber")
+		protected static Entry fromLine(final String line)
+		{
+			final String[] parts = line.split("\t", 5);
+			if(parts.length != 5)
+			{
+				throw new IllegalArgumentException("Invalid manifest line: " + line);
+			}
+			return new Entry(
+				parts[4],
+				Long.parseLong(parts[1]),
+				parts[2],
+				Integer.parseInt(parts[0], 8),
+				Long.parseLong(parts[3]));
+		}
+		
+		protected String toLine()
+		{
+			return Integer.toOctalString(this.mode) + '\t'
+				+ this.size + '\t'
+				+ this.hash + '\t'
+				+ this.lastModified + '\t'
+				+ this.relativePath;
+		}
+		
+		/**
+		 * @return if the content or mode differs (the modification time is not relevant for the build cache)
+		 */
+		public boolean differsFrom(final Entry other)
+		{
+			return this.size != other.size
+				|| this.mode != other.mode
+				|| !this.hash.equals(other.hash);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.manifest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+
+/**
+ * Difference between two {@link ContextManifest}s.
+ *
+ * @param added    paths that only exist in the current manifest
+ * @param removed  paths that only exist in the previous manifest
+ * @param modified paths whose content or mode changed
+ */
+public record ContextManifestDiff(List<String> added, List<String> removed, List<String> modified)
+{
+	public static ContextManifestDiff between(final ContextManifest previous, final ContextManifest current)
+	{
+		final Map<String, ContextManifest.Entry> previousEntries = previous.entries();
+		final Map<String, ContextManifest.Entry> currentEntries = current.entries();
+		
+		final List<String> added = new ArrayList<>();
+		final List<String> modified = new ArrayList<>();
+		currentEntries.forEach((path, entry) -> {
+			final ContextManifest.Entry previousEntry = previousEntries.get(path);
+			if(previousEntry == null)
+			{
+				added.add(path);
+			}
+			else if(entry.differsFrom(previousEntry))
+			{
+				modified.add(path);
+			}
+		});
+		final List<String> removed = previousEntries.keySet()
+			.stream()
+			.filter(path -> !currentEntries.containsKey(path))
+			.toList();
+		
+		return new ContextManifestDiff(List.copyOf(added), removed, List.copyOf(modified));
+	}
+	
+	public boolean isEmpty()
+	{
+		return this.added.isEmpty() && this.removed.isEmpty() && this.modified.isEmpty();
+	}
+	
+	/**
+	 * @return all added, removed and modified paths (sorted)
+	 */
+	public List<String> changedPaths()
+	{
+		return Stream.of(this.added, this.removed, this.modified)
+			.flatMap(List::stream)
+			.sorted()
+			.toList();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.added.size() + " added, " + this.removed.size() + " removed, " + this.modified.size() + " modified";
+	}
+}
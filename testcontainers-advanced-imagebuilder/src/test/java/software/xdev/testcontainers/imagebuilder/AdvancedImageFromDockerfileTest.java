@@ -17,9 +17,29 @@ package software.xdev.testcontainers.imagebuilder;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import software.xdev.testcontainers.imagebuilder.concurrent.BuildAdmissionController;
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferInfo;
+import software.xdev.testcontainers.imagebuilder.transfer.TransferArchiveTARCompressor;
+import software.xdev.testcontainers.imagebuilder.transfer.TransferFilesCreator;
 
 
 class AdvancedImageFromDockerfileTest extends AbstractBuildTest
@@ -41,4 +61,150 @@ class AdvancedImageFromDockerfileTest extends AbstractBuildTest
 		
 		assertDoesNotThrow(builder::cleanCreatedTransferFilesCache);
 	}
+	
+	@Test
+	void concurrentContextUploadsAreLimited() throws Exception
+	{
+		final BuildAdmissionController controller = new BuildAdmissionController(1, 1, 1);
+		final AtomicLong uploadedBytes = new AtomicLong();
+		
+		final AdvancedImageFromDockerFile.UploadMeasuringInputStream first =
+			new AdvancedImageFromDockerFile.UploadMeasuringInputStream(
+				new ByteArrayInputStream(new byte[10]),
+				controller,
+				(d, b) -> uploadedBytes.addAndGet(b));
+		final AdvancedImageFromDockerFile.UploadMeasuringInputStream second =
+			new AdvancedImageFromDockerFile.UploadMeasuringInputStream(
+				new ByteArrayInputStream(new byte[20]),
+				controller,
+				(d, b) -> uploadedBytes.addAndGet(b));
+		
+		// First upload is admitted on the first read
+		Assertions.assertEquals(0, first.read());
+		
+		final CompletableFuture<byte[]> secondRead = CompletableFuture.supplyAsync(() -> {
+			try(second)
+			{
+				return second.readAllBytes();
+			}
+			catch(final IOException ioe)
+			{
+				throw new IllegalStateException(ioe);
+			}
+		});
+		while(controller.stats(BuildAdmissionController.Operation.UPLOAD).queued() == 0)
+		{
+			Thread.onSpinWait();
+		}
+		Thread.sleep(100);
+		Assertions.assertFalse(secondRead.isDone());
+		
+		// EOF of the first upload frees up the slot
+		Assertions.assertEquals(9, first.readAllBytes().length);
+		Assertions.assertEquals(20, secondRead.get(5, TimeUnit.SECONDS).length);
+		first.close();
+		
+		final BuildAdmissionController.Stats stats = controller.stats(BuildAdmissionController.Operation.UPLOAD);
+		Assertions.assertEquals(2, stats.admitted());
+		Assertions.assertEquals(0, stats.running());
+		Assertions.assertEquals(30, uploadedBytes.get());
+	}
+	
+	@Test
+	void copyForExactRebuildSharesTransferFileCacheOfCustomTransferFilesCreator(@TempDir final Path tempDir)
+		throws IOException
+	{
+		Files.writeString(tempDir.resolve("Dockerfile"), "FROM alpine");
+		final CustomFilesToTransferInfo info = new CustomFilesToTransferInfo();
+		
+		final AdvancedImageFromDockerFile builder = new AdvancedImageFromDockerFile("custom-tfc")
+			.withBaseDir(tempDir)
+			.withDockerFilePath(tempDir.resolve("Dockerfile"))
+			.withCreateTransferFilesCache(true)
+			.configureFilesToTransferHandler(h -> h
+				.withShareCreatedFilesToTransferInfos(false)
+				.withTransferFilesCreatorSupplier((baseDir, ignoreFile) -> new CustomTransferFilesCreator(info)));
+		Assertions.assertSame(info, builder.calcFileTransferInfo(tempDir));
+		
+		final AdvancedImageFromDockerFile copy = builder.copyForExactRebuild("custom-tfc-copy");
+		Assertions.assertSame(info, copy.transferFileCache);
+		Assertions.assertSame(builder.filesToTransferHandler(), copy.filesToTransferHandler());
+		
+		// Shared -> Not released by the copy
+		copy.releaseTransferFileCacheAfterBuild();
+		copy.cleanCreatedTransferFilesCache();
+		Assertions.assertFalse(info.closed.get());
+		
+		// Released -> The copy recomputes the files with the same handler
+		builder.cleanCreatedTransferFilesCache();
+		builder.withTransferFileCache(info);
+		final AdvancedImageFromDockerFile copyOfReleased = builder.copyForExactRebuild("custom-tfc-copy2");
+		Assertions.assertNull(copyOfReleased.transferFileCache);
+		Assertions.assertSame(builder.filesToTransferHandler(), copyOfReleased.filesToTransferHandler());
+	}
+	
+	static class CustomTransferFilesCreator implements TransferFilesCreator
+	{
+		private final FilesToTransferInfo info;
+		
+		CustomTransferFilesCreator(final FilesToTransferInfo info)
+		{
+			this.info = info;
+		}
+		
+		@Override
+		public Map<Path, String> determineFilesToTransfer(
+			final Set<String> preGitIgnoreLines,
+			final Predicate<String> ignoreFileLineFilter,
+			final Set<String> postGitIgnoreLines,
+			final Set<String> alwaysIncludedRelativePaths,
+			final boolean useWinNTFSJunctionFixIfApplicable)
+		{
+			return Map.of();
+		}
+		
+		@Override
+		public FilesToTransferInfo getAllFilesToTransferAsTarInputStreamFactory(
+			final Map<Path, String> filesToTransfer,
+			final TransferArchiveTARCompressor transferArchiveTARCompressor,
+			final boolean immediatelyFreeUpWhenReadFinished)
+		{
+			return this.info;
+		}
+	}
+	
+	static class CustomFilesToTransferInfo implements FilesToTransferInfo
+	{
+		final AtomicBoolean closed = new AtomicBoolean();
+		
+		@Override
+		public File source()
+		{
+			return null;
+		}
+		
+		@Override
+		public InputStream filesToTransfer()
+		{
+			return InputStream.nullInputStream();
+		}
+		
+		@Override
+		public void reportConsumed()
+		{
+			// Nothing to do
+		}
+		
+		@Override
+		public boolean isReleased()
+		{
+			return this.closed.get();
+		}
+		
+		@Override
+		public void close()
+		{
+			this.closed.set(true);
+		}
+	}
 }
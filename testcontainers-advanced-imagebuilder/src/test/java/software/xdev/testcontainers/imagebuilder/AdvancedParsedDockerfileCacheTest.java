@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class AdvancedParsedDockerfileCacheTest
+{
+	@Test
+	void reparsedOnlyWhenChanged(@TempDir final Path tempDir) throws IOException
+	{
+		final Path dockerfile = tempDir.resolve("Dockerfile");
+		Files.writeString(dockerfile, "FROM alpine:3 AS base\nFROM base\n");
+		
+		final AdvancedParsedDockerfileCache cache = new AdvancedParsedDockerfileCache();
+		final AdvancedParsedDockerfile first = cache.get(dockerfile);
+		Assertions.assertEquals(Set.of("alpine:3"), first.getExternalImageNames());
+		Assertions.assertSame(first, cache.get(dockerfile));
+		
+		Files.writeString(dockerfile, "FROM alpine:3.20\n");
+		Files.setLastModifiedTime(dockerfile, FileTime.from(Instant.now().plusSeconds(10)));
+		
+		final AdvancedParsedDockerfile second = cache.get(dockerfile);
+		Assertions.assertNotSame(first, second);
+		Assertions.assertEquals(Set.of("alpine:3.20"), second.getExternalImageNames());
+	}
+}
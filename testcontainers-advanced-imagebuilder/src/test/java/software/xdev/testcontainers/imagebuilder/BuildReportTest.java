@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import software.xdev.testcontainers.imagebuilder.transfer.ContextStatistics;
+
+
+class BuildReportTest
+{
+	@Test
+	void recorderCollectsAllPhases()
+	{
+		final BuildReport report = new BuildReport.Recorder()
+			.context(
+				new ContextStatistics(
+					new ContextStatistics.Walk(10, 7, Duration.ofMillis(5), Duration.ofMillis(3)),
+					new ContextStatistics.Tar(8, 4096, 1024, Duration.ofMillis(20))),
+				false)
+			.pull("a:1", Duration.ofMillis(100))
+			.pull("b:2", Duration.ofMillis(50))
+			.upload(Duration.ofMillis(30), 1024)
+			.build(Duration.ofSeconds(2))
+			.steps(4, 3)
+			.finish("my-image");
+		
+		Assertions.assertEquals("my-image", report.imageName());
+		Assertions.assertFalse(report.contextReused());
+		Assertions.assertEquals(3, report.optContext().orElseThrow().walk().ignoredFiles());
+		Assertions.assertEquals(Duration.ofMillis(150), report.totalPullDuration());
+		Assertions.assertEquals(0.75, report.cacheHitRatio(), 0.0001);
+		Assertions.assertThrows(
+			UnsupportedOperationException.class,
+			() -> report.pullDurations().put("c:3", Duration.ZERO));
+		
+		final String formatted = report.format();
+		Assertions.assertTrue(formatted.startsWith("Build of image[name='my-image']"), formatted);
+		Assertions.assertTrue(formatted.contains("7 transferred / 3 ignored files"), formatted);
+		Assertions.assertTrue(formatted.contains("Pull:   100ms a:1"), formatted);
+		Assertions.assertTrue(formatted.contains("Upload: 30ms, 1 KB"), formatted);
+		Assertions.assertTrue(formatted.contains("2000ms, 4 steps, cache hit ratio 75%"), formatted);
+	}
+	
+	@Test
+	void emptyRecorderHasUnknownPhases()
+	{
+		final BuildReport report = new BuildReport.Recorder().context(null, true).finish("img");
+		
+		Assertions.assertTrue(report.optContext().isEmpty());
+		Assertions.assertTrue(report.contextReused());
+		Assertions.assertEquals(-1, report.uploadedBytes());
+		Assertions.assertNull(report.buildDuration());
+		Assertions.assertEquals(0, report.cacheHitRatio());
+		Assertions.assertEquals(Duration.ZERO, report.totalPullDuration());
+		Assertions.assertTrue(report.format().contains("Context: reused"));
+	}
+}
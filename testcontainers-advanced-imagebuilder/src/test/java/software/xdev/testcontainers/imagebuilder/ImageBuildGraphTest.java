@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ImageBuildGraphTest
+{
+	@Test
+	void buildsInDependencyOrder(@TempDir final Path tempDir) throws IOException
+	{
+		final Queue<String> builtImages = new ConcurrentLinkedQueue<>();
+		final ImageBuildGraph graph = new ImageBuildGraph()
+			.withParallelism(2)
+			.withImage(image(tempDir, "test-a", "FROM app\n", builtImages))
+			.withImage(image(tempDir, "app", "FROM base:1\n", builtImages))
+			.withImage(image(tempDir, "base:1", "FROM alpine:3\n", builtImages))
+			.withImage(image(tempDir, "test-b", "FROM app:latest\n", builtImages));
+		
+		final List<String> result = graph.build();
+		
+		Assertions.assertEquals(List.of("base:1", "app"), List.copyOf(builtImages).subList(0, 2));
+		Assertions.assertEquals(List.of("base:1", "app"), result.subList(0, 2));
+		// The test images are built concurrently -> order is not defined
+		Assertions.assertEquals(Set.of("test-a", "test-b"), Set.copyOf(result.subList(2, 4)));
+		Assertions.assertEquals(4, result.size());
+	}
+	
+	@Test
+	void failsOnCycle(@TempDir final Path tempDir) throws IOException
+	{
+		final Queue<String> builtImages = new ConcurrentLinkedQueue<>();
+		final ImageBuildGraph graph = new ImageBuildGraph()
+			.withImage(image(tempDir, "a", "FROM b\n", builtImages))
+			.withImage(image(tempDir, "b", "FROM a\n", builtImages));
+		
+		Assertions.assertThrows(IllegalStateException.class, graph::build);
+		Assertions.assertTrue(builtImages.isEmpty());
+	}
+	
+	static RecordingImage image(
+		final Path tempDir,
+		final String imageName,
+		final String dockerfileContent,
+		final Queue<String> builtImages) throws IOException
+	{
+		final Path dir = Files.createDirectories(tempDir.resolve(imageName.replace(':', '_')));
+		Files.writeString(dir.resolve("Dockerfile"), dockerfileContent);
+		return new RecordingImage(imageName, builtImages).withBaseDir(dir);
+	}
+	
+	static class RecordingImage extends AbstractImageFromDockerfile<RecordingImage>
+	{
+		private final Queue<String> builtImages;
+		
+		RecordingImage(final String dockerImageName, final Queue<String> builtImages)
+		{
+			super(dockerImageName, false);
+			this.builtImages = builtImages;
+		}
+		
+		@Override
+		protected String resolve()
+		{
+			this.builtImages.add(this.dockerImageName);
+			return this.dockerImageName;
+		}
+		
+		@Override
+		public RecordingImage copyForExactRebuild(final String dockerImageName)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
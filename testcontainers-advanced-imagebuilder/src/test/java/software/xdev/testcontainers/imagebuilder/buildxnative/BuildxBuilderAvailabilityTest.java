@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class BuildxBuilderAvailabilityTest
+{
+	@Test
+	void failuresAreOnlyCachedForTtl()
+	{
+		final AtomicInteger checks = new AtomicInteger();
+		final AtomicBoolean available = new AtomicBoolean();
+		final BuildxBuilderAvailability availability = new BuildxBuilderAvailability()
+		{
+			@Override
+			protected boolean check(final List<String> command)
+			{
+				checks.incrementAndGet();
+				return available.get();
+			}
+		}.withFailureTtl(Duration.ofHours(1));
+		
+		final List<String> inspect = List.of("inspect");
+		Assertions.assertFalse(availability.isAvailable(inspect, "b"));
+		Assertions.assertFalse(availability.isAvailable(inspect, "b"));
+		Assertions.assertEquals(1, checks.get());
+		
+		// Expired failure -> checked again
+		availability.withFailureTtl(Duration.ZERO);
+		available.set(true);
+		Assertions.assertTrue(availability.isAvailable(inspect, "b"));
+		Assertions.assertEquals(2, checks.get());
+		
+		// Successes are cached
+		Assertions.assertTrue(availability.isAvailable(inspect, "b"));
+		Assertions.assertEquals(2, checks.get());
+	}
+}
@@ -17,14 +17,28 @@ package software.xdev.testcontainers.imagebuilder.buildxnative;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 
 import software.xdev.testcontainers.imagebuilder.AbstractBuildTest;
+import software.xdev.testcontainers.imagebuilder.BuildTarget;
 
 
 class NativeAdvancedImageFromDockerfileTest extends AbstractBuildTest
@@ -62,4 +76,101 @@ class NativeAdvancedImageFromDockerfileTest extends AbstractBuildTest
 		
 		assertDoesNotThrow(() -> builder.build(Duration.ofMinutes(5)));
 	}
+	
+	@Test
+	void additionalArgsAreMappedForBake()
+	{
+		final NativeAdvancedImageFromDockerfile builder = new NativeAdvancedImageFromDockerfile("bake");
+		
+		Assertions.assertEquals(
+			List.of("--no-cache", "--set", "*.platform=linux/amd64", "--set", "*.secrets=id=a", "--sbom=true"),
+			builder.mapAdditionalArgsForBake(
+				List.of("--no-cache", "--platform", "linux/amd64", "--secret=id=a", "--sbom", "true")));
+		
+		Assertions.assertThrows(
+			IllegalStateException.class,
+			() -> builder.mapAdditionalArgsForBake(List.of("--iidfile", "id.txt")));
+		Assertions.assertThrows(
+			IllegalStateException.class,
+			() -> builder.mapAdditionalArgsForBake(List.of("--platform")));
+	}
+	
+	@Test
+	void bakeDefinitionTakesBuildArgsWithoutValueFromEnvironment()
+	{
+		final String envKey = System.getenv().keySet().iterator().next();
+		final String definition = new NativeAdvancedImageFromDockerfile("bake")
+		{
+			@Override
+			protected Map<String, String> createDefaultLabels()
+			{
+				// Requires Docker
+				return Map.of();
+			}
+		}
+			.withBuildArg(envKey, null)
+			.withBuildArg("UNSET_ARG_FOR_BAKE_TEST", null)
+			.createBakeDefinition(List.of(new BuildTarget("final", "bake")), Optional.empty(), Map.of(), Map.of());
+		
+		Assertions.assertTrue(definition.contains("\"" + envKey + "\""));
+		Assertions.assertFalse(definition.contains("UNSET_ARG_FOR_BAKE_TEST"));
+	}
+	
+	@DisabledOnOs(OS.WINDOWS) // No POSIX permissions
+	@Test
+	void extractContextAppliesModes(@TempDir final Path tempDir) throws IOException
+	{
+		final Path tar = tempDir.resolve("context.tar.gz");
+		try(final TarArchiveOutputStream tos = new TarArchiveOutputStream(
+			new GZIPOutputStream(Files.newOutputStream(tar))))
+		{
+			final TarArchiveEntry dir = new TarArchiveEntry("dir/");
+			dir.setMode(0555);
+			tos.putArchiveEntry(dir);
+			tos.closeArchiveEntry();
+			
+			writeFile(tos, "dir/script.sh", 0750);
+			writeFile(tos, "dir/readonly.txt", 0444);
+			tos.finish();
+		}
+		
+		final Path target = tempDir.resolve("extracted");
+		new NativeAdvancedImageFromDockerfile("bake").extractContext(tar.toFile(), target);
+		
+		Assertions.assertEquals(
+			"rwxr-xr-x",
+			PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("dir"))));
+		Assertions.assertEquals(
+			"rwxr-x---",
+			PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("dir/script.sh"))));
+		Assertions.assertEquals(
+			"r--r--r--",
+			PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("dir/readonly.txt"))));
+	}
+	
+	private static void writeFile(final TarArchiveOutputStream tos, final String name, final int mode)
+		throws IOException
+	{
+		final byte[] content = name.getBytes(StandardCharsets.UTF_8);
+		final TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setMode(mode);
+		entry.setSize(content.length);
+		tos.putArchiveEntry(entry);
+		tos.write(content);
+		tos.closeArchiveEntry();
+	}
+	
+	@Test
+	void buildReportIsFinishedWhenBakeFailsEarly(@TempDir final Path tempDir)
+	{
+		// No Dockerfile -> fails before the build is started
+		final NativeAdvancedImageFromDockerfile builder = new NativeAdvancedImageFromDockerfile("bake")
+			.withBaseDir(tempDir)
+			.withDisablePull(true);
+		
+		Assertions.assertThrows(
+			RuntimeException.class,
+			() -> builder.buildTargets(List.of(new BuildTarget("final", "bake")), Duration.ofMinutes(1)));
+		Assertions.assertTrue(builder.getLastBuildReport().isPresent());
+	}
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class LocalBuildCacheManagerTest
+{
+	@TempDir
+	Path rootDir;
+	
+	@Test
+	void commitRotatesExportedCache() throws IOException
+	{
+		final LocalBuildCacheManager manager = new LocalBuildCacheManager(this.rootDir, Long.MAX_VALUE);
+		
+		final LocalBuildCacheManager.Lease first = manager.lease("a");
+		Assertions.assertTrue(first.cacheFrom().isEmpty());
+		Files.writeString(Files.createDirectories(exportDir(first)).resolve("index.json"), "1");
+		first.commit();
+		
+		final LocalBuildCacheManager.Lease second = manager.lease("a");
+		Assertions.assertEquals(
+			"type=local,src=" + this.rootDir.resolve("a").resolve("current"),
+			second.cacheFrom().orElseThrow());
+		second.close();
+		
+		Assertions.assertEquals("1", Files.readString(this.rootDir.resolve("a/current/index.json")));
+	}
+	
+	@Test
+	void leaseRestoresCacheOfInterruptedRotation() throws IOException
+	{
+		final LocalBuildCacheManager manager = new LocalBuildCacheManager(this.rootDir, Long.MAX_VALUE);
+		final Path cacheDir = Files.createDirectories(this.rootDir.resolve("a"));
+		Files.writeString(Files.createDirectories(cacheDir.resolve("obsolete-1")).resolve("index.json"), "1");
+		Files.createDirectories(cacheDir.resolve("next-1"));
+		
+		final LocalBuildCacheManager.Lease lease = manager.lease("a");
+		Assertions.assertTrue(lease.cacheFrom().isPresent());
+		lease.close();
+		
+		Assertions.assertEquals("1", Files.readString(cacheDir.resolve("current/index.json")));
+		Assertions.assertFalse(Files.exists(cacheDir.resolve("obsolete-1")));
+		Assertions.assertFalse(Files.exists(cacheDir.resolve("next-1")));
+	}
+	
+	@Test
+	void failedCommitKeepsPreviousCache() throws IOException
+	{
+		this.createCache(new LocalBuildCacheManager(this.rootDir, Long.MAX_VALUE), "a", 1, Instant.now());
+		
+		final LocalBuildCacheManager manager = new LocalBuildCacheManager(this.rootDir, Long.MAX_VALUE)
+		{
+			@Override
+			protected void move(final Path source, final Path target) throws IOException
+			{
+				if(source.getFileName().toString().startsWith("next-"))
+				{
+					throw new IOException("Simulated");
+				}
+				super.move(source, target);
+			}
+		};
+		
+		final LocalBuildCacheManager.Lease lease = manager.lease("a");
+		Files.createDirectories(exportDir(lease));
+		Assertions.assertThrows(UncheckedIOException.class, lease::commit);
+		
+		Assertions.assertTrue(Files.exists(this.rootDir.resolve("a/current/blob")));
+		manager.lease("a").close();
+	}
+	
+	@Test
+	void leaseIsExclusive()
+	{
+		final LocalBuildCacheManager manager = new LocalBuildCacheManager(this.rootDir, Long.MAX_VALUE);
+		
+		final LocalBuildCacheManager.Lease lease = manager.lease("a");
+		Assertions.assertThrows(IllegalStateException.class, () -> manager.lease("a"));
+		Assertions.assertTrue(manager.tryLease("a").isEmpty());
+		
+		lease.close();
+		manager.tryLease("a").orElseThrow().close();
+	}
+	
+	@Test
+	void evictsLeastRecentlyUsed() throws IOException
+	{
+		final LocalBuildCacheManager manager = new LocalBuildCacheManager(this.rootDir, 15);
+		this.createCache(manager, "old", 10, Instant.now().minusSeconds(120));
+		this.createCache(manager, "new", 10, Instant.now());
+		
+		final LocalBuildCacheManager.Lease leased = manager.lease("old");
+		manager.evict();
+		Assertions.assertTrue(Files.exists(this.rootDir.resolve("old")), "Leased caches must not be evicted");
+		Assertions.assertFalse(Files.exists(this.rootDir.resolve("new")));
+		leased.close();
+		
+		this.createCache(manager, "new", 10, Instant.now());
+		manager.evict();
+		Assertions.assertFalse(Files.exists(this.rootDir.resolve("old")));
+		Assertions.assertTrue(Files.exists(this.rootDir.resolve("new")));
+	}
+	
+	private void createCache(
+		final LocalBuildCacheManager manager,
+		final String key,
+		final int size,
+		final Instant lastUsed) throws IOException
+	{
+		final LocalBuildCacheManager.Lease lease = manager.lease(key);
+		Files.write(Files.createDirectories(exportDir(lease)).resolve("blob"), new byte[size]);
+		lease.commit();
+		Files.setLastModifiedTime(this.rootDir.resolve(key).resolve(".last-used"), FileTime.from(lastUsed));
+	}
+	
+	private static Path exportDir(final LocalBuildCacheManager.Lease lease)
+	{
+		return Path.of(lease.cacheTo().substring(lease.cacheTo().indexOf("dest=") + "dest=".length()));
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.context;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
+
+
+class BuildContextMirrorTest
+{
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void contextWithoutHandlerIsPassedAsIs()
+	{
+		final BuildContextMirror mirror = new BuildContextMirror(this.tempDir.resolve("mirrors"));
+		
+		final BuildContextMirror.PreparedBuildContext prepared = mirror.prepare(
+			LoggerFactory.getLogger(BuildContextMirrorTest.class),
+			new NamedBuildContext("sdk", this.tempDir));
+		prepared.close();
+		
+		Assertions.assertEquals(this.tempDir.toAbsolutePath(), prepared.directory());
+	}
+	
+	@Test
+	void mirrorIsSynchronizedIncrementally() throws IOException
+	{
+		final Path source = Files.createDirectories(this.tempDir.resolve("source"));
+		Files.writeString(source.resolve(".gitignore"), "*.log\n");
+		Files.writeString(Files.createDirectories(source.resolve("lib")).resolve("a.jar"), "a");
+		Files.writeString(source.resolve("lib/b.jar"), "b");
+		Files.writeString(source.resolve("build.log"), "log");
+		
+		final BuildContextMirror mirror = new BuildContextMirror(this.tempDir.resolve("mirrors"));
+		final NamedBuildContext context = new NamedBuildContext("sdk", source, new FilesToTransferHandler());
+		
+		final Path mirrorDir = this.prepareAndClose(mirror, context);
+		Assertions.assertEquals("a", Files.readString(mirrorDir.resolve("lib/a.jar")));
+		Assertions.assertEquals("b", Files.readString(mirrorDir.resolve("lib/b.jar")));
+		Assertions.assertFalse(Files.exists(mirrorDir.resolve("build.log")));
+		
+		final Object unchangedFileKey = Files.readAttributes(
+			mirrorDir.resolve("lib/a.jar"),
+			BasicFileAttributes.class).fileKey();
+		
+		Files.delete(source.resolve("lib/b.jar"));
+		Files.writeString(source.resolve("lib/c.jar"), "c");
+		
+		Assertions.assertEquals(mirrorDir, this.prepareAndClose(mirror, context));
+		Assertions.assertFalse(Files.exists(mirrorDir.resolve("lib/b.jar")));
+		Assertions.assertEquals("c", Files.readString(mirrorDir.resolve("lib/c.jar")));
+		Assertions.assertEquals(
+			Files.getLastModifiedTime(source.resolve("lib/c.jar")).toMillis(),
+			Files.getLastModifiedTime(mirrorDir.resolve("lib/c.jar")).toMillis());
+		if(unchangedFileKey != null)
+		{
+			Assertions.assertEquals(
+				unchangedFileKey,
+				Files.readAttributes(
+					mirrorDir.resolve("lib/a.jar"),
+					BasicFileAttributes.class).fileKey(),
+				"Unchanged files must not be copied again");
+		}
+		
+		// Modified with the same size
+		Files.writeString(source.resolve("lib/a.jar"), "x");
+		Files.setLastModifiedTime(source.resolve("lib/a.jar"), FileTime.from(Instant.now().plusSeconds(60)));
+		this.prepareAndClose(mirror, context);
+		Assertions.assertEquals("x", Files.readString(mirrorDir.resolve("lib/a.jar")));
+	}
+	
+	@Test
+	void unchangedMirrorCanBeUsedConcurrently() throws Exception
+	{
+		final Path source = Files.createDirectories(this.tempDir.resolve("source"));
+		Files.writeString(source.resolve(".gitignore"), "");
+		Files.writeString(source.resolve("a.txt"), "a");
+		
+		final BuildContextMirror mirror = new BuildContextMirror(this.tempDir.resolve("mirrors"));
+		final NamedBuildContext context = new NamedBuildContext("sdk", source, new FilesToTransferHandler());
+		
+		final BuildContextMirror.PreparedBuildContext inUse =
+			mirror.prepare(LoggerFactory.getLogger(BuildContextMirrorTest.class), context);
+		try
+		{
+			// Must not wait until the other build is finished
+			CompletableFuture.supplyAsync(() -> this.prepareAndClose(mirror, context)).get(5, TimeUnit.SECONDS);
+		}
+		finally
+		{
+			inUse.close();
+		}
+	}
+	
+	@Test
+	void contextsInOppositeOrderDoNotDeadlock() throws Exception
+	{
+		final Path sourceA = Files.createDirectories(this.tempDir.resolve("a"));
+		final Path sourceB = Files.createDirectories(this.tempDir.resolve("b"));
+		Files.writeString(sourceA.resolve(".gitignore"), "");
+		Files.writeString(sourceB.resolve(".gitignore"), "");
+		Files.writeString(sourceA.resolve("a.txt"), "a");
+		Files.writeString(sourceB.resolve("b.txt"), "b");
+		
+		final BuildContextMirror mirror = new BuildContextMirror(this.tempDir.resolve("mirrors"));
+		final NamedBuildContext contextA = new NamedBuildContext("a", sourceA, new FilesToTransferHandler());
+		final NamedBuildContext contextB = new NamedBuildContext("b", sourceB, new FilesToTransferHandler());
+		
+		final List<BuildContextMirror.PreparedBuildContext> first =
+			mirror.prepareAll(LoggerFactory.getLogger(BuildContextMirrorTest.class), List.of(contextA, contextB));
+		Assertions.assertEquals(
+			List.of("a", "b"),
+			first.stream().map(BuildContextMirror.PreparedBuildContext::name).toList());
+		
+		// Both contexts changed -> The second build has to wait until the first one finished
+		Files.writeString(sourceA.resolve("a.txt"), "aa");
+		Files.writeString(sourceB.resolve("b.txt"), "bb");
+		final CompletableFuture<List<BuildContextMirror.PreparedBuildContext>> second = CompletableFuture.supplyAsync(
+			() -> mirror.prepareAll(
+				LoggerFactory.getLogger(BuildContextMirrorTest.class),
+				List.of(contextB, contextA)));
+		Thread.sleep(100);
+		Assertions.assertFalse(second.isDone());
+		
+		first.forEach(BuildContextMirror.PreparedBuildContext::close);
+		final List<BuildContextMirror.PreparedBuildContext> secondPrepared = second.get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals(
+			List.of("b", "a"),
+			secondPrepared.stream().map(BuildContextMirror.PreparedBuildContext::name).toList());
+		Assertions.assertEquals("aa", Files.readString(secondPrepared.get(1).directory().resolve("a.txt")));
+		Assertions.assertEquals("bb", Files.readString(secondPrepared.get(0).directory().resolve("b.txt")));
+		secondPrepared.forEach(BuildContextMirror.PreparedBuildContext::close);
+	}
+	
+	private Path prepareAndClose(final BuildContextMirror mirror, final NamedBuildContext context)
+	{
+		final BuildContextMirror.PreparedBuildContext prepared =
+			mirror.prepare(LoggerFactory.getLogger(BuildContextMirrorTest.class), context);
+		prepared.close();
+		// Closing twice has no effect
+		prepared.close();
+		return prepared.directory();
+	}
+}
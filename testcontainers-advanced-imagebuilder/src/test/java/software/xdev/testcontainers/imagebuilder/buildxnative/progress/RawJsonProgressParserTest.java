@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.buildxnative.progress;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class RawJsonProgressParserTest
+{
+	@Test
+	void parse()
+	{
+		final List<String> logs = new ArrayList<>();
+		final List<String> started = new ArrayList<>();
+		final BuildProgressReport report = new BuildProgressReport();
+		final RawJsonProgressParser parser = new RawJsonProgressParser(
+			BuildProgressListener.all(List.of(
+				report,
+				new BuildProgressListener()
+				{
+					@Override
+					public void onVertexStarted(final BuildVertex vertex)
+					{
+						started.add(vertex.name());
+					}
+				})),
+			logs::add);
+		
+		parser.accept("#0 building with \"default\" instance using docker driver");
+		parser.accept("{\"vertexes\":[{\"digest\":\"sha256:a\",\"name\":\"[internal] load build context\","
+			+ "\"started\":\"2024-05-01T12:00:00.000000001Z\"}]}");
+		parser.accept("{\"statuses\":[{\"id\":\"transferring context:\",\"vertex\":\"sha256:a\",\"current\":512,"
+			+ "\"timestamp\":\"2024-05-01T12:00:00.5Z\"}],"
+			+ "\"vertexes\":[{\"digest\":\"sha256:a\",\"name\":\"[internal] load build context\","
+			+ "\"started\":\"2024-05-01T12:00:00.000000001Z\",\"completed\":\"2024-05-01T12:00:01.000000001Z\"}]}");
+		parser.accept("{\"vertexes\":[{\"digest\":\"sha256:b\",\"name\":\"[2/2] RUN echo hi\",\"cached\":true,"
+			+ "\"started\":\"2024-05-01T14:00:01+02:00\",\"completed\":\"2024-05-01T14:00:01+02:00\"}],"
+			+ "\"logs\":[{\"vertex\":\"sha256:b\",\"stream\":1,\"data\":\""
+			+ Base64.getEncoder().encodeToString("hi\n".getBytes(StandardCharsets.UTF_8)) + "\"}]}");
+		
+		Assertions.assertEquals(List.of("#0 building with \"default\" instance using docker driver", "hi"), logs);
+		Assertions.assertEquals(List.of("[internal] load build context", "[2/2] RUN echo hi"), started);
+		
+		final List<BuildVertex> steps = report.steps();
+		Assertions.assertEquals(2, steps.size());
+		Assertions.assertEquals(Duration.ofSeconds(1), steps.get(0).duration().orElseThrow());
+		Assertions.assertEquals(512, steps.get(0).bytesTransferred());
+		Assertions.assertFalse(steps.get(0).cached());
+		Assertions.assertTrue(steps.get(1).cached());
+		Assertions.assertEquals(0.5, report.cacheHitRatio());
+		Assertions.assertEquals(List.of(steps.get(0)), report.uncachedSteps());
+	}
+}
@@ -69,4 +69,46 @@ class DockerfileCOPYParentsEmulatorTest
 			),
 			lines);
 	}
+	
+	@Test
+	void directoryModeCheck()
+	{
+		final List<String> lines = new DockerfileCOPYParentsEmulator()
+			.withEmulationMode(DockerfileCOPYParentsEmulator.EmulationMode.DIRECTORY)
+			.modify(
+				List.of(
+					"# syntax=docker/dockerfile:1-labs",
+					"FROM alpine:3",
+					"COPY --parents mvnw .mvn/** --abc ./",
+					"COPY --parents **/*.xml ./",
+					"COPY --parents abc/def.txt ./",
+					"COPY --parents ./it/mvnw ./it/.mvn/** ./xx"
+				), Set.of(
+					"mvnw",
+					".mvn/wrapper/maven-wrapper.properties",
+					"Dockerfile",
+					"pom.xml",
+					"a/pom.xml",
+					"a/module.xml",
+					"a/src/A.java",
+					"b/c/pom.xml",
+					"abc/def.txt",
+					"abc/other.txt",
+					"it/mvnw",
+					"it/.mvn/wrapper/maven-wrapper.properties"
+				));
+		Assertions.assertIterableEquals(
+			List.of(
+				"# syntax=docker/dockerfile:1-labs",
+				"FROM alpine:3",
+				"COPY mvnw --abc ./",
+				"COPY .mvn/ --abc ./.mvn/",
+				"COPY pom.xml ./",
+				"COPY a/module.xml a/pom.xml ./a/",
+				"COPY b/ ./b/",
+				"COPY abc/def.txt ./abc/",
+				"COPY it/ ./xx/it/"
+			),
+			lines);
+	}
 }
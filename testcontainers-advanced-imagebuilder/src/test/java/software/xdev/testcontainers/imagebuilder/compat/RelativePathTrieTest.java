@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.compat;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class RelativePathTrieTest
+{
+	private static final Set<String> FILES = Set.of(
+		"pom.xml",
+		"a/pom.xml",
+		"a-b/pom.xml",
+		"a/b/pom.xml",
+		"a/b/c/pom.xml",
+		"a/b/c/Example.java",
+		"d/e/example.txt",
+		"it/.mvn/wrapper/maven-wrapper.properties"
+	);
+	
+	@Test
+	void sameResultAsGlobMatcher()
+	{
+		final RelativePathTrie trie = new RelativePathTrie(FILES);
+		for(final String glob : List.of(
+			"**/pom.xml",
+			"./a/**",
+			"a/*/pom.xml",
+			"a*/pom.xml",
+			"[ab]*/**/*.java",
+			"/d/e/*",
+			"it/.mvn/**",
+			"x/**"))
+		{
+			final DockerfileCOPYParentsEmulator.GlobMatcher matcher =
+				new DockerfileCOPYParentsEmulator.GlobMatcher(glob);
+			Assertions.assertIterableEquals(
+				FILES.stream().filter(matcher::matches).sorted().toList(),
+				trie.findMatching(glob),
+				glob);
+		}
+	}
+	
+	@Test
+	void contains()
+	{
+		final RelativePathTrie trie = new RelativePathTrie(FILES);
+		Assertions.assertTrue(trie.contains("a/b/pom.xml"));
+		Assertions.assertFalse(trie.contains("a/b"));
+		Assertions.assertFalse(trie.contains("a/b/x.xml"));
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class BuildAdmissionControllerTest
+{
+	@Test
+	void limitsConcurrentOperations() throws Exception
+	{
+		final BuildAdmissionController controller = new BuildAdmissionController(1, 1, 1);
+		
+		final BuildAdmissionController.Permit permit = controller.acquire(BuildAdmissionController.Operation.BUILD);
+		final CompletableFuture<Void> waiting = CompletableFuture.runAsync(
+			() -> controller.acquire(BuildAdmissionController.Operation.BUILD).close());
+		
+		// Other operations are not affected
+		controller.acquire(BuildAdmissionController.Operation.PULL).close();
+		
+		while(controller.stats(BuildAdmissionController.Operation.BUILD).queued() == 0)
+		{
+			Thread.onSpinWait();
+		}
+		Thread.sleep(100);
+		Assertions.assertFalse(waiting.isDone());
+		
+		permit.close();
+		// Closing multiple times must not free up additional slots
+		permit.close();
+		waiting.get(5, TimeUnit.SECONDS);
+		
+		final BuildAdmissionController.Stats stats = controller.stats(BuildAdmissionController.Operation.BUILD);
+		Assertions.assertEquals(2, stats.admitted());
+		Assertions.assertEquals(0, stats.running());
+		Assertions.assertTrue(stats.maxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.jfr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import software.xdev.testcontainers.imagebuilder.transfer.DefaultTransferFilesCreator;
+import software.xdev.testcontainers.imagebuilder.transfer.TransferArchiveTARCompressor;
+
+
+class ImageBuilderEventsTest
+{
+	@Test
+	void contextEventsAreRecorded(@TempDir final Path tempDir) throws IOException
+	{
+		final Path baseDir = Files.createDirectory(tempDir.resolve("context"));
+		Files.writeString(baseDir.resolve(".dockerignore"), "*.log");
+		Files.writeString(baseDir.resolve("a.txt"), "a");
+		Files.writeString(baseDir.resolve("b.log"), "b");
+		
+		final Path recordingFile = tempDir.resolve("recording.jfr");
+		try(final Recording recording = new Recording())
+		{
+			recording.enable(ContextWalkEvent.class);
+			recording.enable(IgnoreEvaluationEvent.class);
+			recording.enable(TarArchiveEvent.class);
+			recording.start();
+			
+			final Map<Path, String> filesToTransfer =
+				new DefaultTransferFilesCreator(baseDir, Paths.get(".dockerignore"))
+					.withImageName("events-image")
+					.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false);
+			new TransferArchiveTARCompressor().writeTARFiles(
+				filesToTransfer,
+				new ByteArrayOutputStream(),
+				true,
+				"events-image");
+			
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+		
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+		
+		final RecordedEvent walk = findEvent(events, "ContextWalk");
+		Assertions.assertEquals("events-image", walk.getString("imageName"));
+		Assertions.assertEquals(baseDir.toString(), walk.getString("baseDirectory"));
+		Assertions.assertEquals(3, walk.getInt("walkedFiles"));
+		
+		final RecordedEvent ignore = findEvent(events, "IgnoreEvaluation");
+		Assertions.assertEquals("events-image", ignore.getString("imageName"));
+		Assertions.assertEquals(3, ignore.getInt("evaluatedFiles"));
+		Assertions.assertEquals(2, ignore.getInt("transferredFiles"));
+		
+		final RecordedEvent tar = findEvent(events, "TarArchive");
+		Assertions.assertEquals("events-image", tar.getString("imageName"));
+		Assertions.assertEquals(2, tar.getInt("entries"));
+		Assertions.assertTrue(tar.getBoolean("compressed"));
+		Assertions.assertTrue(tar.getLong("uncompressedBytes") > 0);
+	}
+	
+	private static RecordedEvent findEvent(final List<RecordedEvent> events, final String name)
+	{
+		return events.stream()
+			.filter(e -> e.getEventType().getName().equals("software.xdev.testcontainers.imagebuilder." + name))
+			.findFirst()
+			.orElseThrow(() -> new AssertionError("No event " + name + " recorded"));
+	}
+}
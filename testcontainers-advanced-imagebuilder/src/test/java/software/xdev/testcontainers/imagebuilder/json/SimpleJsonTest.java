@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.json;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class SimpleJsonTest
+{
+	@Test
+	void write()
+	{
+		final Map<String, Object> value = new LinkedHashMap<>();
+		value.put("text", "a\"b\\c\nd\u0001");
+		value.put("numbers", List.of(1, 2.5));
+		value.put("flag", true);
+		value.put("nothing", null);
+		
+		Assertions.assertEquals(
+			"{\"text\":\"a\\\"b\\\\c\\nd\\u0001\",\"numbers\":[1,2.5],\"flag\":true,\"nothing\":null}",
+			SimpleJson.write(value));
+	}
+	
+	@Test
+	void parse()
+	{
+		final Map<String, Object> expected = new LinkedHashMap<>();
+		expected.put("text", "a\"b\\c\nd\u0001");
+		expected.put("numbers", List.of(1L, -2.5e1));
+		expected.put("nested", Map.of("empty", List.of()));
+		expected.put("flag", false);
+		expected.put("nothing", null);
+		
+		Assertions.assertEquals(
+			expected,
+			SimpleJson.parse(" {\"text\":\"a\\\"b\\\\c\\nd\\u0001\", \"numbers\": [1, -2.5e1],"
+				+ "\"nested\":{\"empty\":[]},\"flag\":false,\"nothing\":null} "));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> SimpleJson.parse("{\"a\":1"));
+	}
+}
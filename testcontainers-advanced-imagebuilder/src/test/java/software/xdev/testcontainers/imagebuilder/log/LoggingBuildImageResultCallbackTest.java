@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import com.github.dockerjava.api.model.BuildResponseItem;
+
+
+class LoggingBuildImageResultCallbackTest
+{
+	@Test
+	void assemblesFragments()
+	{
+		final List<String> logged = new ArrayList<>();
+		final LoggingBuildImageResultCallback callback = new LoggingBuildImageResultCallback(recordingLogger(logged));
+		
+		callback.onNext(stream("Step 1/2 : "));
+		callback.onNext(stream("FROM alpine\n"));
+		callback.onNext(stream("abc"));
+		callback.onComplete();
+		
+		Assertions.assertEquals(List.of("INFO Step 1/2 : FROM alpine", "INFO abc"), logged);
+	}
+	
+	@Test
+	void onlyLastLinesOnFailure()
+	{
+		final List<String> logged = new ArrayList<>();
+		final LoggingBuildImageResultCallback callback = new LoggingBuildImageResultCallback(recordingLogger(logged))
+			.withOnlyLogLastLinesOnFailure(2);
+		
+		callback.onNext(stream("1\n2\n"));
+		callback.onNext(stream("3\n"));
+		Assertions.assertEquals(List.of(), logged);
+		
+		callback.onNext(new BuildResponseItem()
+		{
+			@Override
+			public boolean isErrorIndicated()
+			{
+				return true;
+			}
+		});
+		
+		Assertions.assertEquals(
+			List.of(
+				"ERROR Last 2 lines of the build output (1 previous lines were omitted):\n2\n3",
+				"ERROR <null>"),
+			logged);
+	}
+	
+	@Test
+	void suppressedMessagesAreReportedOnComplete()
+	{
+		final List<String> logged = new ArrayList<>();
+		final LoggingBuildImageResultCallback callback = new LoggingBuildImageResultCallback(recordingLogger(logged))
+			.withMaxLogMessagesPerSecond(1);
+		
+		callback.onNext(stream("1\n"));
+		callback.onNext(stream("2\n"));
+		callback.onNext(stream("3\n"));
+		callback.onComplete();
+		
+		Assertions.assertEquals(List.of("INFO 1", "INFO [2 log messages were suppressed]"), logged);
+	}
+	
+	@Test
+	void bufferIsBoundedByEncodedBytes()
+	{
+		final List<String> logged = new ArrayList<>();
+		final LoggingBuildImageResultCallback callback = new LoggingBuildImageResultCallback(recordingLogger(logged))
+			.withMaxBufferedBytes(4);
+		
+		// 2 bytes each in UTF-8
+		callback.onNext(stream("\u00e4"));
+		Assertions.assertEquals(List.of(), logged);
+		callback.onNext(stream("\u00f6"));
+		Assertions.assertEquals(List.of("INFO \u00e4\u00f6"), logged);
+		
+		Assertions.assertEquals(4, LoggingBuildImageResultCallback.utf8Length("\uD83D\uDE00"));
+	}
+	
+	static BuildResponseItem stream(final String stream)
+	{
+		return new BuildResponseItem()
+		{
+			@Override
+			public String getStream()
+			{
+				return stream;
+			}
+		};
+	}
+	
+	static Logger recordingLogger(final List<String> logged)
+	{
+		return (Logger)Proxy.newProxyInstance(
+			Logger.class.getClassLoader(),
+			new Class<?>[]{Logger.class},
+			(proxy, method, args) -> {
+				if(method.getName().startsWith("is"))
+				{
+					return true;
+				}
+				if("info".equals(method.getName()) || "error".equals(method.getName()))
+				{
+					final String message = args.length == 2
+						? String.valueOf(args[0]).replace("{}", String.valueOf(args[1]))
+						: String.valueOf(args[0]);
+					logged.add(method.getName().toUpperCase(Locale.ROOT) + " " + message);
+				}
+				return null;
+			});
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.log.steps;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class ClassicBuildStreamParserTest
+{
+	@Test
+	void parse()
+	{
+		final List<BuildStepEvent> events = new ArrayList<>();
+		final BuildStepReport report = new BuildStepReport();
+		final MutableClock clock = new MutableClock();
+		final ClassicBuildStreamParser parser = new ClassicBuildStreamParser(
+			BuildStepListener.all(List.of(events::add, report)),
+			clock);
+		
+		parser.acceptLine("Step 1/3 : FROM alpine:3");
+		parser.acceptLine(" ---> 0123456789ab");
+		clock.advance(Duration.ofSeconds(1));
+		parser.acceptLine("Step 2/3 : COPY . /app");
+		parser.acceptLine(" ---> Using cache");
+		parser.acceptLine(" ---> 123456789abc");
+		parser.acceptLine("Step 3/3 : RUN make");
+		parser.acceptLine(" ---> Running in deadbeef");
+		parser.acceptLine("compiling...");
+		clock.advance(Duration.ofSeconds(5));
+		parser.acceptLine("Removing intermediate container deadbeef");
+		parser.acceptLine(" ---> 23456789abcd");
+		parser.acceptImageId("23456789abcd");
+		parser.acceptImageId("23456789abcd");
+		
+		Assertions.assertEquals(
+			List.of(
+				BuildStepEvent.Type.STEP_STARTED,
+				BuildStepEvent.Type.STEP_COMPLETED,
+				BuildStepEvent.Type.STEP_STARTED,
+				BuildStepEvent.Type.USING_CACHE,
+				BuildStepEvent.Type.STEP_COMPLETED,
+				BuildStepEvent.Type.STEP_STARTED,
+				BuildStepEvent.Type.RUNNING_IN,
+				BuildStepEvent.Type.STEP_COMPLETED,
+				BuildStepEvent.Type.IMAGE_ID),
+			events.stream().map(BuildStepEvent::type).toList());
+		Assertions.assertEquals("deadbeef", events.get(6).detail());
+		
+		final List<BuildStepReport.BuildStep> steps = report.steps();
+		Assertions.assertEquals(3, steps.size());
+		Assertions.assertEquals("RUN make", steps.get(2).instruction());
+		Assertions.assertEquals(Duration.ofSeconds(5), steps.get(2).duration());
+		Assertions.assertTrue(steps.get(1).cached());
+		Assertions.assertEquals(1.0 / 3, report.cacheHitRatio());
+		Assertions.assertEquals("23456789abcd", report.imageId());
+	}
+	
+	static class MutableClock extends Clock
+	{
+		private Instant instant = Instant.EPOCH;
+		
+		void advance(final Duration duration)
+		{
+			this.instant = this.instant.plus(duration);
+		}
+		
+		@Override
+		public ZoneOffset getZone()
+		{
+			return ZoneOffset.UTC;
+		}
+		
+		@Override
+		public Clock withZone(final ZoneId zone)
+		{
+			return this;
+		}
+		
+		@Override
+		public Instant instant()
+		{
+			return this.instant;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
+import software.xdev.testcontainers.imagebuilder.transfer.TransferArchiveTARCompressor;
+
+
+class InMemoryImageBuilderMetricsTest
+{
+	@AfterEach
+	void resetHolder()
+	{
+		ImageBuilderMetricsHolder.setInstance(null);
+	}
+	
+	@Test
+	void contextMetricsAreReported(@TempDir final Path tempDir) throws IOException
+	{
+		final InMemoryImageBuilderMetrics metrics = new InMemoryImageBuilderMetrics();
+		ImageBuilderMetricsHolder.setInstance(metrics);
+		
+		Files.writeString(tempDir.resolve(".dockerignore"), "*.log");
+		Files.writeString(tempDir.resolve("a.txt"), "a".repeat(10_000));
+		Files.writeString(tempDir.resolve("b.log"), "b");
+		
+		final Map<Path, String> filesToTransfer = new FilesToTransferHandler()
+			.withBaseDirRelativeIgnoreFile(Paths.get(".dockerignore"))
+			.determineFilesToTransfer(LoggerFactory.getLogger(InMemoryImageBuilderMetricsTest.class), tempDir);
+		new TransferArchiveTARCompressor().writeTARFiles(filesToTransfer, new ByteArrayOutputStream(), true);
+		
+		Assertions.assertEquals(3, metrics.filesWalked());
+		Assertions.assertEquals(1, metrics.filesIgnored());
+		Assertions.assertEquals(1, metrics.walkTimer().count());
+		Assertions.assertEquals(1, metrics.tarTimer().count());
+		Assertions.assertTrue(metrics.bytesArchived() > 10_000);
+		Assertions.assertTrue(metrics.compressionRatio() > 1);
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.prebuild.junit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import software.xdev.testcontainers.imagebuilder.AbstractImageFromDockerfile;
+import software.xdev.testcontainers.imagebuilder.prebuild.ImagePrebuilder;
+
+
+@ExtendWith(ImagePrebuildExtension.class)
+class ImagePrebuildExtensionTest
+{
+	@PrebuildImage
+	static final CountingImage IMAGE = new CountingImage();
+	
+	@Test
+	void imageIsPrebuilt() throws Exception
+	{
+		// Must have been started by the extension
+		ImagePrebuilder.instance().prebuildOf(IMAGE)
+			.orElseGet(() -> Assertions.fail("Extension did not start the prebuild"))
+			.get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals(1, IMAGE.resolveCount.get());
+		
+		// Already started -> no additional build
+		ImagePrebuilder.instance().prebuild(IMAGE).get(5, TimeUnit.SECONDS);
+		Assertions.assertEquals(1, IMAGE.resolveCount.get());
+		
+		Assertions.assertEquals(IMAGE.getDockerImageName(), IMAGE.get());
+		Assertions.assertEquals(1, IMAGE.resolveCount.get());
+	}
+	
+	static class CountingImage extends AbstractImageFromDockerfile<CountingImage>
+	{
+		final AtomicInteger resolveCount = new AtomicInteger();
+		
+		CountingImage()
+		{
+			super("prebuild-test", false);
+		}
+		
+		@Override
+		protected String resolve()
+		{
+			this.resolveCount.incrementAndGet();
+			return this.dockerImageName;
+		}
+		
+		@Override
+		public CountingImage copyForExactRebuild(final String dockerImageName)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
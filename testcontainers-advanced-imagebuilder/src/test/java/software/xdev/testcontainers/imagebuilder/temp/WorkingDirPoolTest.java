@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.temp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class WorkingDirPoolTest
+{
+	@TempDir
+	Path tempDir;
+	
+	@Test
+	void releasedDirectoriesAreEmptiedAndReused() throws IOException
+	{
+		final TempResourceManager tempResourceManager = new TempResourceManager();
+		final WorkingDirPool pool = this.createPool(tempResourceManager, 1);
+		
+		final WorkingDirPool.WorkingDir first = pool.acquire();
+		Files.writeString(Files.createDirectories(first.path().resolve("context")).resolve("a.txt"), "a");
+		first.close();
+		// Closing twice has no effect
+		first.close();
+		Assertions.assertEquals(1, pool.idleCount());
+		
+		final WorkingDirPool.WorkingDir second = pool.acquire();
+		Assertions.assertEquals(first.path(), second.path());
+		try(final Stream<Path> content = Files.list(second.path()))
+		{
+			Assertions.assertEquals(0, content.count());
+		}
+		Assertions.assertEquals(1, pool.createdCount());
+		second.close();
+	}
+	
+	@Test
+	void directoriesAboveMaxIdleAreDeleted()
+	{
+		final TempResourceManager tempResourceManager = new TempResourceManager();
+		final WorkingDirPool pool = this.createPool(tempResourceManager, 1);
+		
+		final WorkingDirPool.WorkingDir first = pool.acquire();
+		final WorkingDirPool.WorkingDir second = pool.acquire();
+		// Root + 2 working dirs
+		Assertions.assertEquals(3, tempResourceManager.registeredCount());
+		
+		first.close();
+		second.close();
+		
+		Assertions.assertEquals(1, pool.idleCount());
+		Assertions.assertFalse(Files.exists(second.path()));
+		Assertions.assertEquals(2, tempResourceManager.registeredCount());
+		
+		tempResourceManager.releaseAll();
+		Assertions.assertFalse(Files.exists(first.path()));
+		Assertions.assertEquals(0, tempResourceManager.registeredCount());
+	}
+	
+	private WorkingDirPool createPool(final TempResourceManager tempResourceManager, final int maxIdle)
+	{
+		return new WorkingDirPool(this.tempDir.resolve("pool"), maxIdle)
+		{
+			@Override
+			protected TempResourceManager tempResourceManager()
+			{
+				return tempResourceManager;
+			}
+		};
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.testfixtures;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class SyntheticMonorepoGeneratorTest
+{
+	@Test
+	void planIsDeterministic()
+	{
+		final List<SyntheticMonorepoGenerator.Entry> plan = new SyntheticMonorepoGenerator()
+			.withFileCount(2_000)
+			.plan();
+		
+		Assertions.assertEquals(plan, new SyntheticMonorepoGenerator().withFileCount(2_000).plan());
+		Assertions.assertNotEquals(
+			plan,
+			new SyntheticMonorepoGenerator().withFileCount(2_000).withSeed(1).plan());
+	}
+	
+	@Test
+	void planContainsHotSpots()
+	{
+		final List<SyntheticMonorepoGenerator.Entry> plan = new SyntheticMonorepoGenerator()
+			.withFileCount(10_000)
+			.plan();
+		
+		Assertions.assertEquals(10_000, plan.size());
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.relativePath().contains("/node_modules/")));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.relativePath().contains("/target/")));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.type() == SyntheticMonorepoGenerator.EntryType.SYMLINK));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.relativePath().length() > 100));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.size() > 1024));
+		Assertions.assertTrue(plan.stream()
+			.noneMatch(e -> e.type() == SyntheticMonorepoGenerator.EntryType.IGNORE_FILE));
+	}
+	
+	@Test
+	void planContainsNestedIgnoreFiles()
+	{
+		final List<SyntheticMonorepoGenerator.Entry> plan = new SyntheticMonorepoGenerator()
+			.withFileCount(2_000)
+			.withModules(2)
+			.withNestedIgnoreFiles(true)
+			.plan();
+		
+		final List<SyntheticMonorepoGenerator.Entry> ignoreFiles = plan.stream()
+			.filter(e -> e.type() == SyntheticMonorepoGenerator.EntryType.IGNORE_FILE)
+			.toList();
+		Assertions.assertEquals(
+			List.of("module-0/.gitignore", "module-1/.gitignore"),
+			ignoreFiles.stream()
+				.filter(e -> !e.ignored())
+				.map(SyntheticMonorepoGenerator.Entry::relativePath)
+				.toList());
+		// Ignore files of packages inside node_modules
+		Assertions.assertTrue(ignoreFiles.stream().anyMatch(e -> e.ignored()
+			&& e.relativePath().matches("module-\\d/node_modules/pkg-\\d+/\\.gitignore")));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.ignored() && e.relativePath().contains("/build/")));
+		Assertions.assertTrue(plan.stream().anyMatch(e -> e.ignored() && e.relativePath().endsWith(".log")));
+	}
+}
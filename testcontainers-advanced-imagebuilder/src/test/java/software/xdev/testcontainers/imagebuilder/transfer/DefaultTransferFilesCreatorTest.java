@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.InstrumentedIgnoreNode;
+import software.xdev.testcontainers.imagebuilder.testfixtures.SyntheticMonorepoGenerator;
+
+
+class DefaultTransferFilesCreatorTest
+{
+	@Test
+	void sharedFilesToTransferInfoIsDeletedWhenLastReferenceIsReleased(@TempDir final Path tempDir)
+		throws IOException
+	{
+		final File tar = Files.writeString(tempDir.resolve("context.tar"), "dummy").toFile();
+		
+		final FilesToTransferInfo owner = new DefaultTransferFilesCreator.DefaultFilesToTransferInfo(tar, false);
+		final FilesToTransferInfo copy = owner.retain(false).orElseThrow();
+		final FilesToTransferInfo immediate = owner.retain(true).orElseThrow();
+		
+		try(final InputStream is1 = copy.filesToTransfer(); final InputStream is2 = immediate.filesToTransfer())
+		{
+			Assertions.assertArrayEquals(is1.readAllBytes(), is2.readAllBytes());
+		}
+		// Closing the stream of an immediate reference releases it
+		Assertions.assertTrue(tar.exists());
+		
+		owner.close();
+		owner.close(); // Releasing twice has no effect
+		Assertions.assertTrue(tar.exists());
+		
+		final InputStream openStream = copy.filesToTransfer();
+		copy.close();
+		// Still being read
+		Assertions.assertTrue(tar.exists());
+		
+		openStream.close();
+		Assertions.assertFalse(tar.exists());
+		Assertions.assertTrue(owner.retain(false).isEmpty());
+	}
+	
+	@Test
+	void determineFilesToTransferOfSyntheticMonorepo(@TempDir final Path tempDir)
+	{
+		final SyntheticMonorepoGenerator.GeneratedMonorepo monorepo = new SyntheticMonorepoGenerator()
+			.withFileCount(5_000)
+			.generate(tempDir);
+		
+		final List<String> transferred = new DefaultTransferFilesCreator(
+			monorepo.root(),
+			Paths.get(SyntheticMonorepoGenerator.IGNORE_FILE))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false)
+			.values()
+			.stream()
+			.filter(p -> !SyntheticMonorepoGenerator.IGNORE_FILE.equals(p))
+			.toList();
+		
+		// Symlinks are not transferred
+		Assertions.assertEquals(monorepo.notIgnoredFiles(), transferred);
+	}
+	
+	@Test
+	void instrumentedIgnoreRulesReportDeadRules(@TempDir final Path tempDir) throws IOException
+	{
+		Files.writeString(tempDir.resolve("a.txt"), "a");
+		Files.writeString(tempDir.resolve("b.log"), "b");
+		
+		final DefaultTransferFilesCreator creator = new DefaultTransferFilesCreator(tempDir, null)
+			.withInstrumentIgnoreRules(true);
+		final Map<Path, String> transferred = creator.determineFilesToTransfer(
+			Set.of(),
+			l -> true,
+			new LinkedHashSet<>(List.of("*.log", "*.tmp")),
+			Set.of(),
+			false);
+		Assertions.assertEquals(List.of("a.txt"), List.copyOf(transferred.values()));
+		
+		final InstrumentedIgnoreNode.Statistics statistics = creator.lastIgnoreRuleStatistics().orElseThrow();
+		Assertions.assertEquals(
+			List.of("*.tmp"),
+			statistics.deadRules().stream().map(r -> r.rule().toString()).toList());
+		final InstrumentedIgnoreNode.RuleStatistics logRule = statistics.rules().get(0);
+		Assertions.assertEquals(1, logRule.matches());
+		Assertions.assertTrue(logRule.evaluations() >= 2);
+	}
+	
+	@Test
+	void determineFilesToTransferOfSyntheticMonorepoWithNestedIgnoreFiles(@TempDir final Path tempDir)
+	{
+		final SyntheticMonorepoGenerator.GeneratedMonorepo monorepo = new SyntheticMonorepoGenerator()
+			.withFileCount(5_000)
+			.withNestedIgnoreFiles(true)
+			.generate(tempDir);
+		
+		final List<String> transferred = new DefaultTransferFilesCreator(
+			monorepo.root(),
+			Paths.get(SyntheticMonorepoGenerator.IGNORE_FILE))
+			.withNestedIgnoreFileNames(Set.of(SyntheticMonorepoGenerator.IGNORE_FILE))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false)
+			.values()
+			.stream()
+			.filter(p -> !SyntheticMonorepoGenerator.IGNORE_FILE.equals(p))
+			.toList();
+		
+		Assertions.assertEquals(monorepo.notIgnoredFiles(), transferred);
+	}
+	
+	@Test
+	void nestedIgnoreFilesAreChained(@TempDir final Path tempDir) throws IOException
+	{
+		final Path sub = Files.createDirectories(tempDir.resolve("sub/deeper"));
+		Files.writeString(tempDir.resolve(".gitignore"), "*.log\n");
+		Files.writeString(tempDir.resolve("sub/.gitignore"), "*.tmp\n!keep.log\n/build\n");
+		Files.writeString(tempDir.resolve("a.tmp"), "a");
+		Files.writeString(tempDir.resolve("keep.log"), "a");
+		Files.writeString(tempDir.resolve("sub/b.tmp"), "b");
+		Files.writeString(tempDir.resolve("sub/keep.log"), "b");
+		Files.writeString(tempDir.resolve("sub/other.log"), "b");
+		Files.writeString(sub.resolve("c.tmp"), "c");
+		Files.writeString(sub.resolve("c.txt"), "c");
+		Files.createDirectories(tempDir.resolve("sub/build"));
+		Files.writeString(tempDir.resolve("sub/build/d.txt"), "d");
+		Files.createDirectories(sub.resolve("build"));
+		Files.writeString(sub.resolve("build/e.txt"), "e");
+		
+		final Map<Path, String> transferred = new DefaultTransferFilesCreator(tempDir, Paths.get(".gitignore"))
+			.withNestedIgnoreFileNames(Set.of(".gitignore"))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false);
+		
+		Assertions.assertEquals(
+			List.of(
+				".gitignore",
+				"a.tmp",
+				"sub/.gitignore",
+				"sub/deeper/build/e.txt",
+				"sub/deeper/c.txt",
+				"sub/keep.log"),
+			List.copyOf(transferred.values()));
+	}
+	
+	@Test
+	void nestedIgnoreFilesInsideExcludedDirectoriesAreSkipped(@TempDir final Path tempDir) throws IOException
+	{
+		Files.createDirectories(tempDir.resolve("build/sub"));
+		Files.writeString(tempDir.resolve(".gitignore"), "build/\n");
+		Files.writeString(tempDir.resolve("build/.gitignore"), "!keep.txt\n");
+		Files.writeString(tempDir.resolve("build/sub/.gitignore"), "!keep.txt\n");
+		Files.writeString(tempDir.resolve("build/keep.txt"), "a");
+		Files.writeString(tempDir.resolve("build/sub/keep.txt"), "b");
+		
+		final Map<Path, String> transferred = new DefaultTransferFilesCreator(tempDir, Paths.get(".gitignore"))
+			.withNestedIgnoreFileNames(Set.of(".gitignore"))
+			.determineFilesToTransfer(Set.of(), l -> true, Set.of(), Set.of(), false);
+		
+		Assertions.assertEquals(List.of(".gitignore"), List.copyOf(transferred.values()));
+	}
+	
+	@Test
+	void ignoreFileLineFilterIsAppliedToNestedIgnoreFiles(@TempDir final Path tempDir) throws IOException
+	{
+		Files.createDirectories(tempDir.resolve("sub"));
+		Files.writeString(tempDir.resolve("sub/.gitignore"), "*.tmp\n*.log\n");
+		Files.writeString(tempDir.resolve("sub/a.tmp"), "a");
+		Files.writeString(tempDir.resolve("sub/b.log"), "b");
+		
+		final Map<Path, String> transferred = new DefaultTransferFilesCreator(tempDir, null)
+			.withNestedIgnoreFileNames(Set.of(".gitignore"))
+			.determineFilesToTransfer(Set.of(), l -> !"*.tmp".equals(l), Set.of(), Set.of(), false);
+		
+		Assertions.assertEquals(List.of("sub/.gitignore", "sub/a.tmp"), List.copyOf(transferred.values()));
+	}
+}
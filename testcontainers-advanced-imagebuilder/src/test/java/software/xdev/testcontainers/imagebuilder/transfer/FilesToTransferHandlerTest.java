@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+class FilesToTransferHandlerTest
+{
+	private static final Logger LOG = LoggerFactory.getLogger(FilesToTransferHandlerTest.class);
+	
+	@Test
+	void sharedFilesToTransferInfosAreKeyedByConfigurationAndInvalidated(@TempDir final Path tempDir)
+		throws IOException
+	{
+		final Path dockerFile = Files.writeString(tempDir.resolve("Dockerfile"), "FROM scratch");
+		Files.writeString(tempDir.resolve("a.txt"), "a");
+		
+		final FilesToTransferHandler handler = new FilesToTransferHandler()
+			.withBaseDirRelativeIgnoreFile(null)
+			.withShareCreatedFilesToTransferInfos(true);
+		
+		final FilesToTransferInfo first = handler.create(LOG, tempDir, dockerFile, false);
+		final FilesToTransferInfo shared = handler.create(LOG, tempDir, dockerFile, false);
+		Assertions.assertEquals(first.source(), shared.source());
+		
+		// Different configuration -> Different files
+		handler.withPostGitIgnoreLines("*.txt");
+		final FilesToTransferInfo otherConfig = handler.create(LOG, tempDir, dockerFile, false);
+		Assertions.assertNotEquals(first.source(), otherConfig.source());
+		Assertions.assertEquals(2, handler.sharedFilesToTransferInfos.size());
+		
+		// Released entries are removed and recreated
+		otherConfig.close();
+		Assertions.assertTrue(otherConfig.isReleased());
+		final FilesToTransferInfo recreated = handler.create(LOG, tempDir, dockerFile, false);
+		Assertions.assertNotEquals(otherConfig.source(), recreated.source());
+		Assertions.assertEquals(2, handler.sharedFilesToTransferInfos.size());
+		
+		recreated.close();
+		first.close();
+		Assertions.assertFalse(shared.isReleased());
+		shared.close();
+		
+		handler.withPostGitIgnoreLines();
+		handler.create(LOG, tempDir, dockerFile, false).close();
+		Assertions.assertEquals(1, handler.sharedFilesToTransferInfos.size());
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import software.xdev.testcontainers.imagebuilder.jgit.ignore.IgnoreNode;
+
+
+class IgnoreNodeCacheTest
+{
+	@Test
+	void reusesCompiledNodeForSameLines()
+	{
+		final IgnoreNodeCache cache = new IgnoreNodeCache(2);
+		final AtomicInteger compilations = new AtomicInteger();
+		
+		final IgnoreNode first = cache.get("ns", List.of("*.log", "!keep.log"), lines -> {
+			compilations.incrementAndGet();
+			return new IgnoreNode(List.of());
+		});
+		final IgnoreNode second = cache.get("ns", List.of("*.log", "!keep.log"), lines -> {
+			compilations.incrementAndGet();
+			return new IgnoreNode(List.of());
+		});
+		Assertions.assertSame(first, second);
+		Assertions.assertEquals(1, compilations.get());
+		
+		Assertions.assertNotSame(first, cache.get("ns", List.of("*.log"), lines -> new IgnoreNode(List.of())));
+		Assertions.assertNotSame(
+			first,
+			cache.get("other", List.of("*.log", "!keep.log"), lines -> new IgnoreNode(List.of())));
+		// Bounded to 2 entries
+		Assertions.assertEquals(2, cache.size());
+	}
+}
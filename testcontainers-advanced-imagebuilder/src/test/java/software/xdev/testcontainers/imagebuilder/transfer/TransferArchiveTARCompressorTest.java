@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class TransferArchiveTARCompressorTest
+{
+	@Test
+	void writeUncompressedWithoutClosing(@TempDir final Path tempDir) throws IOException
+	{
+		final Path file = Files.writeString(tempDir.resolve("a.txt"), "content");
+		final Map<Path, String> filesToTransfer = new LinkedHashMap<>();
+		filesToTransfer.put(tempDir, "dir");
+		filesToTransfer.put(file, "dir/a.txt");
+		
+		final boolean[] closed = {false};
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream()
+		{
+			@Override
+			public void close()
+			{
+				closed[0] = true;
+			}
+		};
+		new TransferArchiveTARCompressor().writeTARFiles(filesToTransfer, bos, false);
+		Assertions.assertFalse(closed[0]);
+		
+		final List<String> names = new ArrayList<>();
+		try(final TarArchiveInputStream tis = new TarArchiveInputStream(new ByteArrayInputStream(bos.toByteArray())))
+		{
+			TarArchiveEntry entry;
+			while((entry = tis.getNextEntry()) != null)
+			{
+				names.add(entry.getName());
+				if(entry.isFile())
+				{
+					Assertions.assertEquals("content", new String(tis.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		Assertions.assertEquals(List.of("dir/", "dir/a.txt"), names);
+	}
+	
+	@Test
+	void writeReturnsStatistics(@TempDir final Path tempDir) throws IOException
+	{
+		final Path file = Files.writeString(tempDir.resolve("a.txt"), "a".repeat(100_000));
+		final Map<Path, String> filesToTransfer = Map.of(file, "a.txt");
+		
+		final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+		final ContextStatistics.Tar uncompressedStatistics =
+			new TransferArchiveTARCompressor().writeTARFiles(filesToTransfer, uncompressed, false);
+		Assertions.assertEquals(1, uncompressedStatistics.entries());
+		Assertions.assertEquals(uncompressed.size(), uncompressedStatistics.uncompressedBytes());
+		Assertions.assertEquals(uncompressed.size(), uncompressedStatistics.writtenBytes());
+		
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		final ContextStatistics.Tar compressedStatistics =
+			new TransferArchiveTARCompressor().writeTARFiles(filesToTransfer, compressed, true);
+		Assertions.assertEquals(uncompressed.size(), compressedStatistics.uncompressedBytes());
+		Assertions.assertEquals(compressed.size(), compressedStatistics.writtenBytes());
+		Assertions.assertTrue(compressedStatistics.compressionRatio() > 10);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.explain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import software.xdev.testcontainers.imagebuilder.json.SimpleJson;
+import software.xdev.testcontainers.imagebuilder.testfixtures.SyntheticMonorepoGenerator;
+import software.xdev.testcontainers.imagebuilder.transfer.FilesToTransferHandler;
+
+
+class ContextExplainerTest
+{
+	@Test
+	void explainMatchesTransferredFiles(@TempDir final Path tempDir)
+	{
+		final SyntheticMonorepoGenerator.GeneratedMonorepo monorepo = new SyntheticMonorepoGenerator()
+			.withFileCount(2_000)
+			.generate(tempDir);
+		final FilesToTransferHandler handler = new FilesToTransferHandler()
+			.withBaseDirRelativeIgnoreFile(Paths.get(SyntheticMonorepoGenerator.IGNORE_FILE));
+		
+		final Map<Path, String> transferred =
+			handler.determineFilesToTransfer(LoggerFactory.getLogger(ContextExplainerTest.class), monorepo.root());
+		final ContextExplanation explanation = handler.explain(monorepo.root(), monorepo.root().resolve("Dockerfile"));
+		
+		Assertions.assertEquals(transferred.size(), explanation.includedFiles());
+		Assertions.assertEquals(
+			transferred.keySet().stream().mapToLong(p -> p.toFile().length()).sum(),
+			explanation.includedBytes());
+		Assertions.assertFalse(explanation.excludedDirectories().isEmpty());
+		// No negated rules -> Excluded directories are not walked
+		Assertions.assertEquals(explanation.excludedDirectories().size(), explanation.skippedDirectories());
+	}
+	
+	@Test
+	void explainReportsRulesAndLargestFiles(@TempDir final Path tempDir) throws IOException
+	{
+		Files.writeString(tempDir.resolve(".gitignore"), "build/\n*.log\n!keep.log");
+		Files.createDirectories(tempDir.resolve("src/main"));
+		Files.writeString(tempDir.resolve("src/main/A.java"), "a".repeat(100));
+		Files.writeString(tempDir.resolve("src/main/B.java"), "b".repeat(10));
+		Files.createDirectories(tempDir.resolve("build"));
+		Files.writeString(tempDir.resolve("build/out.bin"), "c".repeat(1_000));
+		Files.writeString(tempDir.resolve("build/keep.log"), "d");
+		Files.writeString(tempDir.resolve("other.log"), "e");
+		
+		final ContextExplanation explanation = new FilesToTransferHandler()
+			.explain(tempDir, tempDir.resolve("Dockerfile"));
+		
+		// .gitignore, A.java, B.java, build/keep.log (negated rule)
+		Assertions.assertEquals(4, explanation.includedFiles());
+		Assertions.assertEquals(2, explanation.excludedFiles());
+		Assertions.assertEquals(0, explanation.skippedDirectories());
+		Assertions.assertEquals(
+			List.of(new ContextExplanation.ExcludedDirectory("build", "build/")),
+			explanation.excludedDirectories());
+		Assertions.assertEquals("src/main/A.java", explanation.largestFiles().get(0).relativePath());
+		
+		final ContextExplanation.DirectoryNode src = explanation.root().children().stream()
+			.filter(n -> "src".equals(n.name()))
+			.findFirst()
+			.orElseThrow();
+		Assertions.assertEquals(2, src.files());
+		Assertions.assertEquals(110, src.bytes());
+		
+		Assertions.assertTrue(explanation.formatTree().contains("build/ [excluded by 'build/']"));
+		final Map<?, ?> json = (Map<?, ?>)SimpleJson.parse(explanation.toJson());
+		Assertions.assertEquals(4L, json.get("includedFiles"));
+	}
+}
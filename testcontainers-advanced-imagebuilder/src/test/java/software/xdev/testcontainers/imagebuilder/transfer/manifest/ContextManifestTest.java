@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.transfer.manifest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class ContextManifestTest
+{
+	@Test
+	void diffAfterPersisting(@TempDir final Path tempDir) throws IOException
+	{
+		final Path context = Files.createDirectory(tempDir.resolve("context"));
+		final Path a = Files.writeString(context.resolve("a.txt"), "a");
+		final Path b = Files.writeString(context.resolve("b.txt"), "b");
+		final Path c = Files.writeString(context.resolve("c.txt"), "c");
+		
+		final Map<Path, String> files = new LinkedHashMap<>();
+		files.put(a, "a.txt");
+		files.put(b, "b.txt");
+		files.put(c, "c.txt");
+		
+		final Path manifestFile = tempDir.resolve("manifests/context.manifest");
+		ContextManifest.create(files, null).write(manifestFile);
+		final ContextManifest previous = ContextManifest.read(manifestFile);
+		Assertions.assertEquals(3, previous.entries().size());
+		
+		// Same content but touched -> not modified
+		Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 10_000));
+		Files.writeString(b, "bb");
+		files.remove(c);
+		files.put(Files.writeString(context.resolve("d.txt"), "d"), "d.txt");
+		
+		final ContextManifestDiff diff = ContextManifest.create(files, previous).diff(previous);
+		Assertions.assertEquals(List.of("d.txt"), diff.added());
+		Assertions.assertEquals(List.of("c.txt"), diff.removed());
+		Assertions.assertEquals(List.of("b.txt"), diff.modified());
+		Assertions.assertEquals(List.of("b.txt", "c.txt", "d.txt"), diff.changedPaths());
+	}
+	
+	@Test
+	void analyzeMapsChangesToInstructions()
+	{
+		final CacheBusterAnalyzer analyzer = new CacheBusterAnalyzer(List.of(
+			"FROM eclipse-temurin:21 AS build",
+			"COPY pom.xml ./",
+			"COPY --chown=1000 [\"lib/\", \"/lib\"]",
+			"# comment",
+			"COPY src/main/**/*.java \\",
+			"  /src/",
+			"COPY --from=other /app /app",
+			"",
+			"FROM eclipse-temurin:21",
+			"ADD . /app"));
+		
+		final List<CacheBusterAnalyzer.InvalidatedInstruction> invalidated =
+			analyzer.analyze(List.of("lib/x.jar", "src/main/java/A.java", "README.md"));
+		
+		Assertions.assertEquals(
+			List.of(3, 5, 10),
+			invalidated.stream().map(i -> i.instruction().lineNumber()).toList());
+		Assertions.assertEquals(List.of("lib/x.jar"), invalidated.get(0).changedPaths());
+		Assertions.assertEquals("build", invalidated.get(1).instruction().stage());
+		Assertions.assertEquals(List.of("src/main/java/A.java"), invalidated.get(1).changedPaths());
+		Assertions.assertNull(invalidated.get(2).instruction().stage());
+		Assertions.assertEquals(3, invalidated.get(2).changedPaths().size());
+	}
+}
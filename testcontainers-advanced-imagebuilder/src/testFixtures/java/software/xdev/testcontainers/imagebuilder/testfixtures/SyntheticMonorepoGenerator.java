@@ -0,0 +1,550 @@
+/*
+ * Copyright © 2024 XDEV Software (https://xdev.software)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.xdev.testcontainers.imagebuilder.testfixtures;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+
+/**
+ * Generates deterministic synthetic monorepos for scale tests and benchmarks.
+ * <p>
+ * The same configuration (including the {@link #seed}) always results in the same tree. The tree consists of
+ * {@link #modules} with nested source directories ({@link #depth} and {@link #fanOut}) and contains the usual hot
+ * spots of real repositories:
+ * </p>
+ * <ul>
+ *     <li><code>node_modules</code> and <code>target</code> directories with a lot of small files (ignored)</li>
+ *     <li>scattered temporary files (<code>*.tmp</code>, ignored)</li>
+ *     <li>module specific generated directories (ignored using an anchored rule per module)</li>
+ *     <li>symlinks to other files</li>
+ *     <li>long paths (more than 100 characters, which require special handling in TAR archives)</li>
+ * </ul>
+ * <p>
+ * A matching <code>.gitignore</code> is written into the root directory.
+ * </p>
+ * <p>
+ * If {@link #nestedIgnoreFiles} are enabled every module also gets its own <code>.gitignore</code> (which ignores
+ * {@link #nestedIgnoredRatio module local files}) and every package inside <code>node_modules</code> ships one (like
+ * most npm packages do).
+ * </p>
+ */
+public class SyntheticMonorepoGenerator
+{
+	public static final String IGNORE_FILE = ".gitignore";
+	
+	protected static final String LONG_DIRECTORY_NAME =
+		"a-directory-with-a-rather-long-name-that-is-used-to-create-long-paths";
+	
+	protected int fileCount = 10_000;
+	protected int modules = -1;
+	protected int depth = 3;
+	protected int fanOut = 4;
+	protected long seed = 42;
+	protected FileSizeDistribution fileSizeDistribution = FileSizeDistribution.DEFAULT;
+	protected double nodeModulesRatio = 0.2;
+	protected double targetRatio = 0.15;
+	protected double tempFileRatio = 0.01;
+	protected double generatedRatio = 0.02;
+	protected double symlinkRatio = 0.005;
+	protected double longPathRatio = 0.01;
+	protected boolean nestedIgnoreFiles;
+	protected double nestedIgnoredRatio = 0.02;
+	
+	/**
+	 * Plans the tree without writing anything.
+	 * <p>
+	 * Nested ignore files are planned in addition to the {@link #fileCount}.
+	 * </p>
+	 *
+	 * @return all entries sorted by their relative path
+	 */
+	public List<Entry> plan()
+	{
+		final Random random = new Random(this.seed);
+		final int moduleCount = this.moduleCount();
+		
+		final List<Entry> entries = new ArrayList<>(this.fileCount);
+		final List<String> sourceFiles = new ArrayList<>();
+		for(int i = 0; i < this.fileCount; i++)
+		{
+			final int module = random.nextInt(moduleCount);
+			final String moduleDir = "module-" + module;
+			final String nestedDirs = this.nestedDirs(random);
+			final double category = random.nextDouble();
+			final long size = this.fileSizeDistribution.sample(random);
+			
+			double threshold = this.nodeModulesRatio;
+			if(category < threshold)
+			{
+				entries.add(new Entry(
+					moduleDir + "/node_modules/pkg-" + random.nextInt(this.fanOut * 10) + "/lib/" + nestedDirs
+						+ "index-" + i + ".js",
+					EntryType.FILE,
+					size,
+					null,
+					true));
+				continue;
+			}
+			threshold += this.targetRatio;
+			if(category < threshold)
+			{
+				entries.add(new Entry(
+					moduleDir + "/target/classes/" + nestedDirs + "Class" + i + ".class",
+					EntryType.FILE,
+					size,
+					null,
+					true));
+				continue;
+			}
+			threshold += this.tempFileRatio;
+			if(category < threshold)
+			{
+				entries.add(new Entry(
+					moduleDir + "/src/" + nestedDirs + "scratch-" + i + ".tmp",
+					EntryType.FILE,
+					size,
+					null,
+					true));
+				continue;
+			}
+			threshold += this.generatedRatio;
+			if(category < threshold)
+			{
+				final int generatedModule = this.moduleWithGeneratedDir(module);
+				entries.add(new Entry(
+					"module-" + generatedModule + "/generated/" + nestedDirs + "Generated" + i + ".java",
+					EntryType.FILE,
+					size,
+					null,
+					true));
+				continue;
+			}
+			threshold += this.nestedIgnoreFiles ? this.nestedIgnoredRatio : 0;
+			if(category < threshold)
+			{
+				entries.add(new Entry(
+					i % 2 == 0
+						? moduleDir + "/build/" + nestedDirs + "Out" + i + ".bin"
+						: moduleDir + "/src/" + nestedDirs + "debug-" + i + ".log",
+					EntryType.FILE,
+					size,
+					null,
+					true));
+				continue;
+			}
+			threshold += this.symlinkRatio;
+			if(category < threshold && !sourceFiles.isEmpty())
+			{
+				final String linkTarget = sourceFiles.get(random.nextInt(sourceFiles.size()));
+				entries.add(new Entry(
+					moduleDir + "/links/" + nestedDirs + "link-" + i,
+					EntryType.SYMLINK,
+					0,
+					linkTarget,
+					false));
+				continue;
+			}
+			threshold += this.longPathRatio;
+			final String path = category < threshold
+				? moduleDir + "/src/" + nestedDirs + LONG_DIRECTORY_NAME + "/" + LONG_DIRECTORY_NAME + "/Long" + i
+				+ ".java"
+				: moduleDir + "/src/main/java/" + nestedDirs + "File" + i + ".java";
+			sourceFiles.add(path);
+			entries.add(new Entry(path, EntryType.FILE, size, null, false));
+		}
+		
+		if(this.nestedIgnoreFiles)
+		{
+			entries.addAll(this.planNestedIgnoreFiles(entries, moduleCount));
+		}
+		
+		entries.sort(null);
+		return Collections.unmodifiableList(entries);
+	}
+	
+	protected List<Entry> planNestedIgnoreFiles(final List<Entry> entries, final int moduleCount)
+	{
+		final long size = String.join("\n", this.nestedIgnoreLines()).length() + 1L;
+		
+		final List<Entry> ignoreFiles = new ArrayList<>();
+		for(int module = 0; module < moduleCount; module++)
+		{
+			ignoreFiles.add(new Entry("module-" + module + "/" + IGNORE_FILE, EntryType.IGNORE_FILE, size, null, false));
+		}
+		
+		final TreeSet<String> packageDirs = new TreeSet<>();
+		for(final Entry entry : entries)
+		{
+			final String path = entry.relativePath();
+			final int nodeModulesIndex = path.indexOf("/node_modules/");
+			if(nodeModulesIndex != -1)
+			{
+				final int packageEnd = path.indexOf('/', nodeModulesIndex + "/node_modules/".length());
+				packageDirs.add(path.substring(0, packageEnd + 1));
+			}
+		}
+		packageDirs.forEach(dir -> ignoreFiles.add(new Entry(
+			dir + IGNORE_FILE,
+			EntryType.IGNORE_FILE,
+			size,
+			null,
+			true)));
+		return ignoreFiles;
+	}
+	
+	/**
+	 * @return the lines of the root <code>.gitignore</code>
+	 */
+	public List<String> ignoreLines()
+	{
+		final List<String> lines = new ArrayList<>(List.of(
+			"# Generated by " + SyntheticMonorepoGenerator.class.getSimpleName(),
+			"node_modules/",
+			"target/",
+			"*.tmp",
+			".idea"));
+		for(int module = 0; module < this.moduleCount(); module++)
+		{
+			if(this.moduleWithGeneratedDir(module) == module)
+			{
+				lines.add("/module-" + module + "/generated/");
+			}
+		}
+		return lines;
+	}
+	
+	/**
+	 * @return the lines of the nested <code>.gitignore</code> files (only if {@link #nestedIgnoreFiles} are enabled)
+	 */
+	public List<String> nestedIgnoreLines()
+	{
+		return List.of(
+			"# Generated by " + SyntheticMonorepoGenerator.class.getSimpleName(),
+			"/build/",
+			"*.log");
+	}
+	
+	/**
+	 * Writes the tree into the (empty or not existing) directory.
+	 */
+	public GeneratedMonorepo generate(final Path root)
+	{
+		final List<Entry> entries = this.plan();
+		final byte[] content = this.content();
+		
+		try
+		{
+			Files.createDirectories(root);
+			Files.write(root.resolve(IGNORE_FILE), this.ignoreLines());
+			
+			boolean symlinksSupported = true;
+			for(final Entry entry : entries)
+			{
+				final Path path = root.resolve(entry.relativePath());
+				Files.createDirectories(path.getParent());
+				if(entry.type() == EntryType.SYMLINK)
+				{
+					symlinksSupported = symlinksSupported && createSymlink(path, root.resolve(entry.linkTarget()));
+					continue;
+				}
+				if(entry.type() == EntryType.IGNORE_FILE)
+				{
+					Files.write(path, this.nestedIgnoreLines());
+					continue;
+				}
+				
+				try(final OutputStream out = Files.newOutputStream(path))
+				{
+					out.write(content, 0, (int)entry.size());
+				}
+			}
+			return new GeneratedMonorepo(root, entries, symlinksSupported);
+		}
+		catch(final IOException ioe)
+		{
+			throw new UncheckedIOException(ioe);
+		}
+	}
+	
+	protected static boolean createSymlink(final Path link, final Path target) throws IOException
+	{
+		try
+		{
+			Files.createSymbolicLink(link, link.getParent().relativize(target));
+			return true;
+		}
+		catch(final UnsupportedOperationException | FileSystemException ex)
+		{
+			// e.g. Windows without the required privileges
+			return false;
+		}
+	}
+	
+	protected byte[] content()
+	{
+		final byte[] content = new byte[(int)this.fileSizeDistribution.maxSize()];
+		final Random random = new Random(this.seed);
+		for(int i = 0; i < content.length; i++)
+		{
+			// Printable ASCII so that the content is somewhat compressible like source code
+			content[i] = (byte)(' ' + random.nextInt('~' - ' '));
+		}
+		return content;
+	}
+	
+	protected String nestedDirs(final Random random)
+	{
+		final StringBuilder sb = new StringBuilder();
+		final int levels = 1 + random.nextInt(this.depth);
+		for(int level = 0; level < levels; level++)
+		{
+			sb.append('d').append(level).append('-').append(random.nextInt(this.fanOut)).append('/');
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Every 10th module has a generated directory.
+	 */
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected int moduleWithGeneratedDir(final int module)
+	{
+		return module - module % 10;
+	}
+	
+	@SuppressWarnings("checkstyle:MagicNumber")
+	protected int moduleCount()
+	{
+		return this.modules > 0 ? this.modules : Math.max(1, this.fileCount / 1000);
+	}
+	
+	// region with
+	
+	public SyntheticMonorepoGenerator withFileCount(final int fileCount)
+	{
+		this.fileCount = fileCount;
+		return this;
+	}
+	
+	/**
+	 * @param modules the number of top level modules; by default there is one module per 1000 files
+	 */
+	public SyntheticMonorepoGenerator withModules(final int modules)
+	{
+		this.modules = modules;
+		return this;
+	}
+	
+	/**
+	 * @param depth maximum number of nested directories (inside the hot spots and source directories)
+	 */
+	public SyntheticMonorepoGenerator withDepth(final int depth)
+	{
+		this.depth = depth;
+		return this;
+	}
+	
+	/**
+	 * @param fanOut number of subdirectories per directory
+	 */
+	public SyntheticMonorepoGenerator withFanOut(final int fanOut)
+	{
+		this.fanOut = fanOut;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withSeed(final long seed)
+	{
+		this.seed = seed;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withFileSizeDistribution(final FileSizeDistribution fileSizeDistribution)
+	{
+		this.fileSizeDistribution = fileSizeDistribution;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withNodeModulesRatio(final double nodeModulesRatio)
+	{
+		this.nodeModulesRatio = nodeModulesRatio;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withTargetRatio(final double targetRatio)
+	{
+		this.targetRatio = targetRatio;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withTempFileRatio(final double tempFileRatio)
+	{
+		this.tempFileRatio = tempFileRatio;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withGeneratedRatio(final double generatedRatio)
+	{
+		this.generatedRatio = generatedRatio;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withSymlinkRatio(final double symlinkRatio)
+	{
+		this.symlinkRatio = symlinkRatio;
+		return this;
+	}
+	
+	public SyntheticMonorepoGenerator withLongPathRatio(final double longPathRatio)
+	{
+		this.longPathRatio = longPathRatio;
+		return this;
+	}
+	
+	/**
+	 * @param nestedIgnoreFiles if nested <code>.gitignore</code> files should be generated
+	 */
+	public SyntheticMonorepoGenerator withNestedIgnoreFiles(final boolean nestedIgnoreFiles)
+	{
+		this.nestedIgnoreFiles = nestedIgnoreFiles;
+		return this;
+	}
+	
+	/**
+	 * @param nestedIgnoredRatio ratio of files that are only ignored by a nested <code>.gitignore</code>
+	 */
+	public SyntheticMonorepoGenerator withNestedIgnoredRatio(final double nestedIgnoredRatio)
+	{
+		this.nestedIgnoredRatio = nestedIgnoredRatio;
+		return this;
+	}
+	
+	// endregion
+	
+	public enum EntryType
+	{
+		FILE,
+		SYMLINK,
+		/**
+		 * A nested <code>.gitignore</code> (regular file)
+		 */
+		IGNORE_FILE
+	}
+	
+	/**
+	 * @param relativePath the path relative to the root (separated by <code>/</code>)
+	 * @param type         the type
+	 * @param size         the size in bytes (only for files)
+	 * @param linkTarget   the root relative target (only for symlinks)
+	 * @param ignored      if the entry is ignored by the generated <code>.gitignore</code> files
+	 */
+	public record Entry(
+		String relativePath,
+		EntryType type,
+		long size,
+		String linkTarget,
+		boolean ignored) implements Comparable<Entry>
+	{
+		@Override
+		public int compareTo(final Entry o)
+		{
+			return this.relativePath.compareTo(o.relativePath);
+		}
+	}
+	
+	/**
+	 * Distribution of file sizes: Sizes are uniformly distributed inside the bucket that was randomly selected
+	 * (weighted).
+	 */
+	public record FileSizeDistribution(List<Bucket> buckets)
+	{
+		/**
+		 * Mostly small files with a few larger ones (average is around 2KiB).
+		 */
+		@SuppressWarnings("checkstyle:MagicNumber")
+		public static final FileSizeDistribution DEFAULT = new FileSizeDistribution(List.of(
+			new Bucket(0.85, 0, 1024),
+			new Bucket(0.14, 1024, 8 * 1024),
+			new Bucket(0.01, 8 * 1024, 64 * 1024)));
+		
+		public static FileSizeDistribution fixed(final long size)
+		{
+			return new FileSizeDistribution(List.of(new Bucket(1, size, size)));
+		}
+		
+		public long sample(final Random random)
+		{
+			final double totalWeight = this.buckets.stream().mapToDouble(Bucket::weight).sum();
+			double value = random.nextDouble() * totalWeight;
+			for(final Bucket bucket : this.buckets)
+			{
+				value -= bucket.weight();
+				if(value < 0)
+				{
+					return bucket.sample(random);
+				}
+			}
+			return this.buckets.get(this.buckets.size() - 1).sample(random);
+		}
+		
+		public long maxSize()
+		{
+			return this.buckets.stream().mapToLong(Bucket::maxSize).max().orElse(0);
+		}
+		
+		/**
+		 * @param weight  the relative weight
+		 * @param minSize inclusive
+		 * @param maxSize inclusive
+		 */
+		public record Bucket(double weight, long minSize, long maxSize)
+		{
+			public long sample(final Random random)
+			{
+				return this.minSize + (long)(random.nextDouble() * (this.maxSize - this.minSize + 1));
+			}
+		}
+	}
+	
+	/**
+	 * @param root              the root directory
+	 * @param entries           the generated entries
+	 * @param symlinksSupported if symlinks could be created
+	 */
+	public record GeneratedMonorepo(Path root, List<Entry> entries, boolean symlinksSupported)
+	{
+		/**
+		 * @return the relative paths of all regular files (including nested ignore files) that are not ignored
+		 */
+		public List<String> notIgnoredFiles()
+		{
+			return this.entries.stream()
+				.filter(e -> e.type() != EntryType.SYMLINK && !e.ignored())
+				.map(Entry::relativePath)
+				.toList();
+		}
+	}
+}